@@ -0,0 +1,104 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.checksum;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum implementation.
+ * 
+ * The JDK has no CRC-32C class, so this is a table driven implementation that
+ * consumes 8 bytes per step ("slicing-by-8") instead of one, with eight 1K
+ * lookup tables. It is used for log entries when je.log.checksumAlgorithm is
+ * CRC32C. The polynomial is the one computed by the SSE4.2 crc32 instruction,
+ * so the log format stays the same if a hardware assisted implementation is
+ * plugged in later.
+ */
+public class CRC32C implements Checksum {
+
+	/* The CRC-32C polynomial, bit reversed. */
+	private static final int POLY = 0x82F63B78;
+
+	/*
+	 * TABLES[0] is the classic byte-at-a-time table. TABLES[k][n] is the CRC
+	 * of byte n followed by k zero bytes.
+	 */
+	private static final int[][] TABLES = new int[8][256];
+
+	static {
+		for (int n = 0; n < 256; n++) {
+			int crc = n;
+			for (int k = 0; k < 8; k++) {
+				crc = ((crc & 1) != 0) ? ((crc >>> 1) ^ POLY) : (crc >>> 1);
+			}
+			TABLES[0][n] = crc;
+		}
+		for (int n = 0; n < 256; n++) {
+			int crc = TABLES[0][n];
+			for (int t = 1; t < 8; t++) {
+				crc = TABLES[0][crc & 0xff] ^ (crc >>> 8);
+				TABLES[t][n] = crc;
+			}
+		}
+	}
+
+	private int crc = 0xffffffff;
+
+	/**
+	 * Update current CRC-32C checksum given the specified byte.
+	 */
+	public void update(int b) {
+		crc = TABLES[0][(crc ^ b) & 0xff] ^ (crc >>> 8);
+	}
+
+	/**
+	 * Update current CRC-32C checksum given the specified byte array.
+	 */
+	public void update(byte[] b, int off, int len) {
+		int c = crc;
+		int[] t0 = TABLES[0];
+		int[] t1 = TABLES[1];
+		int[] t2 = TABLES[2];
+		int[] t3 = TABLES[3];
+		int[] t4 = TABLES[4];
+		int[] t5 = TABLES[5];
+		int[] t6 = TABLES[6];
+		int[] t7 = TABLES[7];
+
+		while (len >= 8) {
+			c ^= (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8)
+					| ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+			c = t7[c & 0xff] ^ t6[(c >>> 8) & 0xff] ^ t5[(c >>> 16) & 0xff]
+					^ t4[c >>> 24] ^ t3[b[off + 4] & 0xff]
+					^ t2[b[off + 5] & 0xff] ^ t1[b[off + 6] & 0xff]
+					^ t0[b[off + 7] & 0xff];
+			off += 8;
+			len -= 8;
+		}
+		while (len-- > 0) {
+			c = t0[(c ^ b[off++]) & 0xff] ^ (c >>> 8);
+		}
+		crc = c;
+	}
+
+	/**
+	 * Reset CRC-32C checksum to initial value.
+	 */
+	public void reset() {
+		crc = 0xffffffff;
+	}
+
+	/**
+	 * Returns current checksum value.
+	 */
+	public long getValue() {
+		return (~crc) & 0xffffffffL;
+	}
+}
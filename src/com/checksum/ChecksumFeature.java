@@ -41,7 +41,9 @@ public class ChecksumFeature {
 		Object r = pjp.proceed(objs);
 
 		if (fileReader.doValidateChecksum) {
-			fileReader.cksumValidator = new ChecksumValidator();
+			fileReader.cksumValidator = new ChecksumValidator(env
+					.getConfigManager().get(
+							EnvironmentParams.LOG_CHECKSUM_ALGORITHM));
 		}
 		fileReader.anticipateChecksumErrors = false;
 		return r;
@@ -91,21 +93,24 @@ public class ChecksumFeature {
 		DbConfigManager configManager = env.getConfigManager();
 		logManager.doChecksumOnRead = configManager
 				.getBoolean(EnvironmentParams.LOG_CHECKSUM_READ);
+		logManager.checksumAlgorithm = configManager
+				.get(EnvironmentParams.LOG_CHECKSUM_ALGORITHM);
+		LogChecksum.validateAlgorithm(logManager.checksumAlgorithm);
 	}
 
-	@Pointcut("execution(java.nio.ByteBuffer com.sleepycat.je.log.LogManager.addPrevOffset(java.nio.ByteBuffer,long,int)) && args(java.nio.ByteBuffer,long,entrySize) && within(com.sleepycat.je.log.LogManager)")
-	public void addPrevOffset(int entrySize) {}
+	@Pointcut("execution(java.nio.ByteBuffer com.sleepycat.je.log.LogManager.addPrevOffset(java.nio.ByteBuffer,long,int)) && args(java.nio.ByteBuffer,long,entrySize) && this(lm) && within(com.sleepycat.je.log.LogManager)")
+	public void addPrevOffset(int entrySize, LogManager lm) {}
 	
-	@Around("addPrevOffset(entrySize)")
-	public ByteBuffer around2(int entrySize, ProceedingJoinPoint pjp) throws Throwable {
-		Object[] objs = new Object[] {entrySize};
+	@Around("addPrevOffset(entrySize, lm)")
+	public ByteBuffer around2(int entrySize, LogManager lm, ProceedingJoinPoint pjp) throws Throwable {
+		Object[] objs = new Object[] {entrySize, lm};
 		ByteBuffer destBuffer = (ByteBuffer) pjp.proceed(objs);
 
-		Checksum checksum = Adler32.makeChecksum();
+		Checksum checksum = LogChecksum.makeChecksum(lm.checksumAlgorithm);
 
 		/* Now calculate the checksum and write it into the buffer. */
-		checksum.update(destBuffer.array(), LogManager.CHECKSUM_BYTES,
-				(entrySize - LogManager.CHECKSUM_BYTES));
+		LogChecksum.update(checksum, destBuffer, LogManager.CHECKSUM_BYTES,
+				(entrySize - LogManager.CHECKSUM_BYTES), null);
 		LogUtils.writeUnsignedInt(destBuffer, checksum.getValue());
 		destBuffer.position(0);
 		return destBuffer;
@@ -118,7 +123,7 @@ public class ChecksumFeature {
 	public void after3(LogManager lm, ByteBuffer entryBuffer, EntryHeader entryHeader) throws DatabaseException {
 		/* Read the checksum to move the buffer forward. */
 		if (lm.doChecksumOnRead) {
-			validator = new ChecksumValidator();
+			validator = new ChecksumValidator(lm.checksumAlgorithm);
 			int oldpos = entryBuffer.position();
 			entryBuffer.position(oldpos - LogManager.HEADER_CONTENT_BYTES);
 			validator.update(lm.envImpl, entryBuffer,
@@ -183,20 +188,19 @@ public class ChecksumFeature {
 		fr.setAlwaysValidateChecksum(true);
 	}
 	
-	@Pointcut("call(void com.sleepycat.je.log.FileManager.hook_recomputeChecksum(java.nio.ByteBuffer, int, int)) && args(data,recStartPos,itemSize)")
-	public void hook_recomputeChecksum(ByteBuffer data, int recStartPos, int itemSize) {}
+	@Pointcut("call(void com.sleepycat.je.log.FileManager.hook_recomputeChecksum(java.nio.ByteBuffer, int, int)) && args(data,recStartPos,itemSize) && target(fm)")
+	public void hook_recomputeChecksum(ByteBuffer data, int recStartPos, int itemSize, FileManager fm) {}
 	
-	@After("hook_recomputeChecksum(data,recStartPos,itemSize)")
-	public void after6(ByteBuffer data, int recStartPos, int itemSize) {
-		Checksum checksum = Adler32.makeChecksum();
+	@After("hook_recomputeChecksum(data,recStartPos,itemSize,fm)")
+	public void after6(ByteBuffer data, int recStartPos, int itemSize, FileManager fm) {
+		Checksum checksum = LogChecksum.makeChecksum(fm.envImpl
+				.getLogManager().checksumAlgorithm);
 		data.position(recStartPos);
 		/* Calculate the checksum and write it into the buffer. */
 		int nChecksumBytes = itemSize
 				+ (LogManager.HEADER_BYTES - LogManager.CHECKSUM_BYTES);
-		byte[] checksumBytes = new byte[nChecksumBytes];
-		System.arraycopy(data.array(), recStartPos + LogManager.CHECKSUM_BYTES,
-				checksumBytes, 0, nChecksumBytes);
-		checksum.update(checksumBytes, 0, nChecksumBytes);
+		LogChecksum.update(checksum, data, recStartPos
+				+ LogManager.CHECKSUM_BYTES, nChecksumBytes, null);
 		LogUtils.writeUnsignedInt(data, checksum.getValue());
 	}
 	
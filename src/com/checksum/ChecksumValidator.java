@@ -14,8 +14,11 @@ class ChecksumValidator {
 
 	private Checksum cksum;
 
-	ChecksumValidator() {
-		cksum = Adler32.makeChecksum();
+	/* Chunk buffer for checksumming direct buffers, see LogChecksum. */
+	private byte[] scratch;
+
+	ChecksumValidator(String algorithm) {
+		cksum = LogChecksum.makeChecksum(algorithm);
 	}
 
 	void reset() {
@@ -49,13 +52,7 @@ class ChecksumValidator {
 					.println("bufStart = " + bufStart + " length = " + length);
 		}
 
-		if (buf.hasArray()) {
-			cksum.update(buf.array(), bufStart, length);
-		} else {
-			for (int i = bufStart; i < (length + bufStart); i++) {
-				cksum.update(buf.get(i));
-			}
-		}
+		scratch = LogChecksum.update(cksum, buf, bufStart, length, scratch);
 	}
 
 	void validate(EnvironmentImpl env, long expectedChecksum, long lsn)
@@ -0,0 +1,96 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.checksum;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * LogChecksum creates the checksum used for log entries and feeds it from
+ * ByteBuffers.
+ * 
+ * The algorithm is set with je.log.checksumAlgorithm. It is part of the log
+ * format: entries carry no indication of the algorithm that computed their
+ * checksum, so an environment must always be opened with the setting it was
+ * created with.
+ */
+class LogChecksum {
+
+	static final String ALGORITHM_ADLER32 = "Adler32";
+
+	static final String ALGORITHM_CRC32C = "CRC32C";
+
+	/* Bytes copied out of a direct buffer per bulk get. */
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the algorithm isn't supported.
+	 */
+	static void validateAlgorithm(String algorithm)
+			throws IllegalArgumentException {
+
+		if (!ALGORITHM_ADLER32.equalsIgnoreCase(algorithm)
+				&& !ALGORITHM_CRC32C.equalsIgnoreCase(algorithm)) {
+			throw new IllegalArgumentException(
+					"Unsupported log checksum algorithm: " + algorithm
+							+ ", must be " + ALGORITHM_ADLER32 + " or "
+							+ ALGORITHM_CRC32C);
+		}
+	}
+
+	static Checksum makeChecksum(String algorithm) {
+		if (ALGORITHM_CRC32C.equalsIgnoreCase(algorithm)) {
+			return new CRC32C();
+		} else {
+			return Adler32.makeChecksum();
+		}
+	}
+
+	/**
+	 * Add length bytes of the buffer, starting at absolute position start, to
+	 * the checksum. The buffer's position and limit are not changed.
+	 * 
+	 * A direct buffer has no backing array, so its bytes are copied into
+	 * scratch with bulk gets and checksummed a chunk at a time, instead of
+	 * one get and one update call per byte.
+	 * 
+	 * @param scratch
+	 *            a reusable chunk buffer for direct buffers, or null to
+	 *            allocate one if needed.
+	 * @return the chunk buffer, for reuse by the next call.
+	 */
+	static byte[] update(Checksum cksum, ByteBuffer buf, int start,
+			int length, byte[] scratch) {
+
+		if (buf.hasArray()) {
+			cksum.update(buf.array(), buf.arrayOffset() + start, length);
+			return scratch;
+		}
+
+		/*
+		 * The chunk buffer is kept by the caller, so it is always allocated
+		 * at full size; a small first entry must not shrink later chunks.
+		 */
+		if (scratch == null || scratch.length < CHUNK_SIZE) {
+			scratch = new byte[CHUNK_SIZE];
+		}
+		ByteBuffer src = buf.duplicate();
+		src.limit(start + length);
+		src.position(start);
+		while (src.hasRemaining()) {
+			int chunk = (src.remaining() < scratch.length) ? src.remaining()
+					: scratch.length;
+			src.get(scratch, 0, chunk);
+			cksum.update(scratch, 0, chunk);
+		}
+		return scratch;
+	}
+}
@@ -0,0 +1,113 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.evictor;
+
+import com.sleepycat.je.tree.IN;
+
+/**
+ * A scan resistant clock policy, a simplified CLOCK-Pro. The Evictor's round
+ * robin scan is the clock hand. Each IN carries a reference bit, set on every
+ * access, and is either cold or hot.
+ * 
+ * When the hand reaches a cold IN that was referenced, the IN gets a second
+ * chance and starts its test period. If it is referenced again before the
+ * hand comes back, it was reused across a whole clock rotation and becomes
+ * hot. A hot IN must go unreferenced for a whole rotation before it is
+ * demoted to cold again. The victim is the first cold IN found unreferenced.
+ * 
+ * An IN that a preload or a cursor walk touches only in one burst, however
+ * many times, never gets hot, and is evicted before the INs that are hot.
+ * With the generation policy such a scan makes every IN it touched the most
+ * recently used, and the upper levels of the tree are evicted first.
+ */
+class ClockPolicy extends EvictionPolicy {
+
+	/* IN.evictionState bits. */
+	static final byte REFERENCED = 0x1;
+
+	static final byte TEST = 0x2;
+
+	static final byte HOT = 0x4;
+
+	private IN victim;
+
+	/*
+	 * The first IN passed over that is cold, either given its second chance
+	 * or demoted by this scan. A selection is bounded by nodesPerScan like
+	 * the generation policy's, so when every IN offered was referenced this
+	 * one is evicted; the hand has already cleared its reference bit. A hot
+	 * IN is never the fallback: if the scan saw only hot INs, nothing is
+	 * selected and the next eviction run moves the hand on.
+	 */
+	private IN fallback;
+
+	/* Stats */
+	private long nPromoted;
+
+	private long nDemoted;
+
+	public String getName() {
+		return CLOCK;
+	}
+
+	void noteAccess(IN in) {
+		super.noteAccess(in);
+		in.evictionState |= REFERENCED;
+	}
+
+	void startSelection() {
+		victim = null;
+		fallback = null;
+	}
+
+	boolean consider(IN in, int evictType) {
+		byte state = in.evictionState;
+		if ((state & REFERENCED) != 0) {
+			if ((state & HOT) != 0) {
+				state = HOT;
+			} else if ((state & TEST) != 0) {
+				/* Referenced again during its test period. */
+				state = HOT;
+				nPromoted++;
+			} else {
+				state = TEST;
+			}
+		} else if ((state & HOT) != 0) {
+			state = 0;
+			nDemoted++;
+		} else {
+			victim = in;
+			return true;
+		}
+		in.evictionState = state;
+		if (fallback == null && (state & HOT) == 0) {
+			fallback = in;
+		}
+		return false;
+	}
+
+	IN getSelection() {
+		return (victim != null) ? victim : fallback;
+	}
+
+	/**
+	 * @return the number of INs that became hot.
+	 */
+	public long getNPromoted() {
+		return nPromoted;
+	}
+
+	/**
+	 * @return the number of hot INs demoted to cold.
+	 */
+	public long getNDemoted() {
+		return nDemoted;
+	}
+}
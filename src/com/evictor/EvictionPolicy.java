@@ -0,0 +1,138 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.evictor;
+
+import com.sleepycat.je.tree.IN;
+
+/**
+ * An EvictionPolicy chooses which IN the Evictor evicts next. The Evictor
+ * walks the INList with its round robin scan and offers each evictable IN to
+ * the policy, until the policy has made its choice or je.evictor.nodesPerScan
+ * INs have been offered.
+ * 
+ * The policy is also told about every IN access (IN.setGeneration) and every
+ * IN fetched from the log, which gives the hit ratio of the cache. Access and
+ * fetch counts are not synchronized and are approximate.
+ * 
+ * Selection is only done by the Evictor, which is single threaded.
+ */
+public abstract class EvictionPolicy {
+
+	/* je.evictor.policy values. */
+	public static final String GENERATION = "generation";
+
+	public static final String CLOCK = "clock";
+
+	/* Stats */
+	private long nAccesses;
+
+	private long nFetches;
+
+	private long nVictims;
+
+	private long nBytesFreed;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the policy name isn't supported.
+	 */
+	static EvictionPolicy makePolicy(String name, Evictor evictor,
+			boolean lruOnly) throws IllegalArgumentException {
+
+		if (GENERATION.equalsIgnoreCase(name)) {
+			return new GenerationPolicy(evictor, lruOnly);
+		} else if (CLOCK.equalsIgnoreCase(name)) {
+			return new ClockPolicy();
+		} else {
+			throw new IllegalArgumentException("Unsupported eviction policy: "
+					+ name + ", must be " + GENERATION + " or " + CLOCK);
+		}
+	}
+
+	/**
+	 * @return the je.evictor.policy name of this policy.
+	 */
+	public abstract String getName();
+
+	/**
+	 * Start choosing a new victim.
+	 */
+	abstract void startSelection();
+
+	/**
+	 * Offer an evictable IN, in scan order.
+	 * 
+	 * @param evictType
+	 *            IN.MAY_EVICT_LNS or IN.MAY_EVICT_NODE.
+	 * @return true if the choice is made and the scan can stop.
+	 */
+	abstract boolean consider(IN in, int evictType);
+
+	/**
+	 * @return the IN chosen since startSelection, or null if none.
+	 */
+	abstract IN getSelection();
+
+	void noteAccess(IN in) {
+		nAccesses++;
+	}
+
+	void noteFetch(IN in) {
+		nFetches++;
+	}
+
+	void noteSelected(IN in) {
+		nVictims++;
+	}
+
+	void noteEvicted(long bytes) {
+		nBytesFreed += bytes;
+	}
+
+	/**
+	 * @return the number of IN accesses.
+	 */
+	public long getNAccesses() {
+		return nAccesses;
+	}
+
+	/**
+	 * @return the number of INs fetched from the log, i.e. cache misses.
+	 */
+	public long getNFetches() {
+		return nFetches;
+	}
+
+	/**
+	 * @return the fraction of IN accesses that found the IN in the cache.
+	 */
+	public double getHitRatio() {
+		long accesses = nAccesses;
+		long fetches = nFetches;
+		if (accesses <= 0 || fetches >= accesses) {
+			return 0;
+		}
+		return (double) (accesses - fetches) / accesses;
+	}
+
+	/**
+	 * @return the number of INs chosen for eviction or LN stripping.
+	 */
+	public long getNVictims() {
+		return nVictims;
+	}
+
+	/**
+	 * @return the number of bytes freed by evicting the chosen INs.
+	 */
+	public long getNBytesFreed() {
+		return nBytesFreed;
+	}
+}
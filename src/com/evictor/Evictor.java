@@ -12,8 +12,8 @@ package com.evictor;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.config.EnvironmentParams;
@@ -53,8 +53,11 @@ public class Evictor {
 
 	private volatile boolean active; // true if eviction is happening.
 
-	/* Round robin marker in the INList, indicates start of eviction scans. */
-	private IN nextNode;
+	/*
+	 * Round robin marker in the INList, the slot position where the next
+	 * eviction scan starts.
+	 */
+	private int nextPosition;
 
 	/* The number of bytes we need to evict in order to get under budget. */
 	private long currentRequiredEvictBytes;
@@ -65,8 +68,8 @@ public class Evictor {
 	/* je.evictor.evictBytes */
 	private long evictBytesSetting;
 
-	/* je.evictor.lruOnly */
-	private boolean evictByLruOnly;
+	/* je.evictor.policy, with je.evictor.lruOnly */
+	private EvictionPolicy policy;
 
 	/* for trace messages. */
 	private NumberFormat formatter;
@@ -88,15 +91,16 @@ public class Evictor {
 
 		this.envImpl = envImpl;
 		logManager = envImpl.getLogManager();
-		nextNode = null;
+		nextPosition = 0;
 
 		DbConfigManager configManager = envImpl.getConfigManager();
 		nodesPerScan = configManager
 				.getInt(EnvironmentParams.EVICTOR_NODES_PER_SCAN);
 		evictBytesSetting = configManager
 				.getLong(EnvironmentParams.EVICTOR_EVICT_BYTES);
-		evictByLruOnly = configManager
-				.getBoolean(EnvironmentParams.EVICTOR_LRU_ONLY);
+		policy = EvictionPolicy.makePolicy(configManager
+				.get(EnvironmentParams.EVICTOR_POLICY), this, configManager
+				.getBoolean(EnvironmentParams.EVICTOR_LRU_ONLY));
 //TODO		detailedTraceLevel = Tracer.parseLevel(envImpl,
 //				EnvironmentParams.JE_LOGGING_LEVEL_EVICTOR);
 
@@ -124,6 +128,13 @@ public class Evictor {
 		return active;
 	}
 
+	/**
+	 * @return the eviction policy, for its stats.
+	 */
+	public EvictionPolicy getPolicy() {
+		return policy;
+	}
+
 
 
 
@@ -205,25 +216,22 @@ public class Evictor {
 		boolean finished = false;
 
 		int inListStartSize = inList.getSize();
+		nNodesScannedThisRun = 0;
 
 		try {
 
 			/*
 			 * Setup the round robin iterator. Note that because critical
 			 * eviction is now called during recovery, when the INList is
-			 * sometimes abruptly cleared, nextNode may not be null when the
-			 * INList is empty.
+			 * sometimes abruptly cleared, nextPosition may be past the end of
+			 * the INList; the scan then simply wraps around.
 			 */
 			if (inListStartSize == 0) {
-				nextNode = null;
+				nextPosition = 0;
 				return 0;
-			} else {
-				if (nextNode == null) {
-					nextNode = inList.first();
-				}
 			}
 
-			ScanIterator scanIter = new ScanIterator(nextNode, inList);
+			ScanIterator scanIter = new ScanIterator(nextPosition, inList);
 
 			/*
 			 * Keep evicting until we've freed enough memory or we've visited
@@ -244,16 +252,18 @@ public class Evictor {
 				} else {
 					assert evictProfile.count(target);// intentional side
 														// effect
-					evictBytes += evict(inList, target, scanIter);
+					long targetBytes = evict(inList, target, scanIter);
+					policy.noteEvicted(targetBytes);
+					evictBytes += targetBytes;
 				}
 				nBatchSets++;
 			}
 
 			/*
-			 * At the end of the scan, look at the next element in the INList
-			 * and put it in nextNode for the next time we scan the INList.
+			 * At the end of the scan, remember the position of the next
+			 * element in the INList for the next time we scan the INList.
 			 */
-			nextNode = scanIter.mark();
+			nextPosition = scanIter.mark();
 			finished = true;
 
 		} finally {
@@ -291,14 +301,11 @@ public class Evictor {
 	private IN selectIN(INList inList, ScanIterator scanIter)
 			throws DatabaseException {
 
-		/* Find the best target in the next <nodesPerScan> nodes. */
-		IN target = null;
-		long targetGeneration = Long.MAX_VALUE;
-		int targetLevel = Integer.MAX_VALUE;
-		boolean targetDirty = true;
+		/* Offer the next evictable nodes to the policy, at most <nodesPerScan>. */
 		boolean envIsReadOnly = envImpl.isReadOnly();
 		int scanned = 0;
-		boolean wrapped = false;
+		boolean scannedSinceWrap = true;
+		policy.startSelection();
 		while (scanned < nodesPerScan) {
 			if (scanIter.hasNext()) {
 				IN in = scanIter.next();
@@ -324,7 +331,8 @@ public class Evictor {
 				 * read-only environment). We take at least one target so we
 				 * don't loop endlessly if everything is dirty.
 				 */
-				if (envIsReadOnly && (target != null) && in.getDirty()) {
+				if (envIsReadOnly && (policy.getSelection() != null)
+						&& in.getDirty()) {
 					continue;
 				}
 
@@ -342,57 +350,29 @@ public class Evictor {
 				 * This node is in the scanned node set. Select according to the
 				 * configured eviction policy.
 				 */
-				if (evictByLruOnly) {
-
-					/*
-					 * Select the node with the lowest generation number,
-					 * irrespective of tree level or dirtyness.
-					 */
-					if (targetGeneration > in.getGeneration()) {
-						targetGeneration = in.getGeneration();
-						target = in;
-					}
-				} else {
-
-					/*
-					 * Select first by tree level, then by dirtyness, then by
-					 * generation/LRU.
-					 */
-					int level = normalizeLevel(in, evictType);
-					if (targetLevel != level) {
-						if (targetLevel > level) {
-							targetLevel = level;
-							targetDirty = in.getDirty();
-							targetGeneration = in.getGeneration();
-							target = in;
-						}
-					} else if (targetDirty != in.getDirty()) {
-						if (targetDirty) {
-							targetDirty = false;
-							targetGeneration = in.getGeneration();
-							target = in;
-						}
-					} else {
-						if (targetGeneration > in.getGeneration()) {
-							targetGeneration = in.getGeneration();
-							target = in;
-						}
-					}
-				}
 				scanned++;
+				scannedSinceWrap = true;
+				if (policy.consider(in, evictType)) {
+					break;
+				}
 			} else {
-				/* We wrapped around in the list. */
-				if (wrapped) {
+				/*
+				 * We wrapped around in the list. Stop if a whole pass found
+				 * nothing to offer.
+				 */
+				if (!scannedSinceWrap) {
 					break;
 				} else {
-					nextNode = inList.first();
-					scanIter.reset(nextNode);
-					wrapped = true;
+					scanIter.rewind();
+					scannedSinceWrap = false;
 				}
 			}
 		}
 
-		
+		IN target = policy.getSelection();
+		if (target != null) {
+			policy.noteSelected(target);
+		}
 		return target;
 	}
 
@@ -564,10 +544,11 @@ public class Evictor {
 						}
 
 						if (renewedChildLsn != DbLsn.NULL_LSN) {
-							/* Take this off the inlist. */
-							scanIter.mark();
+							/*
+							 * Take this off the inlist. The scan position is
+							 * not affected.
+							 */
 							inlist.remove/*LatchAlreadyHeld*/(renewedChild);
-							scanIter.resetToMark();
 
 							evictBytes = hook_getSize(renewedChild);
 							if (newChildLsn) {
@@ -612,8 +593,8 @@ public class Evictor {
 	/**
 	 * Used by unit tests.
 	 */
-	IN getNextNode() {
-		return nextNode;
+	int getNextPosition() {
+		return nextPosition;
 	}
 
 	/* For unit testing only. */
@@ -643,53 +624,56 @@ public class Evictor {
 	}
 
 	/*
-	 * ScanIterator keeps a handle onto the current round robin INList iterator.
+	 * ScanIterator keeps a handle onto the current round robin INList cursor.
 	 * It's deliberately not a member of the class in order to keep less common
 	 * state in the class.
 	 */
 	public static class ScanIterator {
-		private INList inList;
+		private INList.ScanCursor cursor;
 
-		private Iterator iter;
+		/* The IN found by hasNext and not yet returned by next. */
+		private IN nextIN;
 
-		private IN nextMark;
+		/* The cursor position at which nextIN was searched for. */
+		private int nextINPosition;
 
-		ScanIterator(IN startingIN, INList inList) throws DatabaseException {
+		ScanIterator(int startPosition, INList inList) {
 
-			this.inList = inList;
-			reset(startingIN);
+			cursor = inList.scanCursor(startPosition);
 		}
 
-		void reset(IN startingIN) throws DatabaseException {
-
-			iter = inList.tailSet(startingIN).iterator();
-		}
-
-		IN mark() throws DatabaseException {
+		/**
+		 * Wrap around to the start of the INList.
+		 */
+		void rewind() {
 
-			if (iter.hasNext()) {
-				nextMark = (IN) iter.next();
-			} else {
-				nextMark = (IN) inList.first();
-			}
-			return (IN) nextMark;
+			cursor.rewind();
+			nextIN = null;
 		}
 
-		void resetToMark() throws DatabaseException {
+		/**
+		 * @return the position where a later scan should resume.
+		 */
+		int mark() {
 
-			reset(nextMark);
+			return (nextIN != null) ? nextINPosition : cursor.getPosition();
 		}
 
 		boolean hasNext() {
-			return iter.hasNext();
+			if (nextIN == null) {
+				nextINPosition = cursor.getPosition();
+				nextIN = cursor.next();
+			}
+			return nextIN != null;
 		}
 
 		IN next() {
-			return (IN) iter.next();
-		}
-
-		void remove() {
-			iter.remove();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			IN in = nextIN;
+			nextIN = null;
+			return in;
 		}
 	}
 	
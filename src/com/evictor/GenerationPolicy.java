@@ -0,0 +1,94 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.evictor;
+
+import com.sleepycat.je.tree.IN;
+
+/**
+ * The original JE policy. Of the next je.evictor.nodesPerScan INs, choose the
+ * one with the lowest generation, i.e. the least recently used. Unless
+ * je.evictor.lruOnly is set, first prefer the lowest normalized tree level and
+ * then non-dirty INs.
+ */
+class GenerationPolicy extends EvictionPolicy {
+
+	private Evictor evictor;
+
+	private boolean lruOnly;
+
+	private IN target;
+
+	private long targetGeneration;
+
+	private int targetLevel;
+
+	private boolean targetDirty;
+
+	GenerationPolicy(Evictor evictor, boolean lruOnly) {
+		this.evictor = evictor;
+		this.lruOnly = lruOnly;
+	}
+
+	public String getName() {
+		return GENERATION;
+	}
+
+	void startSelection() {
+		target = null;
+		targetGeneration = Long.MAX_VALUE;
+		targetLevel = Integer.MAX_VALUE;
+		targetDirty = true;
+	}
+
+	boolean consider(IN in, int evictType) {
+		if (lruOnly) {
+
+			/*
+			 * Select the node with the lowest generation number, irrespective
+			 * of tree level or dirtyness.
+			 */
+			if (targetGeneration > in.getGeneration()) {
+				targetGeneration = in.getGeneration();
+				target = in;
+			}
+		} else {
+
+			/*
+			 * Select first by tree level, then by dirtyness, then by
+			 * generation/LRU.
+			 */
+			int level = evictor.normalizeLevel(in, evictType);
+			if (targetLevel != level) {
+				if (targetLevel > level) {
+					targetLevel = level;
+					targetDirty = in.getDirty();
+					targetGeneration = in.getGeneration();
+					target = in;
+				}
+			} else if (targetDirty != in.getDirty()) {
+				if (targetDirty) {
+					targetDirty = false;
+					targetGeneration = in.getGeneration();
+					target = in;
+				}
+			} else {
+				if (targetGeneration > in.getGeneration()) {
+					targetGeneration = in.getGeneration();
+					target = in;
+				}
+			}
+		}
+		return false;
+	}
+
+	IN getSelection() {
+		return target;
+	}
+}
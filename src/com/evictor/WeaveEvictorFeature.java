@@ -12,6 +12,7 @@ import com.sleepycat.je.dbi.EnvironmentImpl;
 import com.sleepycat.je.recovery.Checkpointer;
 import com.sleepycat.je.recovery.RecoveryManager;
 import com.sleepycat.je.recovery.Checkpointer.CheckpointStartResult;
+import com.sleepycat.je.tree.IN;
 
 @Aspect
 public class WeaveEvictorFeature {
@@ -52,4 +53,26 @@ public class WeaveEvictorFeature {
 	public void after2(CursorImpl cursor) throws DatabaseException {
 		cursor.evict();
 	}
+
+	@Pointcut("execution(void com.sleepycat.je.tree.IN.setGeneration()) && this(in)")
+	public void setGeneration(IN in) {}
+
+	@After("setGeneration(in)")
+	public void after3(IN in) {
+		Evictor evictor = in.getDatabase().getDbEnvironment().getEvictor();
+		if (evictor != null) {
+			evictor.getPolicy().noteAccess(in);
+		}
+	}
+
+	@Pointcut("execution(void com.sleepycat.je.tree.IN.postFetchInit(com.sleepycat.je.dbi.DatabaseImpl, long)) && this(in)")
+	public void postFetchInit(IN in) {}
+
+	@After("postFetchInit(in)")
+	public void after4(IN in) {
+		Evictor evictor = in.getDatabase().getDbEnvironment().getEvictor();
+		if (evictor != null) {
+			evictor.getPolicy().noteFetch(in);
+		}
+	}
 }
@@ -30,6 +30,7 @@ import com.sleepycat.je.tree.IN;
 import com.sleepycat.je.tree.Key;
 import com.sleepycat.je.tree.Node;
 import com.sleepycat.je.tree.NodeNotEmptyException;
+import com.sleepycat.je.tree.SearchResult;
 import com.sleepycat.je.tree.Tree;
 import com.sleepycat.je.tree.Tree.SearchType;
 import com.sleepycat.je.utilint.DaemonThread;
@@ -544,25 +545,25 @@ public class INCompressor extends DaemonThread {
 
 		/* Search for this IN */
 		Tree tree = db.getTree();
-		IN in = tree
-				.search(mainKey, SearchType.NORMAL, -1, null, false /* updateGeneration */);
+		SearchResult entry = tree.searchEntry(mainKey, false, true, null,
+				false /* updateGeneration */);
 
 		/* Couldn't find a bin, return null */
-		if (in == null) {
+		if (entry == null) {
 			return null;
 		}
 
 		/* This is not a duplicate, we're done. */
 		if (dupKey == null) {
-			return (BIN) in;
+			return (BIN) entry.parent;
 		}
 
 		/* We need to descend down into a duplicate tree. */
 		DIN duplicateRoot = null;
 		DBIN duplicateBin = null;
-		BIN bin = (BIN) in;
+		BIN bin = (BIN) entry.parent;
 		try {
-			int index = bin.findEntry(mainKey, false, true);
+			int index = entry.index;
 			if (index >= 0) {
 				Node node = null;
 				if (!bin.isEntryKnownDeleted(index)) {
@@ -17,14 +17,17 @@ public class IOFileManager extends FileManager {
 		super(envImpl, dbEnvHome, readOnly);
 	}
 
-	void readFromFile(RandomAccessFile file, ByteBuffer readBuffer, long offset)
-			throws IOException {
+	protected void readFromFile(RandomAccessFile file, ByteBuffer readBuffer,
+			long offset) throws IOException {
 
 		/*
 		 * Perform a RandomAccessFile read and update the buffer position.
 		 * ByteBuffer.array() is safe to use since all non-direct ByteBuffers
-		 * have a backing array. 
+		 * have a backing array. File handles are cached and shared between
+		 * threads, so the seek and the read must not be separated by another
+		 * thread's seek on the same file.
 		 */
+		synchronized (file) {
 			assert readBuffer.hasArray();
 			assert readBuffer.arrayOffset() == 0;
 
@@ -35,6 +38,7 @@ public class IOFileManager extends FileManager {
 			if (bytesRead > 0) {
 				readBuffer.position(pos + bytesRead);
 			}
+		}
 	}
 
 	protected int writeToFile(RandomAccessFile file, ByteBuffer data,
@@ -46,6 +50,7 @@ public class IOFileManager extends FileManager {
 		 * ByteBuffer.array() is safe to use since all non-direct ByteBuffers
 		 * have a backing array. 
 		 */
+		synchronized (file) {
 			assert data.hasArray();
 			assert data.arrayOffset() == 0;
 
@@ -55,6 +60,7 @@ public class IOFileManager extends FileManager {
 			file.write(data.array(), pos, size);
 			data.position(pos + size);
 			totalBytesWritten = size;
+		}
 
 		return totalBytesWritten;
 	}
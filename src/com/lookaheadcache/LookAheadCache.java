@@ -1,5 +1,7 @@
 package com.lookaheadcache;
 
+import java.util.Iterator;
+
 import com.sleepycat.je.cleaner.LNInfo;
 
 /**
@@ -18,4 +20,9 @@ public interface LookAheadCache {
 	void add(Long lsnOffset, LNInfo info);
 
 	LNInfo remove(Long offset);
+
+	int size();
+
+	/* Iterates over the LNInfos in offset order. */
+	Iterator iterator();
 }
\ No newline at end of file
@@ -26,21 +26,36 @@ import com.sleepycat.je.utilint.DbLsn;
 @Aspect
 public class LookAheadCacheFeature {
 
-	LookAheadCache lookAheadCache = null;
-	
+	/*
+	 * The cache state lives in the FileProcessor (see LookAheadCacheInter),
+	 * since this aspect is shared by all cleaner threads.
+	 */
+
 	@Pointcut("call(void com.sleepycat.je.cleaner.FileProcessor.processLN(Long, com.sleepycat.je.tree.TreeLocation, Long, com.sleepycat.je.cleaner.LNInfo, java.util.Map)) && args(fileNum, location, offset, info, map) && this(fp) && withincode(boolean hookr_processFileInternalLoop(Long, com.sleepycat.je.cleaner.TrackedFileSummary, com.sleepycat.je.cleaner.PackedOffsets.Iterator, long, java.util.Set, java.util.Map, com.sleepycat.je.log.CleanerFileReader, com.sleepycat.je.dbi.DbTree, com.sleepycat.je.tree.TreeLocation))")
 	public void processLN(Long fileNum, TreeLocation location, Long offset, LNInfo info, Map map, FileProcessor fp) {}
 	
 	@Around("processLN(fileNum, location, offset, info, map, fp)")
 	public void around(Long fileNum, TreeLocation location, Long offset, LNInfo info, Map map, FileProcessor fp, ProceedingJoinPoint pjp) throws Throwable {
-		if (lookAheadCache == null) {
-			lookAheadCache = new LookAheadCache_Count(
+		if (fp.lookAheadCache == null) {
+			fp.lookAheadCache = new LookAheadCache_Count(
 					fp.cleaner.lookAheadCacheSize);
 		}
+		LookAheadCache lookAheadCache = fp.lookAheadCache;
 
 		lookAheadCache.add(offset, info);
+		fp.nAddedSinceFetch++;
 
 		if (lookAheadCache.isFull()) {
+
+			/*
+			 * Fetch the parent BINs of the cached LNs in LSN order, once at
+			 * least half of the LNs are new since the last time.
+			 */
+			if (fp.nAddedSinceFetch * 2 >= lookAheadCache.size()) {
+				fp.fetchParentBINs(lookAheadCache.iterator(), map);
+				fp.nAddedSinceFetch = 0;
+			}
+
 			Long poffset = lookAheadCache.nextOffset();
 			LNInfo pinfo = lookAheadCache.remove(poffset);
 			Object[] objs = new Object[] {fileNum, location, poffset, pinfo, map, fp};
@@ -81,6 +96,14 @@ public class LookAheadCacheFeature {
 	@After("hookr_processFileInternalLoop(fp, fileNum, dbCache, location, trackedFileSummary, numb, set, cleanerFileReader, dbTree)")
 	public void after1(FileProcessor fp, Long fileNum, Map dbCache, TreeLocation location, TrackedFileSummary trackedFileSummary, long numb, Set set, CleanerFileReader cleanerFileReader, DbTree dbTree) throws DatabaseException {
 		/* Process remaining queued LNs. */
+		LookAheadCache lookAheadCache = fp.lookAheadCache;
+		if (lookAheadCache == null) {
+			return;
+		}
+		if (!lookAheadCache.isEmpty()) {
+			fp.fetchParentBINs(lookAheadCache.iterator(), dbCache);
+			fp.nAddedSinceFetch = 0;
+		}
 		while (!lookAheadCache.isEmpty()) {
 			fp.hook_beforeProcess();
 
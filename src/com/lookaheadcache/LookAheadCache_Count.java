@@ -3,6 +3,7 @@
  */
 package com.lookaheadcache;
 
+import java.util.Iterator;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -47,4 +48,12 @@ public class LookAheadCache_Count implements LookAheadCache {
 		}
 		return info;
 	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public Iterator iterator() {
+		return map.values().iterator();
+	}
 }
\ No newline at end of file
@@ -259,6 +259,25 @@ public class MemoryBudget extends LogBufferBudget {
 
 	public final static int LONG_LIST_PER_ITEM_OVERHEAD;
 
+	/*
+	 * Approximate size of an entry in a utilint.LongHashMap: a long key slot
+	 * and a value slot, doubled for the free slots kept by the load factor.
+	 */
+	public final static int LONG_HASHMAP_ENTRY_OVERHEAD;
+
+	/*
+	 * Size of an empty utilint.LongHashMap: the object, its two arrays and
+	 * their minimum capacity of 8 slots.
+	 */
+	public final static int LONG_HASHMAP_OVERHEAD;
+
+	/*
+	 * Heap size of an LN cached by tree.OffHeapLNCache: its LongHashMap entry
+	 * and the Entry object holding three ints. The slabs' LSN arrays are
+	 * counted as they grow.
+	 */
+	public final static int OFFHEAP_LN_ENTRY_OVERHEAD;
+
 	private final static String JVM_ARCH_PROPERTY = "sun.arch.data.model";
 
 	private final static String FORCE_JVM_ARCH = "je.forceJVMArch";
@@ -352,6 +371,11 @@ public class MemoryBudget extends LogBufferBudget {
 			LN_INFO_OVERHEAD = LN_INFO_OVERHEAD_32;
 			LONG_LIST_PER_ITEM_OVERHEAD = LONG_LIST_PER_ITEM_OVERHEAD_32;
 		}
+		LONG_HASHMAP_ENTRY_OVERHEAD = 2 * (8 + ARRAY_ITEM_OVERHEAD);
+		LONG_HASHMAP_OVERHEAD = OBJECT_OVERHEAD + 8 + 2 * BYTE_ARRAY_OVERHEAD
+				+ 8 * (8 + ARRAY_ITEM_OVERHEAD);
+		OFFHEAP_LN_ENTRY_OVERHEAD = LONG_HASHMAP_ENTRY_OVERHEAD
+				+ OBJECT_OVERHEAD + 12;
 	}
 
 
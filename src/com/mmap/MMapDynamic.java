@@ -0,0 +1,24 @@
+package com.mmap;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import driver.Driver;
+import driver.Util;
+
+@Aspect
+public class MMapDynamic {
+	@Around("adviceexecution() && within(com.mmap.MMapFeature)")
+	public Object adviceexecutionIdiom(JoinPoint thisJoinPoint,
+			ProceedingJoinPoint pjp) throws Throwable {
+		Object ret;
+		if (Driver.isActivated("mmap")) {
+			ret = pjp.proceed();
+		} else {
+			ret = Util.proceedAroundCallAtAspectJ(thisJoinPoint);
+		}
+		return ret;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.mmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.config.EnvironmentParams;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.log.FileManager;
+
+/**
+ * A FileManager that reads finished log files through read-only memory
+ * mappings. A log file never changes once the log has moved on to the next
+ * file, so it can be mapped once and log entries are returned as slices of the
+ * mapping instead of being read into a new buffer on every fault. The current
+ * log file, and everything that is written, goes through NIO as usual.
+ * 
+ * At most je.log.fileCacheSize files are mapped at a time. A mapping is
+ * dropped when its file is deleted or renamed by the cleaner, or when it is
+ * the least recently used one. The JVM has no call to unmap a file; the
+ * mapping is released when the dropped buffer, and any slice a reader still
+ * holds, is garbage collected, so a reader can never see an unmapped region.
+ */
+public class MMapFileManager extends FileManager {
+
+	/* Long file number -> MappedByteBuffer, iterated in LRU order. */
+	private LinkedHashMap mappedFiles;
+
+	private int maxMappedFiles;
+
+	/* Stats. Not volatile, they are only approximations. */
+	private long nMappedReads;
+
+	private long nMaps;
+
+	public MMapFileManager(EnvironmentImpl envImpl, File dbEnvHome,
+			boolean readOnly) throws DatabaseException {
+		super(envImpl, dbEnvHome, readOnly);
+		maxMappedFiles = envImpl.getConfigManager().getInt(
+				EnvironmentParams.LOG_FILE_CACHE_SIZE);
+		mappedFiles = new LinkedHashMap(maxMappedFiles, 0.75f, true);
+	}
+
+	protected void readFromFile(RandomAccessFile file, ByteBuffer readBuffer,
+			long offset) throws IOException {
+
+		FileChannel channel = file.getChannel();
+
+		/*
+		 * Perform a single read using NIO.
+		 */
+		channel.read(readBuffer, offset);
+	}
+
+	protected int writeToFile(RandomAccessFile file, ByteBuffer data,
+			long destOffset) throws IOException, DatabaseException {
+
+		FileChannel channel = file.getChannel();
+
+		/*
+		 * Perform a single write using NIO.
+		 */
+		return channel.write(data, destOffset);
+	}
+
+	/**
+	 * Return a slice of the mapped file, mapping it first if necessary. The
+	 * slice starts at offset and holds at most numBytes, fewer at the end of
+	 * the file, like a buffer filled by readFromFile.
+	 */
+	protected ByteBuffer getMappedBytes(long fileNum, RandomAccessFile file,
+			long offset, int numBytes) throws IOException {
+
+		/* The current file is still being written. */
+		if (fileNum >= getCurrentFileNum()) {
+			return null;
+		}
+
+		MappedByteBuffer mappedFile = getMappedFile(fileNum, file, offset
+				+ numBytes);
+		if (mappedFile == null || offset >= mappedFile.capacity()) {
+			return null;
+		}
+
+		/* Don't disturb the shared buffer's position and limit. */
+		ByteBuffer slice = mappedFile.duplicate();
+		slice.position((int) offset);
+		slice.limit((int) Math.min(offset + numBytes, mappedFile.capacity()));
+		synchronized (this) {
+			nMappedReads++;
+		}
+		return slice.slice();
+	}
+
+	/**
+	 * @return the mapping of this file, or null if it can't be mapped. A
+	 *         mapping that ends before neededEnd is replaced if the file has
+	 *         grown since, which happens if the file was mapped just after the
+	 *         log moved on but before its last buffer reached the disk.
+	 */
+	private synchronized MappedByteBuffer getMappedFile(long fileNum,
+			RandomAccessFile file, long neededEnd) throws IOException {
+
+		Long fileId = new Long(fileNum);
+		MappedByteBuffer mappedFile = (MappedByteBuffer) mappedFiles
+				.get(fileId);
+		if (mappedFile != null && neededEnd <= mappedFile.capacity()) {
+			return mappedFile;
+		}
+
+		long length = file.length();
+		if (length > Integer.MAX_VALUE) {
+			return null;
+		}
+		if (mappedFile != null && length <= mappedFile.capacity()) {
+			return mappedFile;
+		}
+
+		mappedFile = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+				length);
+		mappedFiles.put(fileId, mappedFile);
+		nMaps++;
+
+		/* Drop the least recently used mappings. */
+		Iterator iter = mappedFiles.keySet().iterator();
+		while (mappedFiles.size() > maxMappedFiles && iter.hasNext()) {
+			iter.next();
+			iter.remove();
+		}
+		return mappedFile;
+	}
+
+	private synchronized void dropMapping(long fileNum) {
+		mappedFiles.remove(new Long(fileNum));
+	}
+
+	public void renameFile(long fileNum, String newSuffix)
+			throws DatabaseException, IOException {
+
+		dropMapping(fileNum);
+		super.renameFile(fileNum, newSuffix);
+	}
+
+	public void deleteFile(long fileNum) throws DatabaseException, IOException {
+
+		dropMapping(fileNum);
+		super.deleteFile(fileNum);
+	}
+
+	public void clear() throws IOException, DatabaseException {
+
+		synchronized (this) {
+			mappedFiles.clear();
+		}
+		super.clear();
+	}
+
+	/**
+	 * @return the number of log entry reads served from a mapping.
+	 */
+	public long getNMappedReads() {
+		return nMappedReads;
+	}
+
+	/**
+	 * @return the number of times a file was mapped.
+	 */
+	public long getNMaps() {
+		return nMaps;
+	}
+
+	/**
+	 * @return the number of files currently mapped.
+	 */
+	public synchronized int getNMappedFiles() {
+		return mappedFiles.size();
+	}
+}
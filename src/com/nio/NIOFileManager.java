@@ -17,8 +17,8 @@ public class NIOFileManager extends FileManager {
 		super(envImpl, dbEnvHome, readOnly);
 	}
 
-	void readFromFile(RandomAccessFile file, ByteBuffer readBuffer, long offset)
-			throws IOException {
+	protected void readFromFile(RandomAccessFile file, ByteBuffer readBuffer,
+			long offset) throws IOException {
 
 		FileChannel channel = file.getChannel();
 
@@ -0,0 +1,335 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.sleepycat.je.dbi.DatabaseImpl;
+import com.sleepycat.je.tree.Key;
+import com.sleepycat.je.tree.TreeBuilder;
+
+/**
+ * Loads records into an empty database much faster than Database.put, by
+ * building the btree bottom-up (see TreeBuilder) instead of inserting one
+ * record at a time.
+ *
+ * Records put in ascending key order are passed straight to the builder.
+ * Otherwise they are collected in memory, and each time the configured sort
+ * memory is used up they are sorted and spilled to a temporary file. close()
+ * merges the files, builds the tree and makes it the database's tree.
+ * Keys must be unique. The database must not be used by anyone else until
+ * close() returns, and must not have secondaries.
+ */
+public class BulkLoader {
+
+	/* Approximate per-record overhead of the sort buffer. */
+	private static final int SORT_RECORD_OVERHEAD = 48;
+
+	private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+	private BulkLoaderConfig config;
+
+	private Comparator keyComparator;
+
+	private TreeBuilder builder;
+
+	/* Unsorted records, as {key, data}, not yet spilled. */
+	private ArrayList sortBuffer;
+
+	private long sortBufferBytes;
+
+	/* Spilled runs, and the number of records in each. */
+	private ArrayList runFiles;
+
+	private ArrayList runSizes;
+
+	private boolean closed;
+
+	BulkLoader(Database db, BulkLoaderConfig config) throws DatabaseException {
+
+		if (db.hasTriggers()) {
+			throw new IllegalArgumentException(
+					"Bulk loading not supported in databases with secondaries");
+		}
+
+		DatabaseImpl dbImpl = db.getDatabaseImpl();
+		this.config = (config != null) ? config : BulkLoaderConfig.DEFAULT;
+		builder = new TreeBuilder(dbImpl);
+
+		if (!this.config.getSortedInput()) {
+			final Comparator comparator = dbImpl.getBtreeComparator();
+			keyComparator = new Comparator() {
+				public int compare(Object o1, Object o2) {
+					byte[] key1 = ((byte[][]) o1)[0];
+					byte[] key2 = ((byte[][]) o2)[0];
+					return Key.compareKeys(key1, key2, comparator);
+				}
+			};
+			sortBuffer = new ArrayList();
+			runFiles = new ArrayList();
+			runSizes = new ArrayList();
+		}
+	}
+
+	/**
+	 * Add a record to the load.
+	 */
+	public void put(DatabaseEntry key, DatabaseEntry data)
+			throws DatabaseException {
+
+		DatabaseUtil.checkForNullDbt(key, "key", true);
+		DatabaseUtil.checkForNullDbt(data, "data", true);
+		DatabaseUtil.checkForPartialKey(key);
+		if (data.getPartial()) {
+			throw new IllegalArgumentException(
+					"A partial data DatabaseEntry is not allowed");
+		}
+		if (closed) {
+			throw new DatabaseException("BulkLoader is closed");
+		}
+
+		byte[] keyBytes = Key.makeKey(key);
+		byte[] dataBytes = Key.makeKey(data);
+		if (sortBuffer == null) {
+			builder.add(keyBytes, dataBytes);
+		} else {
+			sortBuffer.add(new byte[][] { keyBytes, dataBytes });
+			sortBufferBytes += keyBytes.length + dataBytes.length
+					+ SORT_RECORD_OVERHEAD;
+			if (sortBufferBytes >= config.getSortMemory()) {
+				spillRun();
+			}
+		}
+	}
+
+	/**
+	 * Finish the load and make the loaded records the contents of the
+	 * database. The loader can't be used afterwards.
+	 */
+	public void close() throws DatabaseException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			if (sortBuffer != null) {
+				if (runFiles.isEmpty()) {
+					Collections.sort(sortBuffer, keyComparator);
+					for (int i = 0; i < sortBuffer.size(); i += 1) {
+						byte[][] record = (byte[][]) sortBuffer.get(i);
+						builder.add(record[0], record[1]);
+					}
+					sortBuffer.clear();
+				} else {
+					spillRun();
+					mergeRuns();
+				}
+			}
+			builder.finish();
+		} catch (IOException e) {
+			throw new DatabaseException(e);
+		} finally {
+			if (runFiles != null) {
+				for (int i = 0; i < runFiles.size(); i += 1) {
+					((File) runFiles.get(i)).delete();
+				}
+				runFiles.clear();
+			}
+		}
+	}
+
+	/**
+	 * Sort the buffered records and write them to a new run file.
+	 */
+	private void spillRun() throws DatabaseException {
+
+		if (sortBuffer.isEmpty()) {
+			return;
+		}
+		Collections.sort(sortBuffer, keyComparator);
+
+		DataOutputStream out = null;
+		try {
+			File file = File.createTempFile("jeload", ".tmp", config
+					.getTempDirectory());
+			runFiles.add(file);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file), IO_BUFFER_SIZE));
+			for (int i = 0; i < sortBuffer.size(); i += 1) {
+				writeRecord(out, (byte[][]) sortBuffer.get(i));
+			}
+			out.close();
+			out = null;
+		} catch (IOException e) {
+			throw new DatabaseException(e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+		runSizes.add(new Integer(sortBuffer.size()));
+		sortBuffer.clear();
+		sortBufferBytes = 0;
+	}
+
+	/**
+	 * Merge the sorted runs into the builder. At most mergeFanIn runs are
+	 * open at once. While there are more, the oldest mergeFanIn runs are
+	 * merged into a new run at the end of the list, so each record is
+	 * rewritten about log(nRuns) / log(mergeFanIn) times.
+	 */
+	private void mergeRuns() throws DatabaseException, IOException {
+
+		int fanIn = config.getMergeFanIn();
+		while (runFiles.size() > fanIn) {
+			File file = File.createTempFile("jeload", ".tmp", config
+					.getTempDirectory());
+			runFiles.add(file);
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file),
+							IO_BUFFER_SIZE));
+			int nRecords;
+			try {
+				nRecords = mergeRuns(fanIn, out);
+			} finally {
+				out.close();
+			}
+			runSizes.add(new Integer(nRecords));
+			for (int i = 0; i < fanIn; i += 1) {
+				((File) runFiles.remove(0)).delete();
+				runSizes.remove(0);
+			}
+		}
+		mergeRuns(runFiles.size(), null);
+	}
+
+	/**
+	 * Merge the first nRuns runs in key order into out, or into the builder
+	 * if out is null. The runs are kept in a binary heap ordered by their
+	 * head records, so each record costs O(log nRuns) comparisons.
+	 * 
+	 * @return the number of records merged.
+	 */
+	private int mergeRuns(int nRuns, DataOutputStream out)
+			throws DatabaseException, IOException {
+
+		DataInputStream[] inputs = new DataInputStream[nRuns];
+		int[] remaining = new int[nRuns];
+		byte[][][] heads = new byte[nRuns][][];
+		int[] heap = new int[nRuns];
+		int heapSize = 0;
+		int nRecords = 0;
+		try {
+			for (int i = 0; i < nRuns; i += 1) {
+				inputs[i] = new DataInputStream(new BufferedInputStream(
+						new FileInputStream((File) runFiles.get(i)),
+						IO_BUFFER_SIZE));
+				remaining[i] = ((Integer) runSizes.get(i)).intValue();
+				heads[i] = readRecord(inputs[i], remaining, i);
+				if (heads[i] != null) {
+					heap[heapSize++] = i;
+				}
+			}
+			for (int i = heapSize / 2 - 1; i >= 0; i -= 1) {
+				siftDown(heap, heapSize, i, heads);
+			}
+
+			while (heapSize > 0) {
+				int run = heap[0];
+				byte[][] record = heads[run];
+				if (out == null) {
+					builder.add(record[0], record[1]);
+				} else {
+					writeRecord(out, record);
+				}
+				nRecords += 1;
+				heads[run] = readRecord(inputs[run], remaining, run);
+				if (heads[run] == null) {
+					heap[0] = heap[--heapSize];
+				}
+				siftDown(heap, heapSize, 0, heads);
+			}
+		} finally {
+			for (int i = 0; i < nRuns; i += 1) {
+				if (inputs[i] != null) {
+					inputs[i].close();
+				}
+			}
+		}
+		return nRecords;
+	}
+
+	/**
+	 * Move the run at heap[pos] down until its head record is no larger than
+	 * the head records of its children.
+	 */
+	private void siftDown(int[] heap, int heapSize, int pos, byte[][][] heads) {
+
+		if (pos >= heapSize) {
+			return;
+		}
+		int run = heap[pos];
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize
+					&& keyComparator.compare(heads[heap[child + 1]],
+							heads[heap[child]]) < 0) {
+				child += 1;
+			}
+			if (keyComparator.compare(heads[heap[child]], heads[run]) >= 0) {
+				break;
+			}
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = run;
+	}
+
+	private static void writeRecord(DataOutputStream out, byte[][] record)
+			throws IOException {
+
+		out.writeInt(record[0].length);
+		out.write(record[0]);
+		out.writeInt(record[1].length);
+		out.write(record[1]);
+	}
+
+	private static byte[][] readRecord(DataInputStream in, int[] remaining,
+			int run) throws IOException {
+
+		if (remaining[run] == 0) {
+			return null;
+		}
+		remaining[run] -= 1;
+		byte[] key = new byte[in.readInt()];
+		in.readFully(key);
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		return new byte[][] { key, data };
+	}
+}
@@ -0,0 +1,88 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je;
+
+import java.io.File;
+
+/**
+ * Specifies the attributes of a BulkLoader.
+ */
+public class BulkLoaderConfig {
+
+	public static final BulkLoaderConfig DEFAULT = new BulkLoaderConfig();
+
+	/* Parameters */
+	private long sortMemory = 16 * 1024 * 1024;
+
+	private File tempDirectory = null;
+
+	private int mergeFanIn = 64;
+
+	/* Flags */
+	private boolean sortedInput;
+
+	public BulkLoaderConfig() {
+	}
+
+	/**
+	 * Configure whether records are put in ascending key order. Sorted input
+	 * is loaded directly; otherwise it is sorted first.
+	 */
+	public void setSortedInput(boolean sortedInput) {
+		this.sortedInput = sortedInput;
+	}
+
+	public boolean getSortedInput() {
+		return sortedInput;
+	}
+
+	/**
+	 * Configure the number of bytes of unsorted records held in memory. When
+	 * more are put, they are sorted and spilled to a temporary file, and the
+	 * files are merged when the loader is closed.
+	 */
+	public void setSortMemory(long sortMemory) {
+		this.sortMemory = sortMemory;
+	}
+
+	public long getSortMemory() {
+		return sortMemory;
+	}
+
+	/**
+	 * Configure the directory for the temporary files of the sort, or null to
+	 * use the default temporary directory.
+	 */
+	public void setTempDirectory(File tempDirectory) {
+		this.tempDirectory = tempDirectory;
+	}
+
+	public File getTempDirectory() {
+		return tempDirectory;
+	}
+
+	/**
+	 * Configure the largest number of temporary files merged at once. When
+	 * the sort spilled more files, they are merged in several passes.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if mergeFanIn is less than 2.
+	 */
+	public void setMergeFanIn(int mergeFanIn) {
+		if (mergeFanIn < 2) {
+			throw new IllegalArgumentException("mergeFanIn must be at least 2");
+		}
+		this.mergeFanIn = mergeFanIn;
+	}
+
+	public int getMergeFanIn() {
+		return mergeFanIn;
+	}
+}
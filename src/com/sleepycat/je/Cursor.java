@@ -420,6 +420,53 @@ public class Cursor {
 		}
 	}
 
+	/**
+	 * Moves the cursor forward and packs as many of the following records as
+	 * fit into the buffer, which is cleared first. Records in the current BIN
+	 * are read directly, without the per-record setup of getNext; only the
+	 * first record of each BIN goes through the getNext path. Each record is
+	 * locked as getNext would lock it.
+	 * 
+	 * The cursor is left on the last record packed. The records are unpacked
+	 * with MultipleKeyDataEntry.next.
+	 * 
+	 * @return SUCCESS if at least one record was packed, or NOTFOUND if there
+	 *         are no more records.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the next record alone doesn't fit in the buffer. The
+	 *             cursor is not moved.
+	 */
+	public OperationStatus getNextBulk(MultipleKeyDataEntry buffer,
+			LockMode lockMode) throws DatabaseException {
+
+		checkState(false);
+		DatabaseUtil.checkForNullDbt(buffer, "buffer", true);
+		// refined trace:
+		// trace(Level.FINEST, "Cursor.getNextBulk: ", lockMode);
+
+		buffer.clear();
+		LockType lockType = getLockType(lockMode,
+				isSerializableIsolation(lockMode));
+		while (true) {
+			OperationStatus status = retrieveNextBulk(buffer, lockMode);
+			if (status == OperationStatus.KEYEMPTY) {
+				if (buffer.getRecordCount() == 0) {
+					throw new IllegalArgumentException("Buffer of "
+							+ buffer.getCapacity()
+							+ " bytes is too small for the next record");
+				}
+				return OperationStatus.SUCCESS;
+			} else if (status != OperationStatus.SUCCESS) {
+				return (buffer.getRecordCount() > 0) ? OperationStatus.SUCCESS
+						: status;
+			}
+
+			/* Take the rest of this BIN in one pass. */
+			cursorImpl.getNextInBINBulk(buffer, lockType);
+		}
+	}
+
 	/**
 	 * Javadoc for this public method is generated via the doc templates in the
 	 * doc_src directory.
@@ -1477,6 +1524,72 @@ public class Cursor {
 		return status;
 	}
 
+	/**
+	 * Moves to the next record and packs it into the buffer, preventing
+	 * phantoms as retrieveNext does. The move is made on a duplicate cursor
+	 * and kept only if the record fits, so the cursor stays on the last record
+	 * packed.
+	 * 
+	 * @return SUCCESS if a record was packed, NOTFOUND if there are no more
+	 *         records, or KEYEMPTY if the next record doesn't fit.
+	 */
+	private OperationStatus retrieveNextBulk(MultipleKeyDataEntry buffer,
+			LockMode lockMode) throws DatabaseException {
+
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+
+		if (cursorImpl.isNotInitialized()) {
+			OperationStatus status = position(key, data, lockMode, true);
+			if (status == OperationStatus.SUCCESS
+					&& !buffer.append(key.getData(), data.getData())) {
+				/* Back to the uninitialized state we started from. */
+				cursorImpl.reset();
+				return OperationStatus.KEYEMPTY;
+			}
+			return status;
+		}
+
+		boolean rangeLocking = isSerializableIsolation(lockMode);
+		LockType lockType = getLockType(lockMode, rangeLocking);
+		while (true) {
+			hook_assertNoLatches();
+			CursorImpl dup = beginRead(true);
+			OperationStatus status;
+			try {
+				status = dup.getNext(key, data, lockType, true/* Lck, false */);
+			} catch (RangeRestartException e) {
+				endRead(dup, false);
+				continue;
+			} catch (DatabaseException DBE) {
+				endRead(dup, false);
+				throw DBE;
+			}
+
+			if (checkForInsertion(GetMode.NEXT, cursorImpl, dup)) {
+				endRead(dup, false);
+				continue;
+			}
+			if (status == OperationStatus.SUCCESS
+					&& !buffer.append(key.getData(), data.getData())) {
+				endRead(dup, false);
+				return OperationStatus.KEYEMPTY;
+			}
+			endRead(dup, status == OperationStatus.SUCCESS);
+			hook_assertNoLatches();
+
+			if (rangeLocking && status != OperationStatus.SUCCESS) {
+				/* Lock the EOF node, as retrieveNext does. */
+				try {
+					cursorImpl.lockEofNode(LockType.RANGE_READ);
+				} catch (RangeRestartException e) {
+					continue;
+				}
+			}
+			return status;
+		}
+	}
+
 	/**
 	 * Returns the current key and data. There is no need to prevent phantoms.
 	 */
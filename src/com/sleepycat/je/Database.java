@@ -267,6 +267,19 @@ public class Database {
 		delete(cxt, key);
 	}
 
+	/**
+	 * Open a loader that fills this empty database bottom-up, see BulkLoader.
+	 */
+	public BulkLoader openBulkLoader(BulkLoaderConfig config)
+			throws DatabaseException {
+
+		checkEnv();
+		checkRequiredDbState(OPEN, "Can't call Database.openBulkLoader:");
+		checkWritable("openBulkLoader");
+
+		return new BulkLoader(this, config);
+	}
+
 	public synchronized Cursor openCursor(OperationContext cxt, 
 	CursorConfig cursorConfig) throws DatabaseException {
 
@@ -0,0 +1,156 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je;
+
+import com.sleepycat.je.tree.IN;
+
+/**
+ * A DatabaseEntry that holds many key/data pairs packed into one caller
+ * supplied byte array, as filled by Cursor.getNextBulk.
+ *
+ * Each record is packed as a 4 byte key length, the key bytes, a 4 byte data
+ * length and the data bytes. The entry's size is the number of bytes packed
+ * so far. Records are unpacked with next(), which sets the given entries to
+ * point into this buffer rather than copying, so they are only valid until
+ * the buffer is filled again.
+ */
+public class MultipleKeyDataEntry extends DatabaseEntry {
+
+	/* Size of the length that precedes each key and each data item. */
+	private static final int LENGTH_SIZE = 4;
+
+	/* Number of records packed since the last clear. */
+	private int nRecords;
+
+	/* Position of the next record to be returned by next(). */
+	private int readOffset;
+
+	public MultipleKeyDataEntry(byte[] buffer) {
+		super(buffer);
+		clear();
+	}
+
+	/**
+	 * Empty the buffer, so that it can be filled again.
+	 */
+	public void clear() {
+		setSize(0);
+		nRecords = 0;
+		readOffset = 0;
+	}
+
+	/**
+	 * Restart next() at the first record in the buffer.
+	 */
+	public void reset() {
+		readOffset = 0;
+	}
+
+	/**
+	 * @return the number of records in the buffer.
+	 */
+	public int getRecordCount() {
+		return nRecords;
+	}
+
+	/**
+	 * @return the number of bytes available for packed records.
+	 */
+	public int getCapacity() {
+		byte[] buffer = getData();
+		return (buffer == null) ? 0 : buffer.length - getOffset();
+	}
+
+	/**
+	 * Pack a record at the end of the buffer. Called by the cursor that fills
+	 * the buffer.
+	 *
+	 * @return false, leaving the buffer unchanged, if the record doesn't fit.
+	 */
+	public boolean append(byte[] key, byte[] data) {
+		int used = getSize();
+		int recordSize = LENGTH_SIZE + key.length + LENGTH_SIZE + data.length;
+		if (recordSize > getCapacity() - used) {
+			return false;
+		}
+		byte[] buffer = getData();
+		int pos = getOffset() + used;
+		pos = writeItem(buffer, pos, key);
+		writeItem(buffer, pos, data);
+		setSize(used + recordSize);
+		nRecords++;
+		return true;
+	}
+
+	/**
+	 * Pack a record whose key is the keyIndex'th key of a node. The key is
+	 * copied from the node's prefix and suffix straight into the buffer.
+	 * Called by the cursor that fills the buffer.
+	 *
+	 * @return false, leaving the buffer unchanged, if the record doesn't fit.
+	 */
+	public boolean append(IN keyNode, int keyIndex, byte[] data) {
+		int keyLength = keyNode.getKeyLength(keyIndex);
+		int used = getSize();
+		int recordSize = LENGTH_SIZE + keyLength + LENGTH_SIZE + data.length;
+		if (recordSize > getCapacity() - used) {
+			return false;
+		}
+		byte[] buffer = getData();
+		int pos = writeLength(buffer, getOffset() + used, keyLength);
+		keyNode.copyKey(keyIndex, 0, buffer, pos, keyLength);
+		writeItem(buffer, pos + keyLength, data);
+		setSize(used + recordSize);
+		nRecords++;
+		return true;
+	}
+
+	/**
+	 * Unpack the next record. The key and data entries are set to refer to
+	 * this buffer.
+	 *
+	 * @return false if there are no more records in the buffer.
+	 */
+	public boolean next(DatabaseEntry key, DatabaseEntry data) {
+		if (readOffset >= getSize()) {
+			return false;
+		}
+		byte[] buffer = getData();
+		int pos = getOffset() + readOffset;
+		pos = readItem(buffer, pos, key);
+		pos = readItem(buffer, pos, data);
+		readOffset = pos - getOffset();
+		return true;
+	}
+
+	private static int writeItem(byte[] buffer, int pos, byte[] item) {
+		int len = item.length;
+		pos = writeLength(buffer, pos, len);
+		System.arraycopy(item, 0, buffer, pos, len);
+		return pos + len;
+	}
+
+	private static int writeLength(byte[] buffer, int pos, int len) {
+		buffer[pos++] = (byte) (len >>> 24);
+		buffer[pos++] = (byte) (len >>> 16);
+		buffer[pos++] = (byte) (len >>> 8);
+		buffer[pos++] = (byte) len;
+		return pos;
+	}
+
+	private static int readItem(byte[] buffer, int pos, DatabaseEntry entry) {
+		int len = ((buffer[pos] & 0xff) << 24)
+				| ((buffer[pos + 1] & 0xff) << 16)
+				| ((buffer[pos + 2] & 0xff) << 8) | (buffer[pos + 3] & 0xff);
+		pos += LENGTH_SIZE;
+		entry.setData(buffer, pos, len);
+		return pos + len;
+	}
+}
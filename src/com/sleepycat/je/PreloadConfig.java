@@ -26,6 +26,8 @@ public class PreloadConfig implements Cloneable {
 
 	private boolean loadLNs;
 
+	private int nThreads = 1;
+
 	/**
 	 * Javadoc for this public method is generated via the doc templates in the
 	 * doc_src directory.
@@ -68,6 +70,26 @@ public class PreloadConfig implements Cloneable {
 		return loadLNs;
 	}
 
+	/**
+	 * Javadoc for this public method is generated via the doc templates in the
+	 * doc_src directory.
+	 */
+	public void setNThreads(int nThreads) {
+		if (nThreads < 1) {
+			throw new IllegalArgumentException(
+					"nThreads parameter to PreloadConfig must be at least 1");
+		}
+		this.nThreads = nThreads;
+	}
+
+	/**
+	 * Javadoc for this public method is generated via the doc templates in the
+	 * doc_src directory.
+	 */
+	public int getNThreads() {
+		return nThreads;
+	}
+
 	/**
 	 * Used by Database to create a copy of the application supplied
 	 * configuration. Done this way to provide non-public cloning.
@@ -3,6 +3,12 @@ package com.sleepycat.je;
 public class PreloadResult {
 	private PreloadStatus status=PreloadStatus.SUCCESS;
 
+	private long nINsLoaded;
+
+	private long nLNsLoaded;
+
+	private long elapsedMillis;
+
 	public PreloadStatus getStatus() {
 		return status;
 	}
@@ -10,4 +16,37 @@ public class PreloadResult {
 	public void setStatus(PreloadStatus status) {
 		this.status = status;
 	}
+
+	/**
+	 * @return the number of INs, including BINs, fetched into the cache.
+	 */
+	public long getNINsLoaded() {
+		return nINsLoaded;
+	}
+
+	public void setNINsLoaded(long nINsLoaded) {
+		this.nINsLoaded = nINsLoaded;
+	}
+
+	/**
+	 * @return the number of LNs fetched into the cache.
+	 */
+	public long getNLNsLoaded() {
+		return nLNsLoaded;
+	}
+
+	public void setNLNsLoaded(long nLNsLoaded) {
+		this.nLNsLoaded = nLNsLoaded;
+	}
+
+	/**
+	 * @return the duration of the preload, in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
 }
@@ -140,6 +140,16 @@ public class SecondaryCursor extends Cursor {
 		throw SecondaryDatabase.notAllowedException();
 	}
 
+	/**
+	 * Bulk reads would return primary keys rather than records, so they are
+	 * not supported on a secondary.
+	 */
+	public OperationStatus getNextBulk(MultipleKeyDataEntry buffer,
+			LockMode lockMode) throws DatabaseException {
+
+		throw SecondaryDatabase.notAllowedException();
+	}
+
 	/**
 	 * Javadoc for this public method is generated via the doc templates in the
 	 * doc_src directory.
@@ -101,6 +101,8 @@ public class Cleaner implements EnvConfigObserver {
 
 	boolean trackDetail;
 
+	int nThreads;
+
 	/**
 	 * All files that are to-be-cleaning or being-cleaned. Used to perform
 	 * proactive migration. Is read-only after assignment, so no synchronization
@@ -129,6 +131,18 @@ public class Cleaner implements EnvConfigObserver {
 
 	private Object deleteFileLock;
 
+	/*
+	 * Serializes file selection among cleaner threads, since
+	 * FileSelector.selectFileForCleaning is not thread safe.
+	 */
+	Object selectFileLock;
+
+	/* Serializes processing of the pending LN set. */
+	private Object pendingLock;
+
+	/* One processor per cleaner thread; grows with je.cleaner.threads. */
+	private FileProcessor[] processors;
+
 	public Cleaner(EnvironmentImpl env, String name) throws DatabaseException {
 
 		this.env = env;
@@ -137,6 +151,9 @@ public class Cleaner implements EnvConfigObserver {
 		profile = new UtilizationProfile(env, tracker);
 		fileSelector = new FileSelector();
 		deleteFileLock = new Object();
+		selectFileLock = new Object();
+		pendingLock = new Object();
+		processors = new FileProcessor[0];
 
 		/*
 		 * The trackDetail property is immutable because of the complexity (if
@@ -188,6 +205,8 @@ public class Cleaner implements EnvConfigObserver {
 		if (cleanerBytesInterval == 0) {
 			cleanerBytesInterval = cm.getLong(EnvironmentParams.LOG_FILE_MAX) / 4;
 		}
+
+		nThreads = cm.getInt(EnvironmentParams.CLEANER_THREADS);
 	}
 
 	public UtilizationTracker getUtilizationTracker() {
@@ -216,10 +235,122 @@ public class Cleaner implements EnvConfigObserver {
 	public int doClean(boolean cleanMultipleFiles, boolean forceCleaning)
 			throws DatabaseException {
 
-		FileProcessor processor = new FileProcessor("", env, this, profile,
-				fileSelector);
-		return processor.doClean(false /* invokedFromDaemon */,
-				cleanMultipleFiles, forceCleaning);
+		/*
+		 * When cleaning multiple files, je.cleaner.threads processors clean
+		 * in parallel. Each takes distinct files from the to-be-cleaned set;
+		 * the calling thread runs the first processor.
+		 */
+		int nWorkers = cleanMultipleFiles ? Math.max(nThreads, 1) : 1;
+		FileProcessor[] workers = getFileProcessors(nWorkers);
+		if (nWorkers == 1) {
+			return workers[0].doClean(false /* invokedFromDaemon */,
+					cleanMultipleFiles, forceCleaning);
+		}
+
+		WorkerThread[] threads = new WorkerThread[nWorkers - 1];
+		for (int i = 0; i < threads.length; i += 1) {
+			threads[i] = new WorkerThread(workers[i + 1], forceCleaning);
+			threads[i].start();
+		}
+
+		int nFilesCleaned = 0;
+		Throwable error = null;
+		try {
+			nFilesCleaned = workers[0].doClean(false /* invokedFromDaemon */,
+					true /* cleanMultipleFiles */, forceCleaning);
+		} catch (Throwable e) {
+			error = e;
+		}
+
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i += 1) {
+			while (threads[i].isAlive()) {
+				try {
+					threads[i].join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			nFilesCleaned += threads[i].nFilesCleaned;
+			if (error == null) {
+				error = threads[i].error;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (error instanceof DatabaseException) {
+			throw (DatabaseException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw new DatabaseException(error);
+		}
+		return nFilesCleaned;
+	}
+
+	/**
+	 * Returns the first n file processors, creating them as needed. The
+	 * processors are kept so that their stats accumulate.
+	 */
+	private synchronized FileProcessor[] getFileProcessors(int n) {
+
+		if (processors.length < n) {
+			FileProcessor[] newProcessors = new FileProcessor[n];
+			System.arraycopy(processors, 0, newProcessors, 0,
+					processors.length);
+			for (int i = processors.length; i < n; i += 1) {
+				newProcessors[i] = new FileProcessor(name + "-" + (i + 1),
+						env, this, profile, fileSelector);
+			}
+			processors = newProcessors;
+		}
+		FileProcessor[] ret = new FileProcessor[n];
+		System.arraycopy(processors, 0, ret, 0, n);
+		return ret;
+	}
+
+	/**
+	 * Returns all file processors created so far, for per-thread cleaning
+	 * stats.
+	 */
+	public synchronized FileProcessor[] getFileProcessors() {
+
+		FileProcessor[] ret = new FileProcessor[processors.length];
+		System.arraycopy(processors, 0, ret, 0, processors.length);
+		return ret;
+	}
+
+	/**
+	 * Runs one additional file processor during doClean.
+	 */
+	private static class WorkerThread extends Thread {
+
+		private FileProcessor processor;
+
+		private boolean forceCleaning;
+
+		int nFilesCleaned;
+
+		Throwable error;
+
+		WorkerThread(FileProcessor processor, boolean forceCleaning) {
+			super(processor.getName());
+			this.processor = processor;
+			this.forceCleaning = forceCleaning;
+		}
+
+		public void run() {
+			try {
+				nFilesCleaned = processor.doClean(false /* invokedFromDaemon */,
+						true /* cleanMultipleFiles */, forceCleaning);
+			} catch (Throwable e) {
+				error = e;
+			}
+		}
 	}
 
 	/**
@@ -379,24 +510,29 @@ public class Cleaner implements EnvConfigObserver {
 
 		DbTree dbMapTree = env.getDbMapTree();
 
-		LNInfo[] pendingLNs = fileSelector.getPendingLNs();
-		if (pendingLNs != null) {
-			TreeLocation location = new TreeLocation();
+		/*
+		 * Cleaner threads and the checkpointer all process pending LNs. Only
+		 * one at a time, so that an LN is not migrated twice.
+		 */
+		synchronized (pendingLock) {
+			LNInfo[] pendingLNs = fileSelector.getPendingLNs();
+			if (pendingLNs != null) {
+				TreeLocation location = new TreeLocation();
 
-			for (int i = 0; i < pendingLNs.length; i += 1) {
-				LNInfo info = pendingLNs[i];
+				for (int i = 0; i < pendingLNs.length; i += 1) {
+					LNInfo info = pendingLNs[i];
 
-				DatabaseId dbId = info.getDbId();
-				DatabaseImpl db = dbMapTree.getDb(dbId, lockTimeout);
+					DatabaseId dbId = info.getDbId();
+					DatabaseImpl db = dbMapTree.getDb(dbId, lockTimeout);
 
-				byte[] key = info.getKey();
-				byte[] dupKey = info.getDupKey();
-				LN ln = info.getLN();
+					byte[] key = info.getKey();
+					byte[] dupKey = info.getDupKey();
+					LN ln = info.getLN();
 
-				processPendingLN(ln, db, key, dupKey, location);
+					processPendingLN(ln, db, key, dupKey, location);
+				}
 			}
 		}
-
 	}
 
 	/**
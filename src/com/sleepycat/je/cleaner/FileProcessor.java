@@ -10,9 +10,13 @@
 package com.sleepycat.je.cleaner;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -79,6 +83,15 @@ public class FileProcessor {
 
 	private String name;
 
+	/* Stats */
+	private int nFilesCleaned;
+
+	private long nEntriesRead;
+
+	private long cleanMillis;
+
+	private long nBINsFetchedSorted;
+
 	FileProcessor(String name, EnvironmentImpl env, Cleaner cleaner,
 			UtilizationProfile profile, FileSelector fileSelector) {
 		this.env = env;
@@ -88,6 +101,41 @@ public class FileProcessor {
 		this.profile = profile;
 	}
 
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of files this processor has cleaned.
+	 */
+	public int getNFilesCleaned() {
+		return nFilesCleaned;
+	}
+
+	/**
+	 * @return the number of log entries this processor has read.
+	 */
+	public long getNEntriesRead() {
+		return nEntriesRead;
+	}
+
+	/**
+	 * @return the time this processor has spent cleaning files, in
+	 *         milliseconds. Together with getNEntriesRead this gives the
+	 *         processor's throughput.
+	 */
+	public long getCleanMillis() {
+		return cleanMillis;
+	}
+
+	/**
+	 * @return the number of BINs this processor has fetched in LSN order on
+	 *         behalf of a batch of LNs, see fetchParentBINs.
+	 */
+	public long getNBINsFetchedSorted() {
+		return nBINsFetchedSorted;
+	}
+
 	public void clearEnv() {
 		env = null;
 		cleaner = null;
@@ -150,11 +198,14 @@ public class FileProcessor {
 			boolean needLowUtilizationSet = cleaner.clusterResident
 					|| cleaner.clusterAll;
 
-			Long fileNum = fileSelector
-					.selectFileForCleaning(profile, forceCleaning,
-							needLowUtilizationSet, cleaner.maxBatchFiles);
+			Long fileNum;
+			synchronized (cleaner.selectFileLock) {
+				fileNum = fileSelector.selectFileForCleaning(profile,
+						forceCleaning, needLowUtilizationSet,
+						cleaner.maxBatchFiles);
 
-			cleaner.updateReadOnlyFileCollections();
+				cleaner.updateReadOnlyFileCollections();
+			}
 
 			/*
 			 * If no file was selected, the total utilization is under the
@@ -187,6 +238,7 @@ public class FileProcessor {
 		boolean finished = false;
 		long fileNumValue = fileNum.longValue();
 		int runId = ++lastId;
+		long startTime = System.currentTimeMillis();
 		try {
 
 			String traceMsg = hook_getBeginTraceMenssage(runId, fileNumValue);
@@ -202,6 +254,7 @@ public class FileProcessor {
 				fileSelector.addCleanedFile(fileNum);
 
 				finished = true;
+				nFilesCleaned++;
 			}
 		} catch (IOException IOE) {
 			// refined trace Tracer.trace(env, "Cleaner", "doClean", "",
@@ -211,6 +264,7 @@ public class FileProcessor {
 			if (!finished) {
 				fileSelector.putBackFileForCleaning(fileNum);
 			}
+			cleanMillis += System.currentTimeMillis() - startTime;
 			String traceMsg = getEndTraceMenssage(runId, fileNumValue,
 					invokedFromDaemon, finished);
 			// refined trace Tracer.trace(Level.SEVERE, env, traceMsg);
@@ -319,6 +373,7 @@ public class FileProcessor {
 			}
 
 			/* Update reader stats. */
+			nEntriesRead += reader.getNumRead();
 			hook_finishedReading(reader);
 
 		} finally {
@@ -557,6 +612,127 @@ public class FileProcessor {
 		}
 	}
 
+	/**
+	 * Fetches the non-resident parent BINs of a batch of LNs in LSN order,
+	 * before the LNs are processed. Processing the LNs one at a time would
+	 * fetch each BIN with a random read when it is needed; sorting the LSNs
+	 * turns this into a sweep through the log files. The INs above the BINs
+	 * are fetched as usual, since they are normally resident.
+	 * 
+	 * This is only an optimization: a BIN that can't be fetched here, because
+	 * its parent changed in the meantime, is fetched by processLN.
+	 * 
+	 * @param infos
+	 *            iterates over the LNInfos of the batch.
+	 */
+	// changed to public
+	public void fetchParentBINs(Iterator infos, Map dbCache)
+			throws DatabaseException {
+
+		DbTree dbMapTree = env.getDbMapTree();
+		List fetches = new ArrayList();
+		while (infos.hasNext()) {
+			LNInfo info = (LNInfo) infos.next();
+			DatabaseImpl db = dbMapTree.getDbCaching(info.getDbId(),
+					cleaner.lockTimeout, dbCache);
+			if (db == null || db.getTree() == null) {
+				continue;
+			}
+			SearchResult result = db.getTree().searchBINParent(info.getKey(),
+					Cleaner.UPDATE_GENERATION);
+			if (result != null && result.childNotResident) {
+				long lsn = result.parent.getLsn(result.index);
+				if (lsn != DbLsn.NULL_LSN) {
+					fetches.add(new BINFetch(result.parent, result.index, lsn));
+				}
+			}
+		}
+
+		Collections.sort(fetches, new BINFetchComparator());
+
+		long lastLsn = DbLsn.NULL_LSN;
+		for (int i = 0; i < fetches.size(); i += 1) {
+			BINFetch fetch = (BINFetch) fetches.get(i);
+
+			/* LNs in the same BIN yield the same LSN. */
+			if (fetch.lsn == lastLsn) {
+				continue;
+			}
+			lastLsn = fetch.lsn;
+
+			/*
+			 * The slot is still the BIN's if it has the same LSN. Splits may
+			 * have moved it to another index, in which case it is skipped.
+			 */
+			IN parent = fetch.parent;
+			int parentVersion = parent.getVersion();
+			if (!isUnfetchedSlot(parent, fetch)
+					|| !parent.validateVersion(parentVersion)) {
+				continue;
+			}
+
+			/*
+			 * Read the BIN without writing the parent, so that readers of the
+			 * parent don't wait for the read, as Tree.fetchChildOptimistic
+			 * does. Then install it only if the parent is unchanged. A BIN
+			 * that can't be read here is left to processLN.
+			 */
+			IN bin;
+			try {
+				bin = (IN) env.getLogManager().get(fetch.lsn);
+			} catch (DatabaseException e) {
+				continue;
+			}
+			if (!parent.beginWrite(parentVersion)) {
+				continue;
+			}
+			try {
+				if (!isUnfetchedSlot(parent, fetch)) {
+					continue;
+				}
+				bin.postFetchInit(parent.getDatabase(), fetch.lsn);
+				parent.updateEntry(fetch.index, bin);
+			} finally {
+				parent.endWrite();
+			}
+			bin.setGeneration();
+			nBINsFetchedSorted++;
+		}
+	}
+
+	/**
+	 * @return true if the slot of a BINFetch still refers to its
+	 *         non-resident BIN.
+	 */
+	private boolean isUnfetchedSlot(IN parent, BINFetch fetch) {
+		return fetch.index < parent.getNEntries()
+				&& parent.getLsn(fetch.index) == fetch.lsn
+				&& parent.getTarget(fetch.index) == null;
+	}
+
+	/**
+	 * The slot of a non-resident BIN found by fetchParentBINs.
+	 */
+	private static class BINFetch {
+		IN parent;
+
+		int index;
+
+		long lsn;
+
+		BINFetch(IN parent, int index, long lsn) {
+			this.parent = parent;
+			this.index = index;
+			this.lsn = lsn;
+		}
+	}
+
+	private static class BINFetchComparator implements Comparator {
+		public int compare(Object o1, Object o2) {
+			return DbLsn.compareTo(((BINFetch) o1).lsn, ((BINFetch) o2).lsn);
+		}
+	}
+
 	private void hook_entryIsKnownDeleted() {
 		// TODO Auto-generated method stub
 
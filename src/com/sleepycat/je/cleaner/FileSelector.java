@@ -136,8 +136,8 @@ public class FileSelector {
 
 	/**
 	 * Returns the best file that qualifies for cleaning, or null if no file
-	 * qualifies. This method is not thread safe and should only be called from
-	 * the cleaner thread.
+	 * qualifies. This method is not thread safe; cleaner threads call it
+	 * under Cleaner.selectFileLock.
 	 * 
 	 * @param forceCleaning
 	 *            is true to always select a file, even if its utilization is
@@ -194,10 +194,13 @@ public class FileSelector {
 		/*
 		 * Select the cheapest file to clean from a copy of the to-be-cleaned
 		 * set. Then move the file from the to-be-cleaned set to the
-		 * being-cleaned set.
+		 * being-cleaned set, so that no other cleaner thread takes it.
 		 */
 		SortedSet availableFiles;
 		synchronized (this) {
+			if (toBeCleanedFiles.isEmpty()) {
+				return null;
+			}
 			availableFiles = new TreeSet(toBeCleanedFiles);
 		}
 		Long file = profile.getCheapestFileToClean(availableFiles);
@@ -61,6 +61,17 @@ public class EnvironmentParams {
 					+ "# Setting je.maxMemory to an non-zero value will override\n"
 					+ "# je.maxMemoryPercent");
 
+	public static final LongConfigParam OFFHEAP_CACHE_SIZE = new LongConfigParam(
+			"je.offHeapCacheSize",
+			new Long(0), // min
+			null, // max
+			new Long(0), // default
+			false, // mutable
+			"# The size in bytes of a second level cache for LNs evicted from the\n"
+					+ "# cache, kept in direct buffers outside the Java heap. It is not\n"
+					+ "# part of je.maxMemory. Fetching an evicted LN from it avoids a\n"
+					+ "# log read. The default, 0, disables it.");
+
 	public static final BooleanConfigParam ENV_RECOVERY = new BooleanConfigParam(
 			"je.env.recovery", true, // default
 			false,// mutable
@@ -73,6 +84,32 @@ public class EnvironmentParams {
 			"# If true, a checkpoint is forced following recovery, even if the\n"
 					+ "# log ends with a checkpoint.");
 
+	public static final IntConfigParam ENV_RECOVERY_THREADS = new IntConfigParam(
+			"je.env.recoveryThreads", new Integer(1), // min
+			null, // max
+			new Integer(1), // default
+			false, // mutable
+			"# The number of threads used by recovery to undo and redo LNs.\n"
+					+ "# LNs are partitioned among the threads by database, so more\n"
+					+ "# threads only help when many databases were written since the\n"
+					+ "# last checkpoint. The default is 1.");
+
+	public static final BooleanConfigParam ENV_HOT_SET_SNAPSHOT = new BooleanConfigParam(
+			"je.env.hotSetSnapshot", false, // default
+			false, // mutable
+			"# If true, checkpoints save the set of INs in the cache to the\n"
+					+ "# je.hotset file in the environment home, and opening the\n"
+					+ "# environment fetches them back into the cache after recovery.");
+
+	public static final LongConfigParam ENV_HOT_SET_INTERVAL = new LongConfigParam(
+			"je.env.hotSetInterval", new Long(0), // min
+			null, // max
+			new Long(300000000), // default
+			false, // mutable
+			"# The minimum time between two saves of the hot set snapshot,\n"
+					+ "# in microseconds. The snapshot is always saved by the\n"
+					+ "# checkpoint at close. The default is 5 minutes.");
+
 	public static final BooleanConfigParam ENV_RUN_INCOMPRESSOR = new BooleanConfigParam(
 			"je.env.runINCompressor", true, // default
 			true, // mutable
@@ -89,6 +126,19 @@ public class EnvironmentParams {
 
 
 
+	public static final BooleanConfigParam ENV_RUN_CHECKPOINTER = new BooleanConfigParam(
+			"je.env.runCheckpointer", true, // default
+			true, // mutable
+			"# If true, starts up the checkpointer.\n"
+					+ "# This parameter is true by default");
+
+	public static final BooleanConfigParam ENV_RUN_LOG_WRITER = new BooleanConfigParam(
+			"je.env.runLogWriter", true, // default
+			true, // mutable
+			"# If true, starts up the log writer, which writes full log buffers\n"
+					+ "# to the log file in the background.\n"
+					+ "# This parameter is true by default");
+
 	public static final BooleanConfigParam ENV_FORCED_YIELD = new BooleanConfigParam(
 			"je.env.forcedYield", false, // default
 			false,// mutable
@@ -171,6 +221,24 @@ public class EnvironmentParams {
 					+ "# when scanning the log during activities like log cleaning\n"
 					+ "# and environment open, in bytes.");
 
+	public static final BooleanConfigParam LOG_ITERATOR_READ_AHEAD = new BooleanConfigParam(
+			"je.log.iteratorReadAhead", true, // default
+			false, // mutable
+			"# If true, log iterators that scan the log forward, such as\n"
+					+ "# recovery and the cleaner, read the next chunk of a log file in\n"
+					+ "# a background thread while parsing the current one.");
+
+	public static final IntConfigParam LOG_ITERATOR_READ_AHEAD_SIZE = new IntConfigParam(
+			"je.log.iteratorReadAheadSize",
+			new Integer(128), // min
+			null, // max
+			new Integer(262144), // default
+			false, // mutable
+			"# The size of the chunks read ahead by log iterators, in bytes.\n"
+					+ "# The first chunk is read with je.log.iteratorReadSize, so short\n"
+					+ "# scans don't read more than they used to. Limited by\n"
+					+ "# je.log.iteratorMaxSize.");
+
 	public static final LongConfigParam LOG_FILE_MAX = new LongConfigParam(
 			"je.log.fileMax", new Long(1000000), // min
 			new Long(4294967296L), // max
@@ -179,6 +247,15 @@ public class EnvironmentParams {
 			"# The maximum size of each individual JE log file, in bytes.");
 
 
+	public static final IntConfigParam LOG_FILE_CACHE_SIZE = new IntConfigParam(
+			"je.log.fileCacheSize", new Integer(3), // min
+			null, // max
+			new Integer(100), // default
+			false, // mutable
+			"# The size of the file handle cache, in number of open read-only\n"
+					+ "# log files. Handles in use by a reader are never closed, so the\n"
+					+ "# cache may briefly exceed this size.");
+
 	public static final BooleanConfigParam LOG_MEMORY_ONLY = new BooleanConfigParam(
 			"je.log.memOnly",
 			false, // default
@@ -198,6 +275,14 @@ public class EnvironmentParams {
 
 
 
+	public static final LongConfigParam LOG_WRITER_WAKEUP_INTERVAL = new LongConfigParam(
+			"je.log.writerWakeupInterval", new Long(1000L), // min
+			new Long(4294967296L), // max
+			new Long(10000L), // default
+			false, // mutable
+			"# The longest time the log writer sleeps without being notified\n"
+					+ "# of a full log buffer, in microseconds.");
+
 	/*
 	 * Tree
 	 */
@@ -234,6 +319,14 @@ public class EnvironmentParams {
 			"# If less than this percentage of entries are changed on a BIN,\n"
 					+ "# logs a delta instead of a full version.");
 
+	public static final BooleanConfigParam TREE_COMPACT_KEYS = new BooleanConfigParam(
+			"je.tree.compactKeys", false, // default
+			false, // mutable
+			"# If true, the keys of each btree node are packed into a single\n"
+					+ "# byte array with an offset table, instead of one array per\n"
+					+ "# key. Saves memory and GC work for large caches, at the cost\n"
+					+ "# of copying keys on updates.");
+
 
 
 	/*
@@ -299,8 +392,89 @@ public class EnvironmentParams {
 			"# If true (the default), use an LRU-only policy to select nodes for\n"
 					+ "# eviction.  If false, select by Btree level first, and then by LRU.");
 
+	public static final ConfigParam EVICTOR_POLICY = new ConfigParam(
+			"je.evictor.policy", "generation", // default
+			false, // mutable
+			"# The policy used to select nodes for eviction. generation (the\n"
+					+ "# default) selects by LRU generation, see je.evictor.lruOnly.\n"
+					+ "# clock is a scan resistant clock policy, which keeps nodes that\n"
+					+ "# are used repeatedly cached in preference to nodes that were\n"
+					+ "# only touched by a preload or a cursor walk.");
+
 
 
+	/*
+	 * Checkpointer
+	 */
+	public static final LongConfigParam CHECKPOINTER_BYTES_INTERVAL = new LongConfigParam(
+			"je.checkpointer.bytesInterval", new Long(0), // min
+			new Long(Long.MAX_VALUE), // max
+			new Long(20000000), // default
+			false, // mutable
+			"# Ask the checkpointer to run every time we write this many bytes\n"
+					+ "# to the log. To use only time based checkpointing, set this\n"
+					+ "# to 0.");
+
+	public static final LongConfigParam CHECKPOINTER_WAKEUP_INTERVAL = new LongConfigParam(
+			"je.checkpointer.wakeupInterval", new Long(0), // min
+			new Long(4294967296L), // max
+			new Long(0), // default
+			false, // mutable
+			"# The checkpointer wakeup interval in microseconds. If non-zero, a\n"
+					+ "# checkpoint is run this often if anything was logged since the\n"
+					+ "# last one. By default, this is inactive and we wakeup the\n"
+					+ "# checkpointer as a function of the number of bytes written to\n"
+					+ "# the log (je.checkpointer.bytesInterval).");
+
+	public static final LongConfigParam CHECKPOINTER_RECOVERY_TIME_TARGET = new LongConfigParam(
+			"je.checkpointer.recoveryTimeTarget", new Long(0), // min
+			new Long(4294967296L), // max
+			new Long(0), // default
+			false, // mutable
+			"# The longest time, in microseconds, that recovery should take\n"
+					+ "# after a crash. A checkpoint is run before the log that\n"
+					+ "# recovery would read exceeds what can be read in this time at\n"
+					+ "# je.checkpointer.recoveryReadRate. 0 disables this trigger.");
+
+	public static final LongConfigParam CHECKPOINTER_RECOVERY_READ_RATE = new LongConfigParam(
+			"je.checkpointer.recoveryReadRate", new Long(1), // min
+			null, // max
+			new Long(10000000), // default
+			false, // mutable
+			"# The rate, in bytes per second, at which recovery is assumed to\n"
+					+ "# read and replay the log. Used with\n"
+					+ "# je.checkpointer.recoveryTimeTarget.");
+
+	public static final LongConfigParam CHECKPOINTER_MAX_FLUSH_RATE = new LongConfigParam(
+			"je.checkpointer.maxFlushRate", new Long(0), // min
+			null, // max
+			new Long(0), // default
+			false, // mutable
+			"# The most bytes per second that a checkpoint run by the\n"
+					+ "# checkpointer daemon writes when flushing dirty nodes. Limiting\n"
+					+ "# the rate keeps checkpoint I/O from competing with application\n"
+					+ "# writes. Checkpoints invoked by the application, and the\n"
+					+ "# checkpoint at close, are not limited. 0 means no limit.");
+
+	public static final IntConfigParam CHECKPOINTER_FLUSH_SPREAD = new IntConfigParam(
+			"je.checkpointer.flushSpreadPercent", new Integer(0), // min
+			new Integer(100), // max
+			new Integer(0), // default
+			false, // mutable
+			"# If non-zero, a checkpoint run by the checkpointer daemon spreads\n"
+					+ "# its dirty node writes over this percentage of the checkpoint\n"
+					+ "# interval instead of writing them as fast as possible. The\n"
+					+ "# interval is je.checkpointer.wakeupInterval if set, otherwise the\n"
+					+ "# time between the last two checkpoints.");
+
+	public static final IntConfigParam CHECKPOINTER_FLUSH_BATCH_SIZE = new IntConfigParam(
+			"je.checkpointer.flushBatchSize", new Integer(1), // min
+			null, // max
+			new Integer(16), // default
+			false, // mutable
+			"# The number of dirty nodes a paced checkpoint writes between\n"
+					+ "# pauses.");
+
 	/*
 	 * Cleaner
 	 */
@@ -641,6 +815,13 @@ public class EnvironmentParams {
 			false, // mutable
 			"# If true, perform a checksum check when reading entries from log.");
 
+	public static final ConfigParam LOG_CHECKSUM_ALGORITHM = new ConfigParam(
+			"je.log.checksumAlgorithm", "Adler32", // default
+			false, // mutable
+			"# The checksum used for log entries, Adler32 or CRC32C.\n"
+					+ "# This is part of the log format. An environment must always\n"
+					+ "# be opened with the value it was created with.");
+
 
 	//CHUNKED NIO ASPECT
 	public static final LongConfigParam LOG_CHUNKED_NIO = new LongConfigParam(
@@ -13,6 +13,7 @@ import java.util.Comparator;
 
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.MultipleKeyDataEntry;
 import com.sleepycat.je.OperationStatus;
 import com.sleepycat.je.RunRecoveryException;
 import com.sleepycat.je.log.LogUtils;
@@ -25,6 +26,7 @@ import com.sleepycat.je.tree.IN;
 import com.sleepycat.je.tree.Key;
 import com.sleepycat.je.tree.LN;
 import com.sleepycat.je.tree.Node;
+import com.sleepycat.je.tree.SearchResult;
 import com.sleepycat.je.tree.Tree;
 import com.sleepycat.je.txn.BasicLocker;
 import com.sleepycat.je.txn.LockGrantType;
@@ -421,10 +423,10 @@ public class CursorImpl implements Cloneable {
 			 * to read it above.
 			 */
 			if (key.getData() == null && bin != null && index > 0) {
-				setDbt(key, bin.getKey(index));
+				setDbt(key, bin, index);
 			}
 			if (data.getData() == null && dupBin != null && dupIndex > 0) {
-				setDbt(data, dupBin.getKey(dupIndex));
+				setDbt(data, dupBin, dupIndex);
 			}
 			return true;
 		} else {
@@ -1333,6 +1335,76 @@ public class CursorImpl implements Cloneable {
 		return result;
 	}
 
+	/**
+	 * Move the cursor forward over the records that follow it in its BIN,
+	 * packing each key and data item straight into the buffer. This is the
+	 * bulk counterpart of getNext: per record there is only the slot fetch,
+	 * the lock and one copy into the buffer.
+	 * 
+	 * Stops at the end of the BIN, at a slot that holds a duplicate tree, or
+	 * when the next record doesn't fit; getNext takes over from there. The
+	 * cursor is left on the last record packed.
+	 * 
+	 * @return the number of records packed.
+	 */
+	public int getNextInBINBulk(MultipleKeyDataEntry buffer, LockType lockType)
+			throws DatabaseException {
+
+		assert assertCursorState(true) : dumpToString(true);
+
+		if (bin == null || dupBin != null) {
+			return 0;
+		}
+
+		int packedIndex = index;
+		int nRecords = 0;
+		try {
+			while (++index < bin.getNEntries()) {
+				if (bin.isEntryKnownDeleted(index)) {
+					continue;
+				}
+				if (bin.isEntryPendingDeleted(index)) {
+					EnvironmentImpl envImpl = database.getDbEnvironment();
+					envImpl.addToCompressorQueue(bin, new Key(bin
+							.getKey(index)), false);
+				}
+
+				/* If fetchTarget returns null, a deleted LN was cleaned. */
+				Node n = bin.fetchTarget(index);
+				if (n == null) {
+					continue;
+				}
+				if (n.containsDuplicates()) {
+					break;
+				}
+
+				/*
+				 * For dirty-read the LN data can be set to null at any time, so
+				 * cache it before packing.
+				 */
+				LockResult lockResult = lockLN((LN) n, lockType);
+				LN ln = lockResult.getLN();
+				byte[] lnData = (ln != null) ? ln.getData() : null;
+				if (lnData == null) {
+					continue;
+				}
+				if (!buffer.append(bin, index, lnData)) {
+					/* Not returned, so don't keep it locked. */
+					revertLock(ln, lockResult);
+					break;
+				}
+				packedIndex = index;
+				nRecords++;
+				incrementLNCount();
+			}
+		} catch (RangeRestartException e) {
+			/* Return what was packed; getNext retries the next slot. */
+		} finally {
+			index = packedIndex;
+		}
+		return nRecords;
+	}
+
 	private void hook_verifyBin(BIN bin2) throws DatabaseException {
 		// TODO Auto-generated method stub
 		
@@ -1709,18 +1781,18 @@ public class CursorImpl implements Cloneable {
 		BINBoundary binBoundary = new BINBoundary();
 
 		byte[] key = Key.makeKey(matchKey);
-		bin = (BIN) database.getTree().search(key, Tree.SearchType.NORMAL, -1,
-				binBoundary, true /* updateGeneration */);
+
+		/*
+		 * If we're doing an exact search, tell bin.findEntry we require an
+		 * exact match. If it's a range search, we don't need that exact match.
+		 */
+		SearchResult entry = database.getTree().searchEntry(key, true,
+				exactSearch, binBoundary, true /* updateGeneration */);
+		bin = (entry != null) ? (BIN) entry.parent : null;
 
 		if (bin != null) {
 			addCursor(bin);
-
-			/*
-			 * If we're doing an exact search, tell bin.findEntry we require an
-			 * exact match. If it's a range search, we don't need that exact
-			 * match.
-			 */
-			index = bin.findEntry(key, true, exactSearch);
+			index = entry.index;
 
 			/*
 			 * If we're doing an exact search, as a starting point, we'll assume
@@ -1832,13 +1904,14 @@ public class CursorImpl implements Cloneable {
 		if (containsDuplicates) {
 			/* It's a duplicate tree. */
 			DIN duplicateRoot = (DIN) n;
-			dupBin = (DBIN) database.getTree()
-					.searchSubTree(duplicateRoot, data, Tree.SearchType.NORMAL,
-							-1, null, true /* updateGeneration */);
+			SearchResult entry = database.getTree().searchSubTreeEntry(
+					duplicateRoot, data, -1, true, exactSearch,
+					true /* updateGeneration */);
+			dupBin = (entry != null) ? (DBIN) entry.parent : null;
 			if (dupBin != null) {
 				/* Find an exact match. */
 				addCursor(dupBin);
-				dupIndex = dupBin.findEntry(data, true, exactSearch);
+				dupIndex = entry.index;
 				if (dupIndex >= 0) {
 					if ((dupIndex & IN.EXACT_MATCH) != 0) {
 						exact = true;
@@ -2014,7 +2087,7 @@ public class CursorImpl implements Cloneable {
 		 */
 		if (duplicateFetch) {
 			if (foundData != null) {
-				setDbt(foundData, targetBin.getKey(targetIndex));
+				setDbt(foundData, targetBin, targetIndex);
 			}
 			if (foundKey != null) {
 				setDbt(foundKey, targetBin.getDupKey());
@@ -2024,7 +2097,7 @@ public class CursorImpl implements Cloneable {
 				setDbt(foundData, lnData);
 			}
 			if (foundKey != null) {
-				setDbt(foundKey, targetBin.getKey(targetIndex));
+				setDbt(foundKey, targetBin, targetIndex);
 			}
 		}
 
@@ -2248,6 +2321,38 @@ public class CursorImpl implements Cloneable {
 		}
 	}
 
+	/**
+	 * Helper to return the idx'th key of a BIN as a DBT. The key is copied
+	 * from the node's prefix and suffix without building it first.
+	 */
+	private void setDbt(DatabaseEntry data, IN in, int idx) {
+
+		int keyLength = in.getKeyLength(idx);
+		if (keyLength >= 0) {
+			boolean partial = data.getPartial();
+			int off = partial ? data.getPartialOffset() : 0;
+			int len = partial ? data.getPartialLength() : keyLength;
+			if (off + len > keyLength) {
+				len = (off > keyLength) ? 0 : keyLength - off;
+			}
+
+			byte[] newdata = null;
+			if (len == 0) {
+				newdata = LogUtils.ZERO_LENGTH_BYTE_ARRAY;
+			} else {
+				newdata = new byte[len];
+				in.copyKey(idx, off, newdata, 0, len);
+			}
+			data.setData(newdata);
+			data.setOffset(0);
+			data.setSize(len);
+		} else {
+			data.setData(null);
+			data.setOffset(0);
+			data.setSize(0);
+		}
+	}
+
 
 
 	/**
@@ -37,6 +37,7 @@ import com.sleepycat.je.config.EnvironmentParams;
 import com.sleepycat.je.dbi.SortedLSNTreeWalker.TreeNodeProcessor;
 import com.sleepycat.je.log.LogEntryType;
 import com.sleepycat.je.log.LogException;
+import com.sleepycat.je.log.LogFileNotFoundException;
 import com.sleepycat.je.log.LogReadable;
 import com.sleepycat.je.log.LogUtils;
 import com.sleepycat.je.log.LogWritable;
@@ -472,9 +473,14 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 	 */
 	public static class PreloadLSNTreeWalker extends SortedLSNTreeWalker {
 
-		/* LSN -> INEntry */
+		/* LSN -> INEntry, synchronized on the walker. */
 		private Map lsnINMap = new HashMap();
 
+		/* Nodes fetched, synchronized on the walker. */
+		private long nINsLoaded;
+
+		private long nLNsLoaded;
+
 		/* struct to hold IN/entry-index pair. */
 		public static class INEntry {
 			INEntry(IN in, int index) {
@@ -492,6 +498,15 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 
 			super(db, false, db.tree.getRootLsn(), callback);
 			accumulateLNs = conf.getLoadLNs();
+			nThreads = conf.getNThreads();
+		}
+
+		synchronized long getNINsLoaded() {
+			return nINsLoaded;
+		}
+
+		synchronized long getNLNsLoaded() {
+			return nLNsLoaded;
 		}
 
 		private final class PreloadWithRootLatched implements WithRootLatched {
@@ -521,7 +536,8 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 
 
 		/*
-		 * Add an LSN -> IN/index entry to the map.
+		 * Add an LSN -> IN/index entry to the map. Called with the walker
+		 * synchronized.
 		 */
 		protected void addToLsnINMap(Long lsn, IN in, int index) {
 			assert in.getDatabase() != null;
@@ -535,7 +551,10 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 		 */
 		protected Node fetchLSN(long lsn) throws DatabaseException {
 
-			INEntry inEntry = (INEntry) lsnINMap.remove(new Long(lsn));
+			INEntry inEntry;
+			synchronized (this) {
+				inEntry = (INEntry) lsnINMap.remove(new Long(lsn));
+			}
 			assert (inEntry != null);
 			IN in = inEntry.in;
 			
@@ -547,7 +566,51 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 			if (in.isEntryKnownDeleted(index) || in.getLsn(index) != lsn) {
 				return null;
 			}
-			return in.fetchTarget(index);
+			Node target = in.getTarget(index);
+			if (target != null) {
+				return target;
+			}
+
+			/*
+			 * Read the node without writing its parent, so that several fetch
+			 * threads can read the children of one parent at the same time.
+			 * Then install it, unless the slot changed or another thread
+			 * fetched it in the meantime.
+			 */
+			Node node;
+			try {
+				node = (Node) dbImpl.getDbEnvironment().getLogManager().get(lsn);
+			} catch (LogFileNotFoundException e) {
+				if (in.getLsn(index) != lsn || in.isEntryKnownDeleted(index)
+						|| in.isEntryPendingDeleted(index)) {
+					return null;
+				}
+				throw new DatabaseException(e);
+			}
+			in.beginWrite();
+			try {
+				if (index >= in.getNEntries() || in.isEntryKnownDeleted(index)
+						|| in.getLsn(index) != lsn) {
+					return null;
+				}
+				target = in.getTarget(index);
+				if (target != null) {
+					return target;
+				}
+				node.postFetchInit(in.getDatabase(), lsn);
+				in.updateEntry(index, node);
+			} finally {
+				in.endWrite();
+			}
+
+			synchronized (this) {
+				if (node instanceof IN) {
+					nINsLoaded++;
+				} else {
+					nLNsLoaded++;
+				}
+			}
+			return node;
 		}
 	}
 
@@ -565,10 +628,11 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 
 
 		PreloadResult ret = new PreloadResult();
+		long startTime = System.currentTimeMillis();
 
 		PreloadProcessor callback = new PreloadProcessor(envImpl, /*//M.B maxBytes,*/
 				targetTime,ret);
-		SortedLSNTreeWalker walker = new PreloadLSNTreeWalker(this, callback,
+		PreloadLSNTreeWalker walker = new PreloadLSNTreeWalker(this, callback,
 				config);
 		
 		try {
@@ -577,6 +641,9 @@ public class DatabaseImpl implements LogWritable, LogReadable, Cloneable {
 			ret.setStatus(HPE.getStatus());
 		}
 
+		ret.setNINsLoaded(walker.getNINsLoaded());
+		ret.setNLNsLoaded(walker.getNLNsLoaded());
+		ret.setElapsedMillis(System.currentTimeMillis() - startTime);
 		return ret;
 	}
 
@@ -38,6 +38,7 @@ import com.sleepycat.je.tree.BIN;
 import com.sleepycat.je.tree.BINReference;
 import com.sleepycat.je.tree.IN;
 import com.sleepycat.je.tree.Key;
+import com.sleepycat.je.tree.OffHeapLNCache;
 import com.sleepycat.je.txn.Locker;
 import com.sleepycat.je.txn.TxnManager;
 import com.sleepycat.je.utilint.DbLsn;
@@ -67,6 +68,8 @@ public class EnvironmentImpl implements EnvConfigObserver {
 
 	private boolean isNoLocking; // true if env has no locking
 
+	private boolean compactKeys; // true if btree nodes pack their keys
+
 	// changed to public
 	public boolean isReadOnly; // true if env opened with the read only flag.
 
@@ -108,6 +111,12 @@ public class EnvironmentImpl implements EnvConfigObserver {
 
 	private Cleaner cleaner;
 
+	/* Null if je.env.hotSetSnapshot is false. */
+	private HotSetSnapshot hotSetSnapshot;
+
+	/* Null if je.offHeapCacheSize is 0. */
+	private OffHeapLNCache offHeapLNCache;
+
 	/* Stats, debug information */
 	private RecoveryInfo lastRecoveryInfo;
 
@@ -190,6 +199,8 @@ public class EnvironmentImpl implements EnvConfigObserver {
 					.getBoolean(EnvironmentParams.ENV_FORCED_YIELD);
 			isNoLocking = !(configManager
 					.getBoolean(EnvironmentParams.ENV_INIT_LOCKING));
+			compactKeys = configManager
+					.getBoolean(EnvironmentParams.TREE_COMPACT_KEYS);
 			isReadOnly = configManager.getBoolean(EnvironmentParams.ENV_RDONLY);
 
 			fileManager = new FileManager(this, envHome, isReadOnly);
@@ -211,6 +222,14 @@ public class EnvironmentImpl implements EnvConfigObserver {
 			 */
 			checkpointer=new Checkpointer(this);
 			cleaner=new Cleaner(this,"Cleaner");
+			if (configManager.getBoolean(EnvironmentParams.ENV_HOT_SET_SNAPSHOT)) {
+				hotSetSnapshot = new HotSetSnapshot(this);
+			}
+			long offHeapCacheSize = configManager
+					.getLong(EnvironmentParams.OFFHEAP_CACHE_SIZE);
+			if (offHeapCacheSize > 0) {
+				offHeapLNCache = new OffHeapLNCache(this, offHeapCacheSize);
+			}
 			/*
 			 * Daemons are always made here, but only started after recovery. We
 			 * want them to exist so we can call them programatically even if
@@ -256,6 +275,16 @@ public class EnvironmentImpl implements EnvConfigObserver {
 			/* Start daemons after recovery. */
 			runOrPauseDaemons(configManager);
 
+			/*
+			 * Warm the cache with the INs that were resident before the last
+			 * close or crash. The environment isn't open yet, so checkpoints
+			 * taken meanwhile don't replace the snapshot.
+			 */
+			if (hotSetSnapshot != null
+					&& configManager.getBoolean(EnvironmentParams.ENV_RECOVERY)) {
+				hotSetSnapshot.load();
+			}
+
 			/*
 			 * Cache a few critical values. We keep our timeout in millis
 			 * instead of microseconds because Object.wait takes millis.
@@ -320,9 +349,10 @@ public class EnvironmentImpl implements EnvConfigObserver {
 			throws DatabaseException {
 
 		if (!isReadOnly) {
-
-
-
+			logManager.getLogWriter().runOrPause(
+					mgr.getBoolean(EnvironmentParams.ENV_RUN_LOG_WRITER));
+			checkpointer.runOrPause(
+					mgr.getBoolean(EnvironmentParams.ENV_RUN_CHECKPOINTER));
 		}
 
 		
@@ -619,6 +649,22 @@ public class EnvironmentImpl implements EnvConfigObserver {
 				}
 			}
 
+			/*
+			 * Save the resident INs for the next open. This is done here
+			 * rather than by the close checkpoint, which is skipped when
+			 * nothing was logged since recovery.
+			 */
+			if (doCheckpoint && !isReadOnly
+					&& (envState != DbEnvState.INVALID)
+					&& hotSetSnapshot != null) {
+				try {
+					hotSetSnapshot.saveIfDue(true);
+				} catch (DatabaseException DBE) {
+					errors.append("\nException saving hot set snapshot: ");
+					errors.append(DBE.toString()).append("\n");
+				}
+			}
+
 			try {
 				shutdownDaemons();
 			} catch (InterruptedException IE) {
@@ -768,12 +814,20 @@ public class EnvironmentImpl implements EnvConfigObserver {
 
 	private void requestShutdownDaemons() {
 		closing = true;
+		if (checkpointer != null) {
+			checkpointer.requestShutdown();
+		}
+		logManager.getLogWriter().requestShutdown();
 	}
 
 	/**
 	 * Ask all daemon threads to shut down.
 	 */
 	private void shutdownDaemons() throws InterruptedException {
+		if (checkpointer != null) {
+			checkpointer.shutdown();
+		}
+		logManager.getLogWriter().shutdown();
 	}
 
 
@@ -788,6 +842,13 @@ public class EnvironmentImpl implements EnvConfigObserver {
 		return isNoLocking;
 	}
 
+	/**
+	 * @return true if btree nodes should use the compact key representation.
+	 */
+	public boolean getCompactKeys() {
+		return compactKeys;
+	}
+
 
 	public boolean isReadOnly() {
 		return isReadOnly;
@@ -960,6 +1021,21 @@ public class EnvironmentImpl implements EnvConfigObserver {
 		return cleaner;
 	}
 
+	/**
+	 * @return the hot set snapshot, or null if je.env.hotSetSnapshot is false.
+	 */
+	public HotSetSnapshot getHotSetSnapshot() {
+		return hotSetSnapshot;
+	}
+
+	/**
+	 * @return the off-heap cache of evicted LNs, or null if
+	 *         je.offHeapCacheSize is 0.
+	 */
+	public OffHeapLNCache getOffHeapLNCache() {
+		return offHeapLNCache;
+	}
+
 	public LogBufferBudget getLogBufferBudget() {
 		return memoryBudget;
 	}
@@ -0,0 +1,349 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.dbi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.config.EnvironmentParams;
+import com.sleepycat.je.tree.IN;
+import com.sleepycat.je.tree.SearchResult;
+import com.sleepycat.je.tree.Tree;
+import com.sleepycat.je.utilint.DbLsn;
+import com.sleepycat.je.utilint.PropUtil;
+
+/**
+ * Saves the set of resident INs in the environment home, so that the next
+ * open of the environment can fetch the same INs back into the cache instead
+ * of starting cold.
+ * <p>
+ * The snapshot is taken by the checkpointer, by walking the INList. It
+ * records the database ID, level and identifier key of each resident IN of a
+ * main tree; the root of each tree is always fetched, and duplicate trees and
+ * the mapping tree are not recorded. LSNs are not recorded since they change
+ * with every checkpoint; the current LSNs are taken from the parent slots when
+ * the snapshot is loaded.
+ * <p>
+ * Loading proceeds one level at a time from the top of the trees down. For
+ * each level, the parent slots of the recorded INs are found by key, which
+ * only visits the INs fetched by the level before, and the non-resident ones
+ * are fetched in LSN order. Loading stops when the cache is full, since the
+ * snapshot may have been saved with a larger cache.
+ */
+public class HotSetSnapshot {
+
+	static final String FILE_NAME = "je.hotset";
+
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private static final int MAGIC = 0x4a45484f;
+
+	/* Ends the list of entries; a file without it is incomplete. */
+	private static final int END_MARKER = -1;
+
+	private EnvironmentImpl envImpl;
+
+	private File file;
+
+	private long intervalMillis;
+
+	private long lastSaveMillis;
+
+	/* Stats */
+	private int nSaved;
+
+	private int nLoaded;
+
+	HotSetSnapshot(EnvironmentImpl envImpl) throws DatabaseException {
+		this.envImpl = envImpl;
+		file = new File(envImpl.getEnvironmentHome(), FILE_NAME);
+		intervalMillis = PropUtil.microsToMillis(envImpl.getConfigManager()
+				.getLong(EnvironmentParams.ENV_HOT_SET_INTERVAL));
+	}
+
+	/**
+	 * Save the snapshot if je.env.hotSetInterval has passed since the last
+	 * save, or if force is true. Called at the end of a checkpoint, and with
+	 * force at close.
+	 */
+	public synchronized void saveIfDue(boolean force) throws DatabaseException {
+		long now = System.currentTimeMillis();
+		if (!force && lastSaveMillis != 0
+				&& now - lastSaveMillis < intervalMillis) {
+			return;
+		}
+		lastSaveMillis = now;
+		save();
+	}
+
+	/**
+	 * Write the snapshot to a temporary file and rename it, so that a crash
+	 * leaves either the old or the new snapshot.
+	 */
+	private void save() throws DatabaseException {
+		File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+		int count = 0;
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmpFile)));
+			try {
+				out.writeInt(MAGIC);
+				Iterator iter = envImpl.getInMemoryINs().iterator();
+				while (iter.hasNext()) {
+					IN in = (IN) iter.next();
+					int level = in.getLevel();
+					if ((level & IN.MAIN_LEVEL) == 0 || in.isRoot()) {
+						continue;
+					}
+					byte[] key = in.getIdentifierKey();
+					if (key == null) {
+						continue;
+					}
+					out.writeInt(in.getDatabase().getId().getId());
+					out.writeInt(level);
+					out.writeInt(key.length);
+					out.write(key);
+					count++;
+				}
+				out.writeInt(END_MARKER);
+			} finally {
+				out.close();
+			}
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Can't delete " + file);
+			}
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Can't rename " + tmpFile + " to "
+						+ file);
+			}
+			nSaved = count;
+		} catch (IOException e) {
+			tmpFile.delete();
+			throw new DatabaseException(e);
+		}
+	}
+
+	/**
+	 * Fetch the INs in the snapshot, if there is one, until the cache is full.
+	 * Called at open, after recovery. An incomplete or unreadable snapshot is
+	 * ignored.
+	 */
+	public synchronized void load() throws DatabaseException {
+		if (!file.exists()) {
+			return;
+		}
+
+		/* Entries by level, highest first. */
+		Map entriesByLevel = new HashMap();
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC) {
+					return;
+				}
+				while (true) {
+					int dbId = in.readInt();
+					if (dbId == END_MARKER) {
+						break;
+					}
+					int level = in.readInt();
+					byte[] key = new byte[in.readInt()];
+					in.readFully(key);
+					Integer levelKey = new Integer(level & IN.LEVEL_MASK);
+					List entries = (List) entriesByLevel.get(levelKey);
+					if (entries == null) {
+						entries = new ArrayList();
+						entriesByLevel.put(levelKey, entries);
+					}
+					entries.add(new Entry(new DatabaseId(dbId), level, key));
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			/* Includes EOFException for a truncated file. */
+			return;
+		}
+
+		List levels = new ArrayList(entriesByLevel.keySet());
+		Collections.sort(levels, Collections.reverseOrder());
+		Map dbCache = new HashMap();
+		for (int i = 0; i < levels.size(); i++) {
+			List entries = (List) entriesByLevel.get(levels.get(i));
+			if (!loadLevel(entries, dbCache)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Fetch the INs of one level in LSN order. Their parents were fetched by
+	 * the levels before.
+	 * 
+	 * @return false if loading stopped because the cache is full.
+	 */
+	private boolean loadLevel(List entries, Map dbCache)
+			throws DatabaseException {
+
+		DbTree dbMapTree = envImpl.getDbMapTree();
+		List fetches = new ArrayList();
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = (Entry) entries.get(i);
+			DatabaseImpl db = dbMapTree.getDbCaching(entry.dbId, -1, dbCache);
+			if (db == null) {
+				continue;
+			}
+			Tree tree = db.getTree();
+			if (tree == null) {
+				continue;
+			}
+			SearchResult result = tree.searchParent(entry.key, entry.level,
+					false);
+			if (result != null && result.childNotResident) {
+				long lsn = result.parent.getLsn(result.index);
+				if (lsn != DbLsn.NULL_LSN) {
+					fetches.add(new Fetch(result.parent, result.index, lsn));
+				}
+			}
+		}
+
+		Collections.sort(fetches, new FetchComparator());
+
+		long lastLsn = DbLsn.NULL_LSN;
+		for (int i = 0; i < fetches.size(); i++) {
+			Fetch fetch = (Fetch) fetches.get(i);
+
+			/* Two entries may lead to the same slot. */
+			if (fetch.lsn == lastLsn) {
+				continue;
+			}
+			lastLsn = fetch.lsn;
+
+			if (hook_isCacheFull()) {
+				return false;
+			}
+
+			IN parent = fetch.parent;
+			int parentVersion = parent.getVersion();
+			if (!isUnfetchedSlot(parent, fetch)
+					|| !parent.validateVersion(parentVersion)) {
+				continue;
+			}
+
+			/*
+			 * Read the IN without writing the parent, so that readers of the
+			 * parent don't wait for the read, as Tree.fetchChildOptimistic
+			 * does. Then install it only if the parent is unchanged.
+			 */
+			IN child = (IN) envImpl.getLogManager().get(fetch.lsn);
+			if (!parent.beginWrite(parentVersion)) {
+				continue;
+			}
+			try {
+				if (!isUnfetchedSlot(parent, fetch)) {
+					continue;
+				}
+				child.postFetchInit(parent.getDatabase(), fetch.lsn);
+				parent.updateEntry(fetch.index, child);
+			} finally {
+				parent.endWrite();
+			}
+			nLoaded++;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the slot of a Fetch still refers to its non-resident
+	 *         IN.
+	 */
+	private boolean isUnfetchedSlot(IN parent, Fetch fetch) {
+		return fetch.index < parent.getNEntries()
+				&& parent.getLsn(fetch.index) == fetch.lsn
+				&& parent.getTarget(fetch.index) == null;
+	}
+
+	/**
+	 * @return true if the cache is full and loading should stop. The memory
+	 *         budget feature supplies the check.
+	 */
+	private boolean hook_isCacheFull() {
+		return false;
+	}
+
+	/**
+	 * @return the number of INs in the last snapshot saved.
+	 */
+	public int getNSaved() {
+		return nSaved;
+	}
+
+	/**
+	 * @return the number of INs fetched when the snapshot was loaded.
+	 */
+	public int getNLoaded() {
+		return nLoaded;
+	}
+
+	/**
+	 * An IN recorded in the snapshot.
+	 */
+	private static class Entry {
+		DatabaseId dbId;
+
+		int level;
+
+		byte[] key;
+
+		Entry(DatabaseId dbId, int level, byte[] key) {
+			this.dbId = dbId;
+			this.level = level;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The slot of a non-resident IN to be fetched.
+	 */
+	private static class Fetch {
+		IN parent;
+
+		int index;
+
+		long lsn;
+
+		Fetch(IN parent, int index, long lsn) {
+			this.parent = parent;
+			this.index = index;
+			this.lsn = lsn;
+		}
+	}
+
+	private static class FetchComparator implements Comparator {
+		public int compare(Object o1, Object o2) {
+			return DbLsn.compareTo(((Fetch) o1).lsn, ((Fetch) o2).lsn);
+		}
+	}
+}
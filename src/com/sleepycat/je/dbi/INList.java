@@ -10,57 +10,61 @@
 package com.sleepycat.je.dbi;
 
 import java.util.Iterator;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.tree.IN;
 
 /**
  * The INList is a list of in-memory INs for a given environment.
+ * 
+ * INs are kept in a slot array. Each IN remembers its own slot index (see
+ * IN.getInListIndex), so add, remove and contains are constant time and
+ * allocate nothing. Slots freed by remove are reused by later adds.
+ * 
+ * A slot index is stable for as long as its IN stays on the list. This gives
+ * the evictor a clock-style scan: a ScanCursor is just a slot position, which
+ * can be saved between passes and resumed, and which a concurrent add or
+ * remove never invalidates.
+ * 
+ * Add, remove and clear are synchronized on the INList. Scans and iterators
+ * don't synchronize; they are weakly consistent and may or may not see INs
+ * added or removed while they run.
  */
 //Lck completely restructured
 public class INList {
 	private static final String DEBUG_NAME = INList.class.getName();
 
-	private SortedSet ins = null;
+	private static final int INITIAL_CAPACITY = 128;
 
-	// private Set addedINs = null;
+	/* INs by slot index, null for a free slot. */
+	private volatile IN[] slots;
 
-	private EnvironmentImpl envImpl;
+	/* Slots at or above highWater have never been used since the last clear. */
+	private volatile int highWater;
 
+	/* Stack of free slot indices below highWater. */
+	private int[] freeSlots;
 
+	private int nFreeSlots;
 
-	INList(EnvironmentImpl envImpl) {
-		this.envImpl = envImpl;
-		ins = new TreeSet();
-	}
+	private volatile int size;
 
-	/**
-	 * Used only by tree verifier when validating INList. Must be called with
-	 * orig.majorLatch acquired.
-	 */
-	public INList(INList orig, EnvironmentImpl envImpl)
-			throws DatabaseException {
+	private EnvironmentImpl envImpl;
 
-		ins = new TreeSet(orig.getINs());
-		this.envImpl = envImpl;
-	}
 
-	/*
-	 * We ignore latching on this method because it's only called from validate
-	 * which ignores latching anyway.
-	 */
-	public SortedSet getINs() {
-		return ins;
+
+	INList(EnvironmentImpl envImpl) {
+		this.envImpl = envImpl;
+		slots = new IN[INITIAL_CAPACITY];
+		freeSlots = new int[INITIAL_CAPACITY];
 	}
 
 	/*
 	 * Don't require latching, ok to be imprecise.
 	 */
 	public int getSize() {
-		return ins.size();
+		return size;
 	}
 
 	/**
@@ -68,11 +72,32 @@ public class INList {
 	 */
 	public void add(IN in) throws DatabaseException {
 
-		boolean addOk = ins.add(in);
+		boolean addOk = hook_doAdd(in);
 
 		assert addOk : "failed adding in " + in.getNodeId();
 	}
 
+	private synchronized boolean hook_doAdd(IN in) {
+		if (in.getInListIndex() >= 0) {
+			return false;
+		}
+		int index;
+		if (nFreeSlots > 0) {
+			index = freeSlots[--nFreeSlots];
+		} else {
+			index = highWater;
+			if (index == slots.length) {
+				IN[] newSlots = new IN[slots.length << 1];
+				System.arraycopy(slots, 0, newSlots, 0, slots.length);
+				slots = newSlots;
+			}
+			highWater = index + 1;
+		}
+		slots[index] = in;
+		in.setInListIndex(index);
+		size++;
+		return true;
+	}
 
 	/**
 	 * An IN is getting swept or is displaced by recovery.
@@ -86,31 +111,50 @@ public class INList {
 
 	}
 
-	private boolean hook_doRemove(IN in) throws DatabaseException {
-		return ins.remove(in);
+	private synchronized boolean hook_doRemove(IN in) {
+		int index = in.getInListIndex();
+		if (index < 0 || index >= highWater || slots[index] != in) {
+			return false;
+		}
+		slots[index] = null;
+		in.setInListIndex(-1);
+		size--;
+		if (nFreeSlots == freeSlots.length) {
+			int[] newFreeSlots = new int[freeSlots.length << 1];
+			System.arraycopy(freeSlots, 0, newFreeSlots, 0, nFreeSlots);
+			freeSlots = newFreeSlots;
+		}
+		freeSlots[nFreeSlots++] = index;
+		return true;
 	}
 
-	public SortedSet tailSet(IN in) throws DatabaseException {
-
-		return ins.tailSet(in);
+	/**
+	 * @return true if the IN is on this list.
+	 */
+	public boolean contains(IN in) {
+		int index = in.getInListIndex();
+		IN[] currentSlots = slots;
+		return index >= 0 && index < currentSlots.length
+				&& currentSlots[index] == in;
 	}
 
-	public IN first() throws DatabaseException {
-
-		return (IN) ins.first();
+	/**
+	 * Return a scan cursor positioned at the given slot index. Positions past
+	 * the end of the list are allowed; the cursor is then at the end.
+	 */
+	public ScanCursor scanCursor(int position) {
+		return new ScanCursor(position);
 	}
 
 	/**
-	 * Return an iterator over the main 'ins' set. Returned iterator will not
-	 * show the elements in addedINs.
-	 * 
-	 * The major latch should be held before entering. The caller is responsible
-	 * for releasing the major latch when they're finished with the iterator.
+	 * Return a weakly consistent iterator over the list. The iterator's
+	 * remove() takes the IN off the list directly, without the bookkeeping
+	 * done by INList.remove.
 	 * 
-	 * @return an iterator over the main 'ins' set.
+	 * @return an iterator over the list.
 	 */
 	public Iterator iterator() {
-		return ins.iterator();
+		return new INIterator();
 	}
 
 	/**
@@ -118,24 +162,109 @@ public class INList {
 	 */
 	public void clear() throws DatabaseException {
 
-		hook_doClear(ins);
+		hook_doClear();
 
 
 	}
 
-	private void hook_doClear(SortedSet ins) throws DatabaseException {
-		ins.clear();
+	private synchronized void hook_doClear() {
+		for (int i = 0; i < highWater; i++) {
+			if (slots[i] != null) {
+				slots[i].setInListIndex(-1);
+			}
+		}
+		slots = new IN[INITIAL_CAPACITY];
+		freeSlots = new int[INITIAL_CAPACITY];
+		nFreeSlots = 0;
+		highWater = 0;
+		size = 0;
 	}
 
 	public void dump() {
 		System.out.println("size=" + getSize());
-		Iterator iter = ins.iterator();
+		Iterator iter = iterator();
 		while (iter.hasNext()) {
 			IN theIN = (IN) iter.next();
 			System.out.println("db=" + theIN.getDatabase().getId() + " nid=: "
 					+ theIN.getNodeId() + "/" + theIN.getLevel());
 		}
 	}
-	
 
+	/**
+	 * A clock hand over the slot array. Doesn't require latching; an IN it
+	 * returns may be removed concurrently.
+	 */
+	public class ScanCursor {
+
+		private int position;
+
+		ScanCursor(int position) {
+			this.position = Math.max(position, 0);
+		}
+
+		/**
+		 * @return the next IN at or after the cursor position, advancing the
+		 *         cursor past it, or null if the end of the list was reached.
+		 */
+		public IN next() {
+			IN[] currentSlots = slots;
+			int limit = Math.min(highWater, currentSlots.length);
+			while (position < limit) {
+				IN in = currentSlots[position++];
+				if (in != null) {
+					return in;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return the slot position where the next call to next() starts.
+		 */
+		public int getPosition() {
+			return position;
+		}
+
+		/**
+		 * Wrap around to the start of the list.
+		 */
+		public void rewind() {
+			position = 0;
+		}
+	}
+
+	private class INIterator implements Iterator {
+
+		private ScanCursor cursor;
+
+		private IN nextIN;
+
+		private IN lastReturned;
+
+		INIterator() {
+			cursor = new ScanCursor(0);
+			nextIN = cursor.next();
+		}
+
+		public boolean hasNext() {
+			return nextIN != null;
+		}
+
+		public Object next() {
+			if (nextIN == null) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = nextIN;
+			nextIN = cursor.next();
+			return lastReturned;
+		}
+
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			hook_doRemove(lastReturned);
+			lastReturned = null;
+		}
+	}
 }
@@ -44,6 +44,11 @@ import com.sleepycat.je.utilint.DbLsn;
  * and the LSN and type passed to the callback method for processing. LSNs of
  * the children of those nodes are retrieved and the process repeated until
  * there are no more nodes to be fetched for this database's tree.
+ * <p>
+ * If nThreads is greater than one, the sorted LSNs of each pass are split into
+ * contiguous ranges that are fetched by that many threads. Each thread still
+ * reads its part of the log in order. The callback and the accumulation of
+ * LSNs for the next pass are serialized on the walker.
  */
 public class SortedLSNTreeWalker {
 
@@ -102,6 +107,15 @@ public class SortedLSNTreeWalker {
 	 */
 	protected boolean accumulateLNs = false;
 
+	/* The number of threads that fetch the LSNs of a pass. */
+	protected int nThreads = 1;
+
+	/* Don't start fetch threads for fewer LSNs than this per thread. */
+	private static final int MIN_LSNS_PER_THREAD = 16;
+
+	/* Set when a fetch thread fails, to stop the others early. */
+	private volatile boolean fetchFailed;
+
 	/*
 	 * @param rootLsn is passed in addition to the dbImpl, because the root may
 	 * be nulled out on the dbImpl before walk() is called.
@@ -155,9 +169,10 @@ public class SortedLSNTreeWalker {
 		 * INs in order to reduce contention on memory budget contention latch.
 		 * Wait until all references to INs are released.
 		 */
+		foundSome = foundSet.size() > 0;
 		foundSet = null;
 
-		return foundSet.size()>0;
+		return foundSome;
 	}
 
 	private void hook_findInternal(INList inList, /*//M.BMemoryBudget mb,*/ Set foundSet) throws DatabaseException {
@@ -201,13 +216,110 @@ public class SortedLSNTreeWalker {
 		while (true) {
 			maybeGetMoreINs();
 			if (currentLSNs != null && currentLSNIdx < currentLSNs.length) {
-				fetchAndProcessLSN(currentLSNs[currentLSNIdx++]);
+				int nLSNs = currentLSNs.length - currentLSNIdx;
+				if (nThreads > 1 && nLSNs >= nThreads * MIN_LSNS_PER_THREAD) {
+					fetchAndProcessParallel();
+				} else {
+					fetchAndProcessLSN(currentLSNs[currentLSNIdx++]);
+				}
 			} else {
 				break;
 			}
 		}
 	}
 
+	/**
+	 * Fetch the remaining LSNs of the current pass with nThreads threads, one
+	 * of which is the calling thread. Returns when all of them are done, with
+	 * the LSNs they accumulated forming the next pass.
+	 */
+	private void fetchAndProcessParallel() throws DatabaseException {
+
+		long[] lsns = currentLSNs;
+		int start = currentLSNIdx;
+		int nLSNs = lsns.length - start;
+		currentLSNIdx = lsns.length;
+
+		RangeFetcher[] fetchers = new RangeFetcher[nThreads];
+		for (int i = 0; i < nThreads; i++) {
+			int from = start + (int) (((long) nLSNs * i) / nThreads);
+			int to = start + (int) (((long) nLSNs * (i + 1)) / nThreads);
+			fetchers[i] = new RangeFetcher(lsns, from, to);
+		}
+
+		fetchFailed = false;
+		Thread[] threads = new Thread[nThreads - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(fetchers[i + 1], "SortedLSNTreeWalker-"
+					+ (i + 1));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		fetchers[0].run();
+
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i++) {
+			while (true) {
+				try {
+					threads[i].join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (int i = 0; i < nThreads; i++) {
+			Throwable t = fetchers[i].error;
+			if (t == null) {
+				continue;
+			}
+			if (t instanceof DatabaseException) {
+				throw (DatabaseException) t;
+			} else if (t instanceof RuntimeException) {
+				throw (RuntimeException) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			} else {
+				throw new DatabaseException(t);
+			}
+		}
+	}
+
+	/**
+	 * Fetches a range of the sorted LSNs of a pass.
+	 */
+	private class RangeFetcher implements Runnable {
+
+		private long[] lsns;
+
+		private int from;
+
+		private int to;
+
+		Throwable error;
+
+		RangeFetcher(long[] lsns, int from, int to) {
+			this.lsns = lsns;
+			this.from = from;
+			this.to = to;
+		}
+
+		public void run() {
+			try {
+				for (int i = from; i < to && !fetchFailed; i++) {
+					fetchAndProcessLSN(lsns[i]);
+				}
+			} catch (Throwable t) {
+				error = t;
+				fetchFailed = true;
+			}
+		}
+	}
+
 	protected void hook_callHarvest() {
 		// TODO Auto-generated method stub
 		
@@ -317,10 +429,12 @@ public class SortedLSNTreeWalker {
 
 		Node node = fetchLSN(lsn);
 		if (node != null) {
-			callback.processLSN(lsn, node.getLogType());
+			synchronized (this) {
+				callback.processLSN(lsn, node.getLogType());
 
-			if (node instanceof IN) {
-				accumulateLSNs((IN) node);
+				if (node instanceof IN) {
+					accumulateLSNs((IN) node);
+				}
 			}
 		}
 	}
@@ -345,6 +459,10 @@ public class SortedLSNTreeWalker {
 	protected void addToLsnINMap(Long lsn, IN in, int index) {
 	}
 
+	/**
+	 * Called without synchronization, and concurrently if nThreads is greater
+	 * than one.
+	 */
 	protected Node fetchLSN(long lsn) throws DatabaseException {
 
 		return (Node) envImpl.getLogManager().get(lsn);
@@ -0,0 +1,380 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.log;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.RunRecoveryException;
+import com.sleepycat.je.config.EnvironmentParams;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.utilint.PropUtil;
+
+/*
+ * The FSyncManager ensures that only one file fsync is issued at a time, for
+ * performance optimization. The goal is to reduce the number of fsyncs issued
+ * by the system by issuing 1 fsync on behalf of a number of threads.
+ *
+ * For example, suppose these writes happen which all need to be fsynced to
+ * disk:
+ *
+ * thread 1 writes a commit record thread 2 writes a checkpoint thread 3 writes
+ * a commit record thread 4 writes a commit record thread 5 writes a checkpoint
+ *
+ * Rather than executing 5 fsyncs, which all must happen synchronously, we hope
+ * to issue fewer. How many fewer depend on timing. Note that the writes
+ * themselves are serialized and are guaranteed to run in order.
+ *
+ * For example:
+ *
+ * thread 1 wants to fsync first, no other fsync going on, will issue fsync
+ * thread 2 waits
+ * thread 3 waits
+ * thread 4 waits
+ *  - before thread 1 comes out of its fsync, thread 2, 3 and 4 are all waiting
+ *    to fsync
+ *  - thread 1 finishes fsyncing, wakes up the waiters
+ *  - one of the waiting threads becomes the leader of the next group and
+ *    issues a single fsync on behalf of the whole group
+ *
+ * A thread that was waiting longer than je.log.fsyncTimeout does its own fsync
+ * instead of waiting any further.
+ *
+ * The fsync is not latched: it only needs the end-of-log file descriptor, see
+ * FileManager.LogEndFileDescriptor.
+ */
+class FSyncManager {
+
+	private EnvironmentImpl envImpl;
+
+	private long timeout;
+
+	/* Use as the target for a synchronization block. */
+	private Object mgrMutex;
+
+	private boolean fsyncInProgress;
+
+	private FSyncGroup nextFSyncWaiters;
+
+	/* Stats */
+	private long nFSyncRequests = 0;
+
+	private long nFSyncs = 0;
+
+	private long nTimeouts = 0;
+
+	/* Largest number of requests covered by a single fsync. */
+	private int maxFSyncGroupSize = 0;
+
+	/* Total time spent by callers inside fsync(), in milliseconds. */
+	private long totalFSyncWaitMillis = 0;
+
+	FSyncManager(EnvironmentImpl envImpl) throws DatabaseException {
+		timeout = PropUtil.microsToMillis(envImpl.getConfigManager().getLong(
+				EnvironmentParams.LOG_FSYNC_TIMEOUT));
+		this.envImpl = envImpl;
+
+		mgrMutex = new Object();
+		fsyncInProgress = false;
+		nextFSyncWaiters = new FSyncGroup(timeout, envImpl);
+	}
+
+	/**
+	 * Request that this file be fsynced to disk. This thread may or may not
+	 * actually execute the fsync, but will not return until a fsync has been
+	 * issued and executed on behalf of its write. There is a timeout period
+	 * specified by EnvironmentParam.LOG_FSYNC_TIMEOUT that ensures that no
+	 * thread gets stuck here indefinitely.
+	 *
+	 * When a thread comes in, it will find one of two things. 1. There is no
+	 * fsync going on right now. This thread should go ahead and fsync. 2.
+	 * There is an active fsync, wait until it's over before starting a new
+	 * fsync.
+	 *
+	 * When a fsync is going on, all those threads that come along are grouped
+	 * together as the nextFsyncWaiters. When the current fsync is finished,
+	 * one of those nextFsyncWaiters will be selected as a leader to issue the
+	 * next fsync. The other members of the group will merely wait until the
+	 * fsync done on their behalf is finished.
+	 *
+	 * When a thread finishes a fsync, it has to: 1. wake up all the threads
+	 * that were waiting for its fsync call. 2. wake up one member of the next
+	 * group of waiting threads (the nextFsyncWaiters) so that thread can
+	 * become the new leader and issue the next fysnc call.
+	 *
+	 * If a non-leader member of the nextFsyncWaiters times out, it will issue
+	 * its own fsync anyway, in case something happened to the leader.
+	 */
+	void fsync() throws DatabaseException {
+
+		boolean doFsync = false;
+		boolean isLeader = false;
+		boolean needToWait = false;
+		FSyncGroup inProgressGroup = null;
+		FSyncGroup myGroup = null;
+		long startTime = System.currentTimeMillis();
+
+		synchronized (mgrMutex) {
+			nFSyncRequests++;
+			if (fsyncInProgress) {
+				needToWait = true;
+				myGroup = nextFSyncWaiters;
+				myGroup.addWaiter();
+			} else {
+				isLeader = true;
+				doFsync = true;
+				fsyncInProgress = true;
+				inProgressGroup = nextFSyncWaiters;
+				inProgressGroup.addWaiter();
+				nextFSyncWaiters = new FSyncGroup(timeout, envImpl);
+			}
+		}
+
+		if (needToWait) {
+
+			/*
+			 * Note that there's no problem if we miss the notify on this set
+			 * of waiters. We can check state in the FSyncGroup before we begin
+			 * to wait.
+			 *
+			 * All members of the group may return from their waitForFSync()
+			 * call with the need to do a fsync, because of timeout. Only one
+			 * will return as the leader.
+			 */
+			while (needToWait) {
+				int waitStatus = myGroup.waitForFsync();
+				needToWait = false;
+
+				if (waitStatus == FSyncGroup.DO_LEADER_FSYNC) {
+					synchronized (mgrMutex) {
+
+						/*
+						 * Check if there's a fsync in progress; this might
+						 * happen even if you were designated the leader if a
+						 * new thread came in between the point when the old
+						 * leader woke you up and now. That thread found no
+						 * fsync in progress and took this group, which was
+						 * still the nextFSyncWaiters, as its own. Its fsync
+						 * started after this thread's write, so wait for it
+						 * to finish rather than returning unsynced. The
+						 * leader slot of the group is now taken, so the next
+						 * wait only ends when the fsync is done or times out.
+						 */
+						if (fsyncInProgress) {
+							needToWait = true;
+						} else {
+							isLeader = true;
+							doFsync = true;
+							fsyncInProgress = true;
+							inProgressGroup = myGroup;
+							nextFSyncWaiters = new FSyncGroup(timeout, envImpl);
+						}
+					}
+				} else if (waitStatus == FSyncGroup.DO_TIMEOUT_FSYNC) {
+					doFsync = true;
+					synchronized (mgrMutex) {
+						nTimeouts++;
+					}
+				}
+			}
+		}
+
+		if (doFsync) {
+
+			/*
+			 * There are 3 ways that this fsync gets called:
+			 *
+			 * 1. A thread calls sync and there is not a sync call already in
+			 * progress. That thread executes fsync for itself only. Other
+			 * threads requesting sync form a group of waiters.
+			 *
+			 * 2. A sync finishes and wakes up a group of waiters. The first
+			 * waiter in the group to wake up becomes the leader. It executes
+			 * sync for it's group of waiters. The other waiters remain
+			 * blocked.
+			 *
+			 * 3. A waiter is timed out. It executes fsync for itself only.
+			 */
+			try {
+				executeFSync();
+			} finally {
+				synchronized (mgrMutex) {
+					nFSyncs++;
+					if (isLeader) {
+
+						/*
+						 * Wake up the group that requested the fsync before
+						 * you started. They've piggybacked off your fsync.
+						 */
+						int groupSize = inProgressGroup.getNWaiters();
+						if (groupSize > maxFSyncGroupSize) {
+							maxFSyncGroupSize = groupSize;
+						}
+						inProgressGroup.wakeupAll();
+
+						/*
+						 * Wake up a single waiter, who will become the next
+						 * leader.
+						 */
+						nextFSyncWaiters.wakeupOne();
+						fsyncInProgress = false;
+					}
+				}
+			}
+		}
+
+		synchronized (mgrMutex) {
+			totalFSyncWaitMillis += System.currentTimeMillis() - startTime;
+		}
+	}
+
+	/**
+	 * Put the fsync execution into this method so it can be overridden for
+	 * testing purposes.
+	 */
+	protected void executeFSync() throws DatabaseException {
+
+		envImpl.getFileManager().syncLogEnd();
+	}
+
+	/**
+	 * @return the number of fsync requests, i.e. the number of callers that
+	 *         asked for their writes to be made durable.
+	 */
+	long getNFSyncRequests() {
+		return nFSyncRequests;
+	}
+
+	/**
+	 * @return the number of fsyncs actually issued.
+	 */
+	long getNFSyncs() {
+		return nFSyncs;
+	}
+
+	/**
+	 * @return the number of requests that timed out waiting for a leader and
+	 *         issued their own fsync.
+	 */
+	long getNTimeouts() {
+		return nTimeouts;
+	}
+
+	/**
+	 * @return the largest number of requests covered by one leader fsync.
+	 */
+	int getMaxFSyncGroupSize() {
+		return maxFSyncGroupSize;
+	}
+
+	/**
+	 * @return the total time callers spent waiting for and executing fsyncs,
+	 *         in milliseconds.
+	 */
+	long getTotalFSyncWaitMillis() {
+		return totalFSyncWaitMillis;
+	}
+
+	/*
+	 * Embodies a group of threads waiting for a common fsync. Note that
+	 * there's no collection here; group membership is merely that the threads
+	 * are all waiting on the same monitor.
+	 */
+	static class FSyncGroup {
+		static int DO_TIMEOUT_FSYNC = 0;
+
+		static int DO_LEADER_FSYNC = 1;
+
+		static int NO_FSYNC_NEEDED = 2;
+
+		private volatile boolean fsyncDone;
+
+		private long fsyncTimeout;
+
+		private boolean leaderExists;
+
+		/* Set when the previous fsync finished and this group may lead. */
+		private boolean leaderNeeded;
+
+		private int nWaiters;
+
+		private EnvironmentImpl envImpl;
+
+		FSyncGroup(long fsyncTimeout, EnvironmentImpl envImpl) {
+			this.fsyncTimeout = fsyncTimeout;
+			fsyncDone = false;
+			leaderExists = false;
+			leaderNeeded = false;
+			nWaiters = 0;
+			this.envImpl = envImpl;
+		}
+
+		synchronized void addWaiter() {
+			nWaiters++;
+		}
+
+		synchronized int getNWaiters() {
+			return nWaiters;
+		}
+
+		/**
+		 * Wait for either a turn to execute a fsync, or to find out that a
+		 * fsync was done on your behalf.
+		 *
+		 * @return DO_LEADER_FSYNC or DO_TIMEOUT_FSYNC if the fsync wasn't
+		 *         done and this thread needs to execute one, because it's the
+		 *         leader of its group or because the wait timed out;
+		 *         NO_FSYNC_NEEDED if a leader fsynced on its behalf.
+		 */
+		synchronized int waitForFsync() throws RunRecoveryException {
+
+			long startTime = System.currentTimeMillis();
+			while (true) {
+
+				/* The fsync we're waiting on has been done. */
+				if (fsyncDone) {
+					return NO_FSYNC_NEEDED;
+				}
+
+				/*
+				 * The previous leader finished and asked for a new one. The
+				 * request is remembered, so it is not lost if it was made
+				 * before this thread started to wait.
+				 */
+				if (leaderNeeded && !leaderExists) {
+					leaderExists = true;
+					return DO_LEADER_FSYNC;
+				}
+
+				/* We're just a waiter. See if we're timed out. */
+				long waited = System.currentTimeMillis() - startTime;
+				if (waited >= fsyncTimeout) {
+					return DO_TIMEOUT_FSYNC;
+				}
+
+				try {
+					wait(fsyncTimeout - waited);
+				} catch (InterruptedException e) {
+					throw new RunRecoveryException(envImpl,
+							"Unexpected interrupt while waiting for fsync", e);
+				}
+			}
+		}
+
+		synchronized void wakeupAll() {
+			fsyncDone = true;
+			notifyAll();
+		}
+
+		synchronized void wakeupOne() {
+			leaderNeeded = true;
+			/* FindBugs whines here. */
+			notify();
+		}
+	}
+}
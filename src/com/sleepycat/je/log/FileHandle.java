@@ -16,17 +16,27 @@ import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.dbi.EnvironmentImpl;
 
 /**
- * A FileHandle embodies a File and its accompanying latch.
+ * A FileHandle embodies a File and its accompanying reference count. A handle
+ * that is held by the FileManager's file cache stays open until it has been
+ * evicted or invalidated and the last user has released it.
  */
 class FileHandle {
 	private RandomAccessFile file;
 
+	private String fileName;
 
 	private boolean oldHeaderVersion;
 
+	/* Number of callers that have acquired and not yet released the handle. */
+	private int nReferences;
+
+	/* True if the handle is no longer cached and must close on last release. */
+	private boolean closeOnRelease;
+
 	FileHandle(RandomAccessFile file, String fileName, EnvironmentImpl env,
 			boolean oldHeaderVersion) {
 		this.file = file;
+		this.fileName = fileName;
 		this.oldHeaderVersion = oldHeaderVersion;
 	}
 
@@ -34,15 +44,57 @@ class FileHandle {
 		return file;
 	}
 
+	String getFileName() {
+		return fileName;
+	}
+
 	boolean isOldHeaderVersion() {
 		return oldHeaderVersion;
 	}
 
+	/**
+	 * Register a user of this handle. Every acquire must be paired with a
+	 * release.
+	 */
+	synchronized void acquire() {
+		nReferences++;
+	}
 
-	void release() throws DatabaseException {
+	/**
+	 * @return true if a caller currently holds this handle.
+	 */
+	synchronized boolean isInUse() {
+		return nReferences > 0;
+	}
+
+	/**
+	 * Release a reference. If the handle has been dropped from the cache in
+	 * the meantime, the last release closes the underlying file.
+	 */
+	synchronized void release() throws DatabaseException {
+		assert nReferences > 0 : "release without acquire";
+		nReferences--;
+		if (nReferences == 0 && closeOnRelease) {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new DatabaseException(e);
+			}
+		}
+	}
+
+	/**
+	 * Called when the handle leaves the cache. The file is closed now if
+	 * nobody is using it, otherwise by the last release.
+	 */
+	synchronized void closeWhenUnused() throws IOException {
+		closeOnRelease = true;
+		if (nReferences == 0) {
+			close();
+		}
 	}
 
-	void close() throws IOException {
+	synchronized void close() throws IOException {
 
 		if (file != null) {
 			file.close();
@@ -18,9 +18,9 @@ class FileHandleSource extends FileSource {
 
 	private FileHandle fileHandle;
 
-	FileHandleSource(FileHandle fileHandle, int readBufferSize,
+	FileHandleSource(FileHandle fileHandle, long fileNum, int readBufferSize,
 			FileManager fileManager) {
-		super(fileHandle.getFile(), readBufferSize, fileManager);
+		super(fileHandle.getFile(), fileNum, readBufferSize, fileManager);
 		this.fileHandle = fileHandle;
 	}
 
@@ -28,6 +28,6 @@ class FileHandleSource extends FileSource {
 	 * @see LogSource#release
 	 */
 	public void release() throws DatabaseException {
-//		fileHandle.release();
+		fileHandle.release();
 	}
 }
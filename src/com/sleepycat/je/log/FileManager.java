@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Random;
@@ -132,6 +133,18 @@ public class FileManager {
 	/* endOfLog is used for writes and fsyncs to the end of the log. */
 	private LogEndFileDescriptor endOfLog;
 
+	/*
+	 * Serializes all writes through endOfLog. Log buffers are written both
+	 * by the log writer daemon and by threads holding the log write latch.
+	 */
+	private Object logFileWriteMutex;
+
+	/* Bounded cache of read-only file handles, keyed by file number. */
+	private FileCache fileCache;
+
+	/* Group commit: batches concurrent fsync requests of the log end. */
+	private FSyncManager syncManager;
+
 
 	/*
 	 * When we bump the LSNs over to a new file, we must remember the last LSN
@@ -175,6 +188,9 @@ public class FileManager {
 		perFileLastUsedLsn = new HashMap();
 		prevOffset = 0L;
 		endOfLog = new LogEndFileDescriptor();
+		logFileWriteMutex = new Object();
+		fileCache = new FileCache(configManager);
+		syncManager = new FSyncManager(envImpl);
 		forceNewFile = false;
 		saveLastPosition();
 
@@ -461,6 +477,9 @@ public class FileManager {
 	public void renameFile(long fileNum, String newSuffix)
 			throws DatabaseException, IOException {
 
+		/* Renamed files must no longer be served from the cache. */
+		fileCache.invalidate(fileNum);
+
 		int repeatNum = 0;
 		boolean renamed = false;
 		while (!renamed) {
@@ -494,6 +513,8 @@ public class FileManager {
 	 */
 	public void deleteFile(long fileNum) throws DatabaseException, IOException {
 
+		fileCache.invalidate(fileNum);
+
 		String fileName = getFullFileNames(fileNum)[0];
 		File file = new File(fileName);
 		boolean done = file.delete();
@@ -518,7 +539,27 @@ public class FileManager {
 	FileHandle getFileHandle(long fileNum) throws LogException,
 			DatabaseException {
 
-		return makeFileHandle(fileNum, FileMode.READ_MODE);
+		Long fileId = new Long(fileNum);
+		FileHandle fileHandle = fileCache.get(fileId);
+		if (fileHandle != null) {
+			return fileHandle;
+		}
+
+		/*
+		 * Open the file and validate its header outside the cache monitor so
+		 * that hits on other files are not blocked behind the I/O. If another
+		 * thread cached the same file meanwhile, its handle wins.
+		 */
+		FileHandle newHandle = makeFileHandle(fileNum, FileMode.READ_MODE);
+		fileHandle = fileCache.add(fileId, newHandle);
+		if (fileHandle != newHandle) {
+			try {
+				newHandle.close();
+			} catch (IOException e) {
+				throw new DatabaseException(e);
+			}
+		}
+		return fileHandle;
 	}
 
 	private FileHandle makeFileHandle(long fileNum, FileMode mode)
@@ -798,38 +839,44 @@ public class FileManager {
 		 */
 		if (firstLsn != DbLsn.NULL_LSN) {
 
-			RandomAccessFile file = endOfLog.getWritableFile(DbLsn
-					.getFileNumber(firstLsn));
-			ByteBuffer data = fullBuffer.getDataBuffer();
-
-			if (++writeCount >= stopOnWriteCount) {
-				Runtime.getRuntime().halt(0xff);
-			}
+			/*
+			 * Buffers are written by the log writer daemon as well as by
+			 * threads holding the log write latch, so the end of log file
+			 * descriptor and the write itself are protected by their own
+			 * mutex.
+			 */
+			synchronized (logFileWriteMutex) {
+				RandomAccessFile file = endOfLog.getWritableFile(DbLsn
+						.getFileNumber(firstLsn));
+				ByteBuffer data = fullBuffer.getDataBuffer();
 
-			try {
+				if (++writeCount >= stopOnWriteCount) {
+					Runtime.getRuntime().halt(0xff);
+				}
 
+				try {
+					if (IO_EXCEPTION_TESTING) {
+						throw new IOException("generated for testing");
+					}
+					if (RUNRECOVERY_EXCEPTION_TESTING) {
+						generateRunRecoveryException(file, data, DbLsn
+								.getFileOffset(firstLsn));
+					}
+					writeToFile(file, data, DbLsn.getFileOffset(firstLsn));
+				} catch (ClosedChannelException e) {
 
+					/*
+					 * The file should never be closed. It may be closed
+					 * because of an interrupt received by another thread. See
+					 * SR [#10463].
+					 */
+					throw new RunRecoveryException(envImpl,
+							"File closed, may be due to thread interrupt", e);
+				} catch (IOException IOE) {
+					abortCommittedTxns(data);
 
-				if (IO_EXCEPTION_TESTING) {
-					throw new IOException("generated for testing");
-				}
-				if (RUNRECOVERY_EXCEPTION_TESTING) {
-					generateRunRecoveryException(file, data, DbLsn
-							.getFileOffset(firstLsn));
+					throw new DatabaseException(IOE);
 				}
-				writeToFile(file, data, DbLsn.getFileOffset(firstLsn));
-			} catch (ClosedChannelException e) {
-
-				/*
-				 * The file should never be closed. It may be closed because of
-				 * an interrupt received by another thread. See SR [#10463].
-				 */
-				throw new RunRecoveryException(envImpl,
-						"File closed, may be due to thread interrupt", e);
-			} catch (IOException IOE) {
-				abortCommittedTxns(data);
-				
-				throw new DatabaseException(IOE);
 			}
 
 			assert EnvironmentImpl.maybeForceYield();
@@ -850,12 +897,26 @@ public class FileManager {
 	/**
 	 * Read a buffer from a file at a given offset, using NIO if so configured.
 	 */
-	void readFromFile(RandomAccessFile file, ByteBuffer readBuffer, long offset)
-			throws IOException{
+	protected void readFromFile(RandomAccessFile file, ByteBuffer readBuffer,
+			long offset) throws IOException {
 
 		//DUMMY, must be implemented by one of the I/O features
 		throw new UnsupportedOperationException();
 	}
+
+	/**
+	 * Return a read-only view of numBytes of this file, starting at the given
+	 * offset, without copying. Used by FileSource in place of readFromFile.
+	 * 
+	 * @return null if the bytes must be read with readFromFile, which is
+	 *         always the case unless a memory-mapped I/O feature overrides this
+	 *         method.
+	 */
+	protected ByteBuffer getMappedBytes(long fileNum, RandomAccessFile file,
+			long offset, int numBytes) throws IOException {
+
+		return null;
+	}
 	
 
 	/*
@@ -910,6 +971,16 @@ public class FileManager {
 		}
 	}
 
+	/**
+	 * FSync the end of the log using the group commit mechanism. The caller
+	 * must already have written its entries to the file; the fsync may be
+	 * issued by another thread on behalf of a whole group of callers.
+	 */
+	void groupSync() throws DatabaseException {
+
+		syncManager.fsync();
+	}
+
 	/**
 	 * Sync the end of the log, close off this log file. Should only be called
 	 * under the log write latch.
@@ -919,7 +990,9 @@ public class FileManager {
 		if (syncAtFileEnd) {
 			syncLogEnd();
 		}
-		endOfLog.close();
+		synchronized (logFileWriteMutex) {
+			endOfLog.close();
+		}
 	}
 
 
@@ -928,9 +1001,10 @@ public class FileManager {
 	 */
 	public void clear() throws IOException, DatabaseException {
 
-
-
-		endOfLog.close();
+		fileCache.clear();
+		synchronized (logFileWriteMutex) {
+			endOfLog.close();
+		}
 	}
 
 	/**
@@ -1030,9 +1104,177 @@ public class FileManager {
 		return lastUsedLsn;
 	}
 
+	/**
+	 * @return the number of group commit fsync requests.
+	 */
+	public long getNFSyncRequests() {
+		return syncManager.getNFSyncRequests();
+	}
 
+	/**
+	 * @return the number of fsyncs issued on behalf of group commit requests.
+	 */
+	public long getNFSyncs() {
+		return syncManager.getNFSyncs();
+	}
+
+	/**
+	 * @return the number of fsync requests that timed out waiting for the
+	 *         group leader and fsynced on their own.
+	 */
+	public long getNFSyncTimeouts() {
+		return syncManager.getNTimeouts();
+	}
+
+	/**
+	 * @return the largest number of requests covered by a single fsync.
+	 */
+	public int getMaxFSyncGroupSize() {
+		return syncManager.getMaxFSyncGroupSize();
+	}
+
+	/**
+	 * @return the total time spent in group commit, in milliseconds.
+	 */
+	public long getFSyncWaitMillis() {
+		return syncManager.getTotalFSyncWaitMillis();
+	}
+
+	/**
+	 * @return the number of file handle requests served from the cache.
+	 */
+	public long getNFileCacheHits() {
+		return fileCache.nHits;
+	}
+
+	/**
+	 * @return the number of file handle requests that had to open the file.
+	 */
+	public long getNFileCacheMisses() {
+		return fileCache.nMisses;
+	}
+
+	/**
+	 * @return the number of file handles evicted from the cache.
+	 */
+	public long getNFileCacheEvictions() {
+		return fileCache.nEvictions;
+	}
+
+	/**
+	 * @return the number of file handles currently cached.
+	 */
+	public int getFileCacheSize() {
+		return fileCache.size();
+	}
+
+	/**
+	 * The FileCache holds open read-only file handles, keyed by file number,
+	 * in least recently used order. Every handle returned by get or add has
+	 * been acquired on behalf of the caller, who must release it when done.
+	 * When the cache grows beyond its configured size, the least recently used
+	 * handles that nobody holds are evicted and closed. Handles that are in
+	 * use are never closed; they stay cached and the cache may temporarily
+	 * exceed its size.
+	 */
+	private static class FileCache {
+
+		/* Long file number -> FileHandle, iterated in LRU order. */
+		private LinkedHashMap fileMap;
+
+		private int maxSize;
+
+		/* Stats. Not volatile, they are only approximations. */
+		private long nHits;
+
+		private long nMisses;
+
+		private long nEvictions;
+
+		FileCache(DbConfigManager configManager) throws DatabaseException {
+			maxSize = configManager.getInt(EnvironmentParams.LOG_FILE_CACHE_SIZE);
+			fileMap = new LinkedHashMap(maxSize, 0.75f, true);
+		}
+
+		/**
+		 * @return the acquired handle for this file, or null if not cached.
+		 */
+		synchronized FileHandle get(Long fileId) {
+			FileHandle fileHandle = (FileHandle) fileMap.get(fileId);
+			if (fileHandle == null) {
+				return null;
+			}
+			nHits++;
+			fileHandle.acquire();
+			return fileHandle;
+		}
+
+		/**
+		 * Cache a newly opened handle, unless another thread cached one for the
+		 * same file first.
+		 * 
+		 * @return the acquired handle that is now cached for this file.
+		 */
+		synchronized FileHandle add(Long fileId, FileHandle newHandle)
+				throws DatabaseException {
+
+			nMisses++;
+			FileHandle fileHandle = (FileHandle) fileMap.get(fileId);
+			if (fileHandle == null) {
+				fileHandle = newHandle;
+				fileMap.put(fileId, fileHandle);
+			}
+			fileHandle.acquire();
+			evict();
+			return fileHandle;
+		}
+
+		/**
+		 * Close and remove unused handles, oldest first, until the cache is
+		 * back within its size.
+		 */
+		private void evict() throws DatabaseException {
+			Iterator iter = fileMap.values().iterator();
+			while (fileMap.size() > maxSize && iter.hasNext()) {
+				FileHandle fileHandle = (FileHandle) iter.next();
+				if (!fileHandle.isInUse()) {
+					iter.remove();
+					nEvictions++;
+					try {
+						fileHandle.closeWhenUnused();
+					} catch (IOException e) {
+						throw new DatabaseException(e);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Drop the handle for a file that is being deleted or renamed. If it is
+		 * in use, it is closed by its last release.
+		 */
+		synchronized void invalidate(long fileNum) throws IOException {
+			FileHandle fileHandle = (FileHandle) fileMap
+					.remove(new Long(fileNum));
+			if (fileHandle != null) {
+				fileHandle.closeWhenUnused();
+			}
+		}
+
+		synchronized void clear() throws IOException {
+			Iterator iter = fileMap.values().iterator();
+			while (iter.hasNext()) {
+				FileHandle fileHandle = (FileHandle) iter.next();
+				fileHandle.close();
+			}
+			fileMap.clear();
+		}
+
+		synchronized int size() {
+			return fileMap.size();
+		}
+	}
 
-	
 
 	/**
 	 * The LogEndFileDescriptor is used to write and fsync the end of the log.
@@ -1080,7 +1322,7 @@ public class FileManager {
 		private RandomAccessFile endOfLogSyncFile = null;
 
 		/**
-		 * getWritableFile must be called under the log write latch.
+		 * getWritableFile must be called under the logFileWriteMutex.
 		 */
 		RandomAccessFile getWritableFile(long fileNumber)
 				throws RunRecoveryException {
@@ -1091,8 +1333,8 @@ public class FileManager {
 
 					/*
 					 * We need to make a file descriptor for the end of the log.
-					 * This is guaranteed to be called under the log write
-					 * latch.
+					 * This is guaranteed to be called under the
+					 * logFileWriteMutex.
 					 */
 					endOfLogRWFile = makeFileHandle(fileNumber,
 							FileMode.READWRITE_MODE).getFile();
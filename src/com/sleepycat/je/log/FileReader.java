@@ -46,6 +46,23 @@ public abstract class FileReader {
 	// XXX, use exception instead of status?
 	private boolean forward; // if true, we're reading forward
 
+	/*
+	 * When reading forward with read-ahead, the next chunk of the current
+	 * file is read into prefetchBuffer while readBuffer is parsed, and the
+	 * two are swapped by fillReadBuffer. readAhead is null if disabled.
+	 */
+	private ReadAhead readAhead;
+
+	private int readAheadSize; // size of the chunks read ahead
+
+	private ByteBuffer prefetchBuffer;
+
+	private long prefetchFileNum;
+
+	private long prefetchOffset;
+
+	private boolean prefetching; // true if a read ahead was started
+
 	/*
 	 * ReadBufferFileNum, readBufferFileStart and readBufferFileEnd indicate how
 	 * the read buffer maps to the file. For example, if the read buffer size is
@@ -112,6 +129,14 @@ public abstract class FileReader {
 		DbConfigManager configManager = env.getConfigManager();
 		maxReadBufferSize = configManager
 				.getInt(EnvironmentParams.LOG_ITERATOR_MAX_SIZE);
+		if (forward
+				&& configManager
+						.getBoolean(EnvironmentParams.LOG_ITERATOR_READ_AHEAD)) {
+			readAhead = new ReadAhead(fileManager);
+			readAheadSize = Math.min(Math.max(readBufferSize, configManager
+					.getInt(EnvironmentParams.LOG_ITERATOR_READ_AHEAD_SIZE)),
+					maxReadBufferSize);
+		}
 
 		/* Determine the starting position. */
 		this.startLsn = startLsn;
@@ -637,6 +662,7 @@ public abstract class FileReader {
 					if (nextFile != null) {
 						readBufferFileNum = nextFile.longValue();
 						fileHandle.release();
+						fileHandle = null;
 						fileHandle = fileManager
 								.getFileHandle(readBufferFileNum);
 						fileOk = true;
@@ -647,9 +673,11 @@ public abstract class FileReader {
 			}
 
 			if (fileOk) {
-				readBuffer.clear();
-				fileManager.readFromFile(fileHandle.getFile(), readBuffer,
-						readBufferFileEnd);
+				if (!takePrefetchedBuffer()) {
+					readBuffer.clear();
+					fileManager.readFromFile(fileHandle.getFile(), readBuffer,
+							readBufferFileEnd);
+				}
 
 				assert EnvironmentImpl.maybeForceYield();
 
@@ -657,6 +685,8 @@ public abstract class FileReader {
 				readBufferFileEnd = readBufferFileStart
 						+ threadSafeBufferPosition(readBuffer);
 				threadSafeBufferFlip(readBuffer);
+
+				startReadAhead(fileHandle);
 			} else {
 				throw new EOFException();
 			}
@@ -673,6 +703,57 @@ public abstract class FileReader {
 		}
 	}
 
+	/**
+	 * If the chunk that fillReadBuffer is about to read was read ahead, swap
+	 * it in as the read buffer. The old read buffer becomes the buffer for the
+	 * next read ahead.
+	 * 
+	 * @return true if the read buffer now holds the chunk, false if it must be
+	 *         read.
+	 */
+	private boolean takePrefetchedBuffer() throws DatabaseException {
+		if (!prefetching) {
+			return false;
+		}
+		prefetching = false;
+
+		/*
+		 * Always wait, since the prefetch buffer may not be reused while the
+		 * read is pending. The chunk may not be the one needed if the reader
+		 * moved to another file or its buffer grew for a large entry.
+		 */
+		if (!readAhead.waitForRead()
+				|| prefetchFileNum != readBufferFileNum
+				|| prefetchOffset != readBufferFileEnd
+				|| prefetchBuffer.capacity() < readBuffer.capacity()
+				|| prefetchBuffer.position() == 0) {
+			return false;
+		}
+		ByteBuffer oldBuffer = readBuffer;
+		readBuffer = prefetchBuffer;
+		prefetchBuffer = oldBuffer;
+		return true;
+	}
+
+	/**
+	 * Start reading the chunk that follows the read buffer, if it is in the
+	 * same file. The first chunk of the next file is read synchronously.
+	 */
+	private void startReadAhead(FileHandle fileHandle) throws IOException {
+		if (readAhead == null
+				|| readBufferFileEnd >= fileHandle.getFile().length()) {
+			return;
+		}
+		int size = Math.max(readBuffer.capacity(), readAheadSize);
+		if (prefetchBuffer == null || prefetchBuffer.capacity() != size) {
+			prefetchBuffer = ByteBuffer.allocate(size);
+		}
+		prefetchFileNum = readBufferFileNum;
+		prefetchOffset = readBufferFileEnd;
+		readAhead.startRead(prefetchFileNum, prefetchOffset, prefetchBuffer);
+		prefetching = true;
+	}
+
 	/**
 	 * @return true if this reader should process this entry, or just skip over
 	 *         it.
@@ -28,9 +28,18 @@ class FileSource implements LogSource {
 
 	private FileManager fileManager;
 
+	/* File number, or -1 if unknown, in which case the file is never mapped. */
+	private long fileNum;
+
 	FileSource(RandomAccessFile file, int readBufferSize,
 			FileManager fileManager) {
+		this(file, -1, readBufferSize, fileManager);
+	}
+
+	FileSource(RandomAccessFile file, long fileNum, int readBufferSize,
+			FileManager fileManager) {
 		this.file = file;
+		this.fileNum = fileNum;
 		this.readBufferSize = readBufferSize;
 		this.fileManager = fileManager;
 	}
@@ -46,6 +55,15 @@ class FileSource implements LogSource {
 	 */
 	public ByteBuffer getBytes(long fileOffset) throws IOException {
 
+		/* Use a slice of the mapped file if there is one. */
+		if (fileNum >= 0) {
+			ByteBuffer mappedBuf = fileManager.getMappedBytes(fileNum, file,
+					fileOffset, readBufferSize);
+			if (mappedBuf != null) {
+				return mappedBuf;
+			}
+		}
+
 		/* Fill up buffer from file. */
 		ByteBuffer destBuf = ByteBuffer.allocate(readBufferSize);
 		fileManager.readFromFile(file, destBuf, fileOffset);
@@ -62,6 +80,14 @@ class FileSource implements LogSource {
 	public ByteBuffer getBytes(long fileOffset, int numBytes)
 			throws IOException {
 
+		if (fileNum >= 0) {
+			ByteBuffer mappedBuf = fileManager.getMappedBytes(fileNum, file,
+					fileOffset, numBytes);
+			if (mappedBuf != null) {
+				return mappedBuf;
+			}
+		}
+
 		/* Fill up buffer from file. */
 		ByteBuffer destBuf = ByteBuffer.allocate(numBytes);
 		fileManager.readFromFile(file, destBuf, fileOffset);
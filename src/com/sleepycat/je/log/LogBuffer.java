@@ -30,6 +30,16 @@ class LogBuffer implements LogSource {
 
 	private long lastLsn;
 
+	/*
+	 * Number of entries that have reserved space in this buffer but have not
+	 * finished copying their bytes in yet. Copies run outside the log write
+	 * latch; the buffer may only be written or read once this drops to zero.
+	 */
+	private int nPendingCopies;
+
+	/* True while the buffer is queued for the LogWriter and not yet written. */
+	private volatile boolean writePending;
+
 	/* The read latch serializes access to and modification of the LSN info. */
 
 
@@ -54,6 +64,7 @@ class LogBuffer implements LogSource {
 
 	void reinit() throws DatabaseException {
 
+		assert nPendingCopies == 0;
 		buffer.clear();
 		firstLsn = DbLsn.NULL_LSN;
 		lastLsn = DbLsn.NULL_LSN;
@@ -85,6 +96,61 @@ class LogBuffer implements LogSource {
 			}
 	}
 
+	/**
+	 * Reserve numBytes at the current end of this buffer for the entry at this
+	 * LSN. Assumes that the log write latch is held and that hasRoom has been
+	 * checked. The caller copies its entry into the returned slice without
+	 * holding the latch and must then call copyCompleted, even on failure.
+	 * 
+	 * @return a view onto the reserved bytes, positioned at their start.
+	 */
+	ByteBuffer reserve(long lsn, int numBytes) throws DatabaseException {
+
+		registerLsn(lsn);
+		ByteBuffer reserved = buffer.duplicate();
+		int start = buffer.position();
+		reserved.limit(start + numBytes);
+		reserved.position(start);
+		buffer.position(start + numBytes);
+		synchronized (this) {
+			nPendingCopies++;
+		}
+		return reserved;
+	}
+
+	/**
+	 * An entry has been copied into the space it reserved.
+	 */
+	synchronized void copyCompleted() {
+		nPendingCopies--;
+		if (nPendingCopies == 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until every reservation in this buffer has been filled. Called
+	 * before the buffer is written to the file or read from.
+	 */
+	synchronized void waitForCopies() throws DatabaseException {
+		while (nPendingCopies > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new DatabaseException(
+						"Interrupted waiting for log buffer copies", e);
+			}
+		}
+	}
+
+	boolean isWritePending() {
+		return writePending;
+	}
+
+	void setWritePending(boolean writePending) {
+		this.writePending = writePending;
+	}
+
 	/**
 	 * Check capacity of buffer. Assumes that the log write latch is held.
 	 * 
@@ -19,6 +19,7 @@ import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.config.EnvironmentParams;
 import com.sleepycat.je.dbi.DbConfigManager;
 import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.utilint.PropUtil;
 
 /**
  * LogBufferPool keeps a set of log buffers.
@@ -38,6 +39,9 @@ public class LogBufferPool {
 
 	private FileManager fileManager;
 
+	/* Writes full buffers in the background, see LogWriter. */
+	private LogWriter logWriter;
+
 
 	private boolean runInMemory;
 
@@ -52,6 +56,9 @@ public class LogBufferPool {
 		DbConfigManager configManager = envImpl.getConfigManager();
 		runInMemory = configManager
 				.getBoolean(EnvironmentParams.LOG_MEMORY_ONLY);
+		logWriter = new LogWriter(PropUtil.microsToMillis(configManager
+				.getLong(EnvironmentParams.LOG_WRITER_WAKEUP_INTERVAL)),
+				"LogWriter", envImpl, fileManager);
 		reset(configManager);
 
 		/* Current buffer is the active buffer that writes go into. */
@@ -72,6 +79,9 @@ public class LogBufferPool {
 			return;
 		}
 
+		/* Buffers of the old pool may still be waiting to be written. */
+		logWriter.drainQueue();
+
 		/*
 		 * Based on the log budget, figure the number and size of log buffers to
 		 * use.
@@ -127,9 +137,11 @@ public class LogBufferPool {
 
 			/*
 			 * Write the currentWriteBuffer to the file and reset
-			 * currentWriteBuffer.
+			 * currentWriteBuffer. A buffer that is merely full is handed to
+			 * the log writer; on a file flip it is written right away, since
+			 * the file is synced and closed next.
 			 */
-			writeBufferToFile(sizeNeeded);
+			writeBufferToFile(sizeNeeded, flippedFile);
 		}
 
 		if (flippedFile) {
@@ -155,9 +167,37 @@ public class LogBufferPool {
 	public void writeBufferToFile(int sizeNeeded) throws IOException,
 			DatabaseException {
 
+		writeBufferToFile(sizeNeeded, true);
+	}
+
+	/**
+	 * @param mustWrite
+	 *            if false and the log writer is running, the buffer is queued
+	 *            for the log writer instead of being written by this thread.
+	 */
+	private void writeBufferToFile(int sizeNeeded, boolean mustWrite)
+			throws IOException, DatabaseException {
+
+		boolean queueBuffer = !mustWrite && !runInMemory
+				&& logWriter.isActive();
+
+		/*
+		 * A synchronous write must not overtake buffers that are still
+		 * queued.
+		 */
+		if (!queueBuffer && !runInMemory) {
+			logWriter.drainQueue();
+		}
+
 		int bufferSize = ((logBufferSize > sizeNeeded) ? logBufferSize
 				: sizeNeeded);
 
+		/*
+		 * Entries copied in outside the log write latch must all have landed
+		 * before the buffer can be flipped and written.
+		 */
+		currentWriteBuffer.waitForCopies();
+
 		/* We're done with the buffer, flip to make it readable. */
 		LogBuffer latchedBuffer = currentWriteBuffer;
 		try {
@@ -173,6 +213,16 @@ public class LogBufferPool {
 				latchedBuffer = null;
 				/* We're supposed to run in-memory, allocate another buffer. */
 				hook_allocateBuffer(bufferSize);
+			} else if (queueBuffer) {
+
+				/*
+				 * The buffer stays in the pool, readable, while it waits for
+				 * the log writer. Move on to a clean buffer.
+				 */
+				logWriter.queueBuffer(currentWriteBuffer);
+				latchedBuffer.release();
+				latchedBuffer = null;
+				hook_getNextToUse();
 			} else {
 
 				/*
@@ -208,8 +258,24 @@ public class LogBufferPool {
 	}
 
 	private LogBuffer hook_getNextToUse() throws DatabaseException {
+
+		/*
+		 * Use the oldest buffer that isn't waiting for the log writer. If all
+		 * of them are, wait for the oldest one to be written.
+		 */
 		Iterator iter = bufferPool.iterator();
-		LogBuffer nextToUse = (LogBuffer) iter.next();
+		LogBuffer nextToUse = null;
+		while (iter.hasNext()) {
+			LogBuffer buffer = (LogBuffer) iter.next();
+			if (!buffer.isWritePending()) {
+				nextToUse = buffer;
+				break;
+			}
+		}
+		if (nextToUse == null) {
+			nextToUse = (LogBuffer) bufferPool.getFirst();
+			logWriter.waitForCleanBuffer(nextToUse);
+		}
 
 		boolean done = bufferPool.remove(nextToUse);
 		assert done;
@@ -230,18 +296,36 @@ public class LogBufferPool {
 		bufferPool.add(currentWriteBuffer);
 	}
 
+	LogWriter getLogWriter() {
+		return logWriter;
+	}
+
 	/**
-	 * A loggable object has been freshly marshalled into the write log buffer.
-	 * 1. Update buffer so it knows what LSNs it contains. 2. If this object
-	 * requires a flush, write this buffer out to the backing file. Assumes log
-	 * write latch is held.
+	 * Reserve room in the current write buffer for the entry at this LSN.
+	 * Registers the LSN with the buffer so it knows what it contains. Assumes
+	 * the log write latch is held and getWriteBuffer was called first.
+	 * 
+	 * @return the reserved slice, to be filled outside the log write latch.
 	 */
-	void writeCompleted(long lsn, boolean flushRequired)
-			throws DatabaseException, IOException {
+	ByteBuffer reserve(long lsn, int entrySize) throws DatabaseException {
+
+		return currentWriteBuffer.reserve(lsn, entrySize);
+	}
 
-		currentWriteBuffer.registerLsn(lsn);
-		if (flushRequired) {
+	/**
+	 * Write the current buffer out if it still holds this LSN. If it does not,
+	 * the buffer holding the LSN has already been written, because buffers
+	 * are written in LSN order. Assumes log write latch is held.
+	 */
+	void writeBufferContaining(long lsn) throws DatabaseException,
+			IOException {
+
+		if (currentWriteBuffer.containsLsn(lsn)) {
 			writeBufferToFile(0);
+		} else if (!runInMemory) {
+
+			/* The LSN may be in a buffer still queued for the log writer. */
+			logWriter.drainQueue();
 		}
 	}
 
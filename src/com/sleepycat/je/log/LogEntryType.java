@@ -104,16 +104,16 @@ public class LogEntryType {
 					com.sleepycat.je.tree.FileSummaryLN.class, false));
 
 	public static final LogEntryType LOG_IN = new LogEntryType((byte) 12,
-			(byte) 2, "IN", new INLogEntry(com.sleepycat.je.tree.IN.class));
+			(byte) 3, "IN", new INLogEntry(com.sleepycat.je.tree.IN.class));
 
 	public static final LogEntryType LOG_BIN = new LogEntryType((byte) 13,
-			(byte) 2, "BIN", new INLogEntry(com.sleepycat.je.tree.BIN.class));
+			(byte) 3, "BIN", new INLogEntry(com.sleepycat.je.tree.BIN.class));
 
 	public static final LogEntryType LOG_DIN = new LogEntryType((byte) 14,
-			(byte) 2, "DIN", new INLogEntry(com.sleepycat.je.tree.DIN.class));
+			(byte) 3, "DIN", new INLogEntry(com.sleepycat.je.tree.DIN.class));
 
 	public static final LogEntryType LOG_DBIN = new LogEntryType((byte) 15,
-			(byte) 2, "DBIN", new INLogEntry(com.sleepycat.je.tree.DBIN.class));
+			(byte) 3, "DBIN", new INLogEntry(com.sleepycat.je.tree.DBIN.class));
 
 	public static final LogEntryType[] IN_TYPES = { LogEntryType.LOG_IN,
 			LogEntryType.LOG_BIN, LogEntryType.LOG_DIN, LogEntryType.LOG_DBIN, };
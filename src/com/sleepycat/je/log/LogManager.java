@@ -27,6 +27,7 @@ import com.sleepycat.je.config.EnvironmentParams;
 import com.sleepycat.je.dbi.DbConfigManager;
 import com.sleepycat.je.dbi.EnvironmentImpl;
 import com.sleepycat.je.log.entry.LogEntry;
+import com.sleepycat.je.recovery.Checkpointer;
 import com.sleepycat.je.utilint.DbLsn;
 import com.sleepycat.je.utilint.TestHook;
 
@@ -112,6 +113,13 @@ abstract public class LogManager {
 		this.lastLsnAtRecovery = lastLsnAtRecovery;
 	}
 
+	/**
+	 * @return the daemon that writes full log buffers in the background.
+	 */
+	public LogWriter getLogWriter() {
+		return logBufferPool.getLogWriter();
+	}
+
 	/**
 	 * Reset the pool when the cache is resized. This method is called after the
 	 * memory budget has been calculated.
@@ -135,12 +143,12 @@ abstract public class LogManager {
 	 *            if true, log files should also be fsynced.
 	 * @return LSN of the new log entry
 	 */
-	public long logForceFlush(LoggableObject item/*FSync, boolean fsyncRequired*/)
+	public long logForceFlush(LoggableObject item, boolean fsyncRequired)
 			throws DatabaseException {
 
 		return log(item, false, // is provisional
 				true, // flush required
-				//FSync fsyncRequired, 
+				fsyncRequired, // fsync required
 				false, // forceNewLogFile
 				DbLsn.NULL_LSN); // oldNodeLsn, for obsolete counting.
 	}
@@ -158,7 +166,7 @@ abstract public class LogManager {
 
 		return log(item, false, // is provisional
 				true, // flush required
-//				FSync false, // fsync required
+				false, // fsync required
 				true, // forceNewLogFile
 				DbLsn.NULL_LSN); // oldNodeLsn, for obsolete counting.
 	}
@@ -172,7 +180,7 @@ abstract public class LogManager {
 
 		return log(item, false, // is provisional
 				false, // flush required
-//				FSync false, // fsync required
+				false, // fsync required
 				false, // forceNewLogFile
 				DbLsn.NULL_LSN); // old lsn
 	}
@@ -186,7 +194,7 @@ abstract public class LogManager {
 			throws DatabaseException {
 
 		return log(item, isProvisional, false, // flush required
-//				FSync false, // fsync required
+				false, // fsync required
 				false, // forceNewLogFile
 				oldNodeLsn);
 	}
@@ -209,7 +217,7 @@ abstract public class LogManager {
 	 * @return LSN of the new log entry
 	 */
 	private long log(LoggableObject item, boolean isProvisional,
-			boolean flushRequired, /*FSync boolean fsyncRequired,*/
+			boolean flushRequired, boolean fsyncRequired,
 			boolean forceNewLogFile, long oldNodeLsn) throws DatabaseException {
 
 		if (readOnly) {
@@ -239,6 +247,25 @@ abstract public class LogManager {
 					forceNewLogFile, oldNodeLsn, marshallOutsideLatch,
 					marshalledBuffer, tracker);
 
+			/*
+			 * Copy the entry into its log buffer reservation outside the log
+			 * write latch, then write the buffer out if a flush is needed.
+			 */
+			if (logResult.reservedBuffer != null) {
+				copyToReservation(logResult);
+			}
+
+			/*
+			 * If the txn is not null, the first item is an LN. Update the txn
+			 * with info about the latest LSN, now that the entry is in its log
+			 * buffer.
+			 */
+			item.postLogWork(logResult.currentLsn);
+
+			if (flushRequired && !logResult.flushed) {
+				flushLsn(logResult.currentLsn);
+			}
+
 		} catch (BufferOverflowException e) {
 
 			/*
@@ -271,9 +298,9 @@ abstract public class LogManager {
 		 * If this logged object needs to be fsynced, do so now using the group
 		 * commit mechanism.
 		 */
-//		FSync		if (fsyncRequired) {
-//			fileManager.groupSync();
-//		}
+		if (fsyncRequired) {
+			fileManager.groupSync();
+		}
 
 		return hook_processLogResult(logResult);
 	}
@@ -287,6 +314,10 @@ abstract public class LogManager {
 		if (logResult.wakeupCleaner) {
 			tracker.activateCleaner();
 		}
+		Checkpointer checkpointer = envImpl.getCheckpointer();
+		if (checkpointer != null) {
+			checkpointer.wakeupAfterWrite();
+		}
 
 		return logResult.currentLsn;
 	}
@@ -299,7 +330,9 @@ abstract public class LogManager {
 			UtilizationTracker tracker) throws IOException, DatabaseException;
 
 	/**
-	 * Called within the log write critical section.
+	 * Called within the log write critical section. Only assigns the LSN and
+	 * reserves log buffer space for the entry; the caller fills the
+	 * reservation after leaving the critical section.
 	 */
 	protected LogResult logInternal(LoggableObject item, boolean isProvisional,
 			boolean flushRequired, boolean forceNewLogFile, long oldNodeLsn,
@@ -323,9 +356,9 @@ abstract public class LogManager {
 		/*
 		 * Get the next free slot in the log, under the log write latch. Bump
 		 * the LSN values, which gives us a valid previous pointer, which is
-		 * part of the log entry header. That's why doing the checksum must be
-		 * in the log write latch -- we need to bump the LSN first, and bumping
-		 * the LSN must be done within the log write latch.
+		 * part of the log entry header. The previous pointer is captured here,
+		 * but it is written into the entry, and the checksum computed, after
+		 * the latch is released.
 		 */
 
 		if (forceNewLogFile) {
@@ -335,7 +368,9 @@ abstract public class LogManager {
 		boolean flippedFile = fileManager.bumpLsn(entrySize);
 		long currentLsn = DbLsn.NULL_LSN;
 		boolean wakeupCleaner = false;
-		boolean usedTemporaryBuffer = false;
+		long prevOffset = 0;
+		LogBuffer reservedLogBuffer = null;
+		ByteBuffer reservedBuffer = null;
 		try {
 			currentLsn = fileManager.getLastUsedLsn();
 
@@ -379,10 +414,7 @@ abstract public class LogManager {
 			 */
 			LogBuffer useLogBuffer = logBufferPool.getWriteBuffer(entrySize,
 					flippedFile);
-
-			/* Add checksum to entry. */
-			marshalledBuffer = addPrevOffset(marshalledBuffer,
-					fileManager.getPrevEntryOffset(), entrySize);
+			prevOffset = fileManager.getPrevEntryOffset();
 
 			/*
 			 * If the LogBufferPool buffer (useBuffer) doesn't have sufficient
@@ -390,32 +422,57 @@ abstract public class LogManager {
 			 * and throw it away when we're done. That way we don't grow the
 			 * LogBuffers in the pool permanently. We risk an OOME on this
 			 * temporary usage, but we'll risk it. [#12674]
+			 * 
+			 * Otherwise only reserve the space here. The prev offset, the
+			 * checksum and the copy into the log buffer are done by the caller
+			 * after the log write latch is released, so that many threads can
+			 * fill their reservations in parallel.
 			 */
 			hook_beforeGetData(useLogBuffer);
 			try {
 				ByteBuffer useBuffer = useLogBuffer.getDataBuffer();
 				if (useBuffer.capacity() - useBuffer.position() < entrySize) {
+					marshalledBuffer = addPrevOffset(marshalledBuffer,
+							prevOffset, entrySize);
+
+					/*
+					 * Earlier entries may sit in buffers still queued for the
+					 * log writer. Write them first, so that once this entry
+					 * is in the file, everything before it is too.
+					 */
+					logBufferPool.getLogWriter().drainQueue();
 					fileManager.writeLogBuffer(new LogBuffer(marshalledBuffer,
 							currentLsn));
-					usedTemporaryBuffer = true;
 					assert useBuffer.position() == 0;
 				} else {
-					/* Copy marshalled object into write buffer. */
-					useBuffer.put(marshalledBuffer);
+					reservedLogBuffer = useLogBuffer;
+					reservedBuffer = logBufferPool.reserve(currentLsn,
+							entrySize);
 				}
 			} finally {
 				useLogBuffer.release();
 			}
 		} catch (Exception e) {
 
+			/*
+			 * Once space is reserved, later entries may be placed behind it,
+			 * so a failure can't be backed out. Release the reservation so
+			 * the buffer isn't waited on forever, and invalidate the
+			 * environment, since the reserved bytes will never be filled.
+			 */
+			if (reservedLogBuffer != null) {
+				reservedLogBuffer.copyCompleted();
+				throw new RunRecoveryException(envImpl, e);
+			}
+
 			/*
 			 * The LSN pointer, log buffer position, and corresponding file
 			 * position march in lockstep.
 			 * 
-			 * 1. We bump the LSN. 2. We copy loggable item into the log buffer.
-			 * 3. We may try to write the log buffer.
+			 * 1. We bump the LSN. 2. We reserve room for the item in the log
+			 * buffer. 3. We may try to write the log buffer.
 			 * 
-			 * If we've failed to put the item into the log buffer (2), we need
+			 * If we've failed to reserve room in the log buffer (2), we need
 			 * to restore old LSN state so that the log buffer doesn't have a
 			 * hole. [SR #12638] If we fail after (2), we don't need to restore
 			 * state, because log buffers will still match file positions.
@@ -430,24 +487,62 @@ abstract public class LogManager {
 			}
 		}
 
-		/*
-		 * Tell the log buffer pool that we finished the write. Record the LSN
-		 * against this logbuffer, and write the buffer to disk if needed.
-		 */
-		if (!usedTemporaryBuffer) {
-			logBufferPool.writeCompleted(currentLsn, flushRequired);
+		LogResult logResult = new LogResult(currentLsn, wakeupCleaner);
+		if (reservedBuffer != null) {
+			logResult.reservedLogBuffer = reservedLogBuffer;
+			logResult.reservedBuffer = reservedBuffer;
+			logResult.marshalledBuffer = marshalledBuffer;
+			logResult.prevOffset = prevOffset;
+			logResult.entrySize = entrySize;
+		} else if (flushRequired) {
+
+			/*
+			 * The temporary buffer was written directly after the queue was
+			 * drained, so the log up to this entry is in the file. An fsync,
+			 * if required, is still done by the caller.
+			 */
+			logResult.flushed = true;
 		}
+		return logResult;
+	}
 
-		/*
-		 * If the txn is not null, the first item is an LN. Update the txn with
-		 * info about the latest LSN. Note that this has to happen within the
-		 * log write latch.
-		 */
-		item.postLogWork(currentLsn);
+	/**
+	 * Fill the log buffer space reserved by logInternal. Called outside the
+	 * log write latch, so copies made by different threads proceed in
+	 * parallel. The reservation is always marked complete, otherwise the
+	 * buffer could never be written.
+	 */
+	private void copyToReservation(LogResult logResult)
+			throws DatabaseException {
 
-		
+		try {
+			ByteBuffer marshalledBuffer = addPrevOffset(
+					logResult.marshalledBuffer, logResult.prevOffset,
+					logResult.entrySize);
+			logResult.reservedBuffer.put(marshalledBuffer);
+		} catch (RuntimeException e) {
 
-		return new LogResult(currentLsn, wakeupCleaner);
+			/*
+			 * The LSN range has already been handed out and later entries may
+			 * have been placed behind it, so the hole can't be backed out.
+			 */
+			throw new RunRecoveryException(envImpl, e);
+		} finally {
+			logResult.reservedLogBuffer.copyCompleted();
+		}
+	}
+
+	/**
+	 * Write the log buffer holding this LSN to the file, if that hasn't
+	 * happened yet. Takes the log write latch.
+	 */
+	abstract protected void flushLsn(long lsn) throws IOException,
+			DatabaseException;
+
+	protected void flushLsnInternal(long lsn) throws IOException,
+			DatabaseException {
+
+		logBufferPool.writeBufferContaining(lsn);
 	}
 
 	private int getEntrySize(LoggableObject item, boolean marshallOutsideLatch, ByteBuffer marshalledBuffer) {
@@ -704,11 +799,18 @@ abstract public class LogManager {
 		 */
 		LogBuffer logBuffer = logBufferPool.getReadBuffer(lsn);
 
+		if (logBuffer != null) {
+
+			/* The entry may still be being copied in by its writer. */
+			logBuffer.waitForCopies();
+		}
+
 		if (logBuffer == null) {
 			try {
 				/* Not in the in-memory log -- read it off disk. */
-				return new FileHandleSource(fileManager.getFileHandle(DbLsn
-						.getFileNumber(lsn)), readBufferSize, fileManager);
+				long fileNum = DbLsn.getFileNumber(lsn);
+				return new FileHandleSource(fileManager.getFileHandle(fileNum),
+						fileNum, readBufferSize, fileManager);
 			} catch (LogFileNotFoundException e) {
 				/* Add LSN to exception message. */
 				throw new LogFileNotFoundException(DbLsn.getNoFormatString(lsn)
@@ -811,6 +913,21 @@ abstract public class LogManager {
 
 		boolean wakeupCleaner;
 
+		/* Log buffer space reserved for the entry, or null if none. */
+		LogBuffer reservedLogBuffer;
+
+		ByteBuffer reservedBuffer;
+
+		/* The marshalled entry and its header info, to fill the reservation. */
+		ByteBuffer marshalledBuffer;
+
+		long prevOffset;
+
+		int entrySize;
+
+		/* True if the entry was already written to the file. */
+		boolean flushed;
+
 		LogResult(long currentLsn, boolean wakeupCleaner) {
 			this.currentLsn = currentLsn;
 			this.wakeupCleaner = wakeupCleaner;
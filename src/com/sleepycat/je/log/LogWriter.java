@@ -0,0 +1,229 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.log;
+
+import java.util.LinkedList;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.utilint.DaemonThread;
+
+/**
+ * The LogWriter is a daemon that writes full log buffers to the log file, so
+ * that the thread which filled a buffer doesn't pay for the file write.
+ *
+ * Full buffers are queued in LSN order by the LogBufferPool and are written
+ * oldest first. A queued buffer stays in the pool, readable, until it has been
+ * written; only then can it be reused. Writes are serialized by writeMutex, so
+ * the order of buffers in the file is always the order of the queue. The file
+ * write itself is serialized with every other log buffer write inside
+ * FileManager.writeLogBuffer.
+ *
+ * No caller ever depends on the daemon for progress. A thread that needs a
+ * clean buffer, or that must flush the log, writes the queued buffers itself
+ * if the daemon hasn't gotten to them yet. This keeps flushes, file flips and
+ * environment close correct even if the daemon is paused or shut down.
+ */
+public class LogWriter extends DaemonThread {
+
+	private FileManager fileManager;
+
+	/* LogBuffers waiting to be written, oldest first. */
+	private LinkedList writeQueue;
+
+	/* Serializes file writes of queued buffers. */
+	private Object writeMutex;
+
+	/* True while the daemon is running and buffers may be queued. */
+	private volatile boolean active;
+
+	/* Stats */
+	private long nBuffersWritten;
+
+	private long nBytesWritten;
+
+	private long writeMillis;
+
+	private long nBlocked;
+
+	private long blockedMillis;
+
+	private int maxQueueSize;
+
+	LogWriter(long waitTime, String name, EnvironmentImpl env,
+			FileManager fileManager) {
+		super(waitTime, name, env);
+		this.fileManager = fileManager;
+		writeQueue = new LinkedList();
+		writeMutex = new Object();
+		active = false;
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("<LogWriter name=\"").append(name).append("\"/>");
+		return sb.toString();
+	}
+
+	/**
+	 * Queue buffers for the daemon only while it runs.
+	 */
+	public void runOrPause(boolean run) {
+		active = run;
+		super.runOrPause(run);
+	}
+
+	public void requestShutdown() {
+		active = false;
+		super.requestShutdown();
+	}
+
+	public void shutdown() {
+		active = false;
+		super.shutdown();
+	}
+
+	/**
+	 * @return true if full buffers should be handed to the daemon rather than
+	 *         written by the calling thread.
+	 */
+	boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Queue a full, flipped buffer for writing. Called under the log write
+	 * latch, in LSN order.
+	 */
+	void queueBuffer(LogBuffer fullBuffer) {
+		synchronized (this) {
+			fullBuffer.setWritePending(true);
+			writeQueue.addLast(fullBuffer);
+			if (writeQueue.size() > maxQueueSize) {
+				maxQueueSize = writeQueue.size();
+			}
+		}
+		wakeup();
+	}
+
+	public synchronized int getQueueSize() {
+		return writeQueue.size();
+	}
+
+	/**
+	 * Write all queued buffers. Called before any synchronous write of the log
+	 * end, so that buffers reach the file in LSN order.
+	 */
+	void drainQueue() throws DatabaseException {
+		writeQueuedBuffers(null);
+	}
+
+	/**
+	 * Called under the log write latch when every log buffer is still waiting
+	 * to be written. Blocks until the given buffer is clean, helping with the
+	 * writes if the daemon hasn't done them yet.
+	 */
+	void waitForCleanBuffer(LogBuffer buffer) throws DatabaseException {
+		long startTime = System.currentTimeMillis();
+		writeQueuedBuffers(buffer);
+		synchronized (this) {
+			nBlocked++;
+			blockedMillis += System.currentTimeMillis() - startTime;
+		}
+	}
+
+	/**
+	 * Write queued buffers, oldest first, until the queue is empty or, if
+	 * untilClean is non-null, until that buffer has been written.
+	 */
+	private void writeQueuedBuffers(LogBuffer untilClean)
+			throws DatabaseException {
+
+		synchronized (writeMutex) {
+			while (true) {
+				LogBuffer buffer;
+				synchronized (this) {
+					if (writeQueue.isEmpty()) {
+						return;
+					}
+					if (untilClean != null && !untilClean.isWritePending()) {
+						return;
+					}
+					buffer = (LogBuffer) writeQueue.getFirst();
+				}
+
+				long startTime = System.currentTimeMillis();
+				fileManager.writeLogBuffer(buffer);
+
+				/* Rewind so readers can see this. */
+				buffer.getDataBuffer().rewind();
+
+				synchronized (this) {
+					writeQueue.removeFirst();
+					buffer.setWritePending(false);
+					nBuffersWritten++;
+					nBytesWritten += buffer.getDataBuffer().limit();
+					writeMillis += System.currentTimeMillis() - startTime;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called whenever the DaemonThread wakes up from a sleep.
+	 */
+	protected void onWakeup() throws DatabaseException {
+		writeQueuedBuffers(null);
+	}
+
+	/**
+	 * @return the number of buffers written from the queue.
+	 */
+	public long getNBuffersWritten() {
+		return nBuffersWritten;
+	}
+
+	/**
+	 * @return the number of bytes written from the queue.
+	 */
+	public long getNBytesWritten() {
+		return nBytesWritten;
+	}
+
+	/**
+	 * @return the time spent writing queued buffers, in milliseconds. Together
+	 *         with getNBytesWritten this gives the write throughput.
+	 */
+	public long getWriteMillis() {
+		return writeMillis;
+	}
+
+	/**
+	 * @return the number of times a logging thread found no clean buffer.
+	 */
+	public long getNBlocked() {
+		return nBlocked;
+	}
+
+	/**
+	 * @return the time logging threads spent waiting for a clean buffer, in
+	 *         milliseconds.
+	 */
+	public long getBlockedMillis() {
+		return blockedMillis;
+	}
+
+	/**
+	 * @return the largest number of buffers that were queued at once.
+	 */
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+}
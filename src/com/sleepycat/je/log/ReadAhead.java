@@ -0,0 +1,131 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.log;
+
+import java.nio.ByteBuffer;
+
+import com.sleepycat.je.DatabaseException;
+
+/**
+ * Reads the next chunk of a log file in the background for a FileReader, so
+ * that the I/O overlaps with the parsing of the current chunk. There is at
+ * most one read outstanding.
+ *
+ * The thread is started by the first read and exits after being idle for
+ * IDLE_MILLIS. FileReaders are not closed, so this is what cleans up after a
+ * reader that is abandoned before the end of the log.
+ */
+class ReadAhead implements Runnable {
+
+	private static final long IDLE_MILLIS = 1000;
+
+	private FileManager fileManager;
+
+	private Thread thread;
+
+	/* The chunk being read, and the buffer it is read into. */
+	private long fileNum;
+
+	private long offset;
+
+	private ByteBuffer buffer;
+
+	/* True from startRead until the read completes. */
+	private boolean pending;
+
+	private Throwable error;
+
+	ReadAhead(FileManager fileManager) {
+		this.fileManager = fileManager;
+	}
+
+	/**
+	 * Start reading the chunk at offset in the file into buffer. The buffer
+	 * belongs to the ReadAhead until waitForRead returns. Must not be called
+	 * while a read is pending.
+	 */
+	synchronized void startRead(long fileNum, long offset, ByteBuffer buffer) {
+		this.fileNum = fileNum;
+		this.offset = offset;
+		this.buffer = buffer;
+		buffer.clear();
+		error = null;
+		pending = true;
+		if (thread == null) {
+			thread = new Thread(this, "ReadAhead");
+			thread.setDaemon(true);
+			thread.start();
+		} else {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Wait for the pending read to complete.
+	 *
+	 * @return true if the buffer was filled, positioned after the bytes read;
+	 *         false if the read failed and the caller should read the chunk
+	 *         itself.
+	 */
+	synchronized boolean waitForRead() throws DatabaseException {
+		while (pending) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new DatabaseException(e);
+			}
+		}
+		return error == null;
+	}
+
+	public void run() {
+		while (true) {
+			long readFileNum;
+			long readOffset;
+			ByteBuffer readBuffer;
+			synchronized (this) {
+				if (!pending) {
+					try {
+						wait(IDLE_MILLIS);
+					} catch (InterruptedException e) {
+
+						/* Klockwork - ok */
+					}
+					if (!pending) {
+						thread = null;
+						return;
+					}
+				}
+				readFileNum = fileNum;
+				readOffset = offset;
+				readBuffer = buffer;
+			}
+
+			Throwable readError = null;
+			try {
+				FileHandle fileHandle = fileManager.getFileHandle(readFileNum);
+				try {
+					fileManager.readFromFile(fileHandle.getFile(), readBuffer,
+							readOffset);
+				} finally {
+					fileHandle.release();
+				}
+			} catch (Throwable e) {
+				readError = e;
+			}
+
+			synchronized (this) {
+				error = readError;
+				pending = false;
+				notifyAll();
+			}
+		}
+	}
+}
@@ -58,6 +58,16 @@ public class SyncedLogManager extends LogManager {
 		}
 	}
 
+	/**
+	 * @see LogManager#flushLsn
+	 */
+	protected void flushLsn(long lsn) throws IOException, DatabaseException {
+
+		synchronized (this) {
+			flushLsnInternal(lsn);
+		}
+	}
+
 	/**
 	 * @see LogManager#getUnflushableTrackedSummary
 	 */
@@ -9,6 +9,8 @@
 
 package com.sleepycat.je.recovery;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -27,6 +29,7 @@ import com.sleepycat.je.dbi.DatabaseImpl;
 import com.sleepycat.je.dbi.DbConfigManager;
 import com.sleepycat.je.dbi.DbTree;
 import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.dbi.HotSetSnapshot;
 import com.sleepycat.je.dbi.INList;
 import com.sleepycat.je.dbi.LogBufferBudget;
 import com.sleepycat.je.log.LogManager;
@@ -45,8 +48,13 @@ import com.sleepycat.je.utilint.PropUtil;
  * The Checkpointer looks through the tree for internal nodes that must be
  * flushed to the log. Checkpoint flushes must be done in ascending order from
  * the bottom of the tree up.
+ *
+ * As a daemon, the checkpointer is woken by the LogManager once enough has
+ * been logged since the last checkpoint, or once the log that recovery would
+ * have to read exceeds the recovery time target. If a wakeup interval is
+ * configured, it also wakes up on that schedule.
  */
-public class Checkpointer {
+public class Checkpointer extends DaemonThread {
 
 	// temporary result object to return three result values
 	public class CheckpointStartResult {
@@ -66,7 +74,11 @@ public class Checkpointer {
 
 	}
 
-	public final static long BYTES_INTERVAL = 20000000;
+	/* The invokingSource of checkpoints run by the daemon thread. */
+	private static final String DAEMON_SOURCE = "daemon";
+
+	/* The invokingSource of the checkpoint at close, see EnvironmentImpl. */
+	private static final String CLOSE_SOURCE = "close";
 
 	// changed to public
 	public EnvironmentImpl envImpl;
@@ -76,16 +88,69 @@ public class Checkpointer {
 	/* Checkpoint sequence, initialized at recovery. */
 	private long checkpointId;
 
-	// /*
-	// * How much the log should grow between checkpoints. If 0, we're using
-	// time
-	// * based checkpointing.
-	// */
-	// private long logSizeBytesInterval;
+	/*
+	 * How much the log should grow between checkpoints. If 0, we're using time
+	 * based checkpointing.
+	 */
+	private long logSizeBytesInterval;
+
+	/*
+	 * How much log recovery may have to read, derived from the recovery time
+	 * target. If 0, recovery time doesn't trigger checkpoints.
+	 */
+	private long recoveryBytesTarget;
 
 	private long logFileMax;
 
-	// private long timeInterval;
+	/* Time between checkpoints in millis, or 0 if not time based. */
+	private long timeInterval;
+
+	/* Bytes per second written by daemon checkpoints, or 0 if unlimited. */
+	private long maxFlushRate;
+
+	/* Percent of the checkpoint interval that daemon flushes are spread over. */
+	private int flushSpreadPercent;
+
+	/* Number of nodes flushed between pauses when pacing. */
+	private int flushBatchSize;
+
+	/* True while the current checkpoint paces its flushes. */
+	private boolean paceFlushes;
+
+	/*
+	 * Number of explicit checkpoints waiting for the one in progress. A paced
+	 * daemon checkpoint stops pacing as soon as one is waiting, so that the
+	 * caller isn't held up by the spread schedule. Guarded by waitersMutex,
+	 * since the waiters can't take the checkpointer's monitor.
+	 */
+	private int nWaitingCheckpoints;
+
+	private Object waitersMutex = new Object();
+
+	/* Time between the starts of the last two checkpoints. */
+	private long lastIntervalMillis;
+
+	/*
+	 * Flush progress of the running checkpoint, or of the last one if none is
+	 * running. Only the checkpointing thread updates these; the stats getters
+	 * read them unsynchronized. Dirty bytes are estimated from the nodes' log
+	 * sizes when they were selected, while bytesWritten adds up the entries
+	 * the checkpoint logged itself.
+	 */
+	private volatile boolean flushing;
+
+	private volatile long flushStartMillis;
+
+	private volatile long flushEndMillis;
+
+	/* Time the flushes are spread over, or 0 if not spread. */
+	private volatile long flushTargetMillis;
+
+	private volatile long dirtyBytesTotal;
+
+	private volatile long dirtyBytesFlushed;
+
+	private volatile long bytesWritten;
 
 	private long lastCheckpointMillis;
 
@@ -104,18 +169,65 @@ public class Checkpointer {
 
 	public Checkpointer(EnvironmentImpl envImpl) throws DatabaseException {
 
+		super(getWakeupPeriod(envImpl.getConfigManager()), "Checkpointer",
+				envImpl);
 		this.envImpl = envImpl;
-		// logSizeBytesInterval = envImpl.getConfigManager().getLong(
-		// EnvironmentParams.CHECKPOINTER_BYTES_INTERVAL);
-		logFileMax = envImpl.getConfigManager().getLong(
-				EnvironmentParams.LOG_FILE_MAX);
+		DbConfigManager configManager = envImpl.getConfigManager();
+		logSizeBytesInterval = configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_BYTES_INTERVAL);
+		logFileMax = configManager.getLong(EnvironmentParams.LOG_FILE_MAX);
+
+		/* Recovery may read this many bytes in the target time. */
+		long recoveryMillis = PropUtil.microsToMillis(configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_RECOVERY_TIME_TARGET));
+		long recoveryReadRate = configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_RECOVERY_READ_RATE);
+		recoveryBytesTarget = (recoveryMillis / 1000) * recoveryReadRate
+				+ ((recoveryMillis % 1000) * recoveryReadRate) / 1000;
+		if (recoveryMillis != 0 && recoveryBytesTarget == 0) {
+			recoveryBytesTarget = 1;
+		}
 
-		// timeInterval = waitTime;
+		timeInterval = getWakeupPeriod(configManager);
+		maxFlushRate = configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_MAX_FLUSH_RATE);
+		flushSpreadPercent = configManager
+				.getInt(EnvironmentParams.CHECKPOINTER_FLUSH_SPREAD);
+		flushBatchSize = configManager
+				.getInt(EnvironmentParams.CHECKPOINTER_FLUSH_BATCH_SIZE);
 		lastCheckpointMillis = 0;
 		highestFlushLevel = IN.MIN_LEVEL;
 		logManager = envImpl.getLogManager();
 	}
 
+	/**
+	 * Figure out the wakeup period, in millis. If 0, the daemon only runs
+	 * when woken by the LogManager after log writes.
+	 */
+	public static long getWakeupPeriod(DbConfigManager configManager)
+			throws DatabaseException {
+
+		long wakeupPeriod = PropUtil.microsToMillis(configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_WAKEUP_INTERVAL));
+		long bytePeriod = configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_BYTES_INTERVAL);
+		long recoveryTarget = configManager
+				.getLong(EnvironmentParams.CHECKPOINTER_RECOVERY_TIME_TARGET);
+
+		/* Checkpointing must be driven by something. */
+		if (wakeupPeriod == 0 && bytePeriod == 0 && recoveryTarget == 0) {
+			throw new IllegalArgumentException(
+					EnvironmentParams.CHECKPOINTER_BYTES_INTERVAL.getName()
+							+ ", "
+							+ EnvironmentParams.CHECKPOINTER_WAKEUP_INTERVAL
+									.getName()
+							+ " and "
+							+ EnvironmentParams.CHECKPOINTER_RECOVERY_TIME_TARGET
+									.getName() + " may not all be 0.");
+		}
+		return wakeupPeriod;
+	}
+
 	public int getHighestFlushLevel() {
 		return highestFlushLevel;
 	}
@@ -129,10 +241,42 @@ public class Checkpointer {
 
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
-		sb.append("<Checkpointer name=\"Checkpointer\"/>");
+		sb.append("<Checkpointer name=\"").append(name).append("\"/>");
 		return sb.toString();
 	}
 
+	/**
+	 * Called by the LogManager after each log write. Wakes the daemon if the
+	 * log has grown enough to need a checkpoint. The check is unlatched; an
+	 * extra or a late wakeup is harmless, since the daemon calls isRunnable.
+	 */
+	public void wakeupAfterWrite() {
+		if ((logSizeBytesInterval != 0 || recoveryBytesTarget != 0)
+				&& !isRunning()) {
+			long nextLsn = envImpl.getFileManager().getNextLsn();
+			if ((logSizeBytesInterval != 0 && DbLsn.getNoCleaningDistance(
+					nextLsn, lastCheckpointEnd, logFileMax) >= logSizeBytesInterval)
+					|| (recoveryBytesTarget != 0 && DbLsn
+							.getNoCleaningDistance(nextLsn,
+									lastFirstActiveLsn, logFileMax) >= recoveryBytesTarget)) {
+				wakeup();
+			}
+		}
+	}
+
+	/**
+	 * Called whenever the DaemonThread wakes up from a sleep.
+	 */
+	protected void onWakeup() throws DatabaseException {
+
+		if (envImpl.isClosed()) {
+			return;
+		}
+
+		doCheckpoint(CheckpointConfig.DEFAULT, false, // flushAll
+				DAEMON_SOURCE);
+	}
+
 	/**
 	 * @return the first active LSN point of the last completed checkpoint. If
 	 *         no checkpoint has run, return null.
@@ -150,7 +294,7 @@ public class Checkpointer {
 
 	private long getBytesInterval(CheckpointConfig config)
 			throws DatabaseException {
-		return BYTES_INTERVAL;
+		return logSizeBytesInterval;
 	}
 
 	/**
@@ -158,11 +302,12 @@ public class Checkpointer {
 	 * 
 	 * 1. If the force parameter is specified, always checkpoint.
 	 * 
-	 * 2. If the config object specifies time or log size, use that.
-	 * 
-	 * 3. If the environment is configured to use log size based checkpointing,
+	 * 2. If the environment is configured to use log size based checkpointing,
 	 * check the log.
 	 * 
+	 * 3. If a recovery time target is configured, check how much log recovery
+	 * would have to read.
+	 * 
 	 * 4. Lastly, use time based checking.
 	 */
 	private boolean isRunnable(CheckpointConfig config)
@@ -189,6 +334,30 @@ public class Checkpointer {
 				return true;
 			}
 		}
+
+		/*
+		 * Recovery reads the log from the first active LSN of the last
+		 * checkpoint.
+		 */
+		if (recoveryBytesTarget != 0) {
+			nextLsn = envImpl.getFileManager().getNextLsn();
+			if (DbLsn.getNoCleaningDistance(nextLsn, lastFirstActiveLsn,
+					logFileMax) >= recoveryBytesTarget) {
+				return true;
+			}
+		}
+
+		/*
+		 * Use time based checkpointing, but only if something was logged
+		 * since the last checkpoint.
+		 */
+		if (timeInterval != 0) {
+			long lastUsedLsn = envImpl.getFileManager().getLastUsedLsn();
+			if (System.currentTimeMillis() - lastCheckpointMillis >= timeInterval
+					&& DbLsn.compareTo(lastUsedLsn, lastCheckpointEnd) != 0) {
+				return true;
+			}
+		}
 		return false;
 
 		// } finally {
@@ -224,13 +393,38 @@ public class Checkpointer {
 	 *            recovery, the checkpointer daemon, the cleaner,
 	 *            programatically)
 	 */
-	public synchronized void doCheckpoint(CheckpointConfig config,
-			boolean flushAll, String invokingSource) throws DatabaseException {
+	public void doCheckpoint(CheckpointConfig config, boolean flushAll,
+			String invokingSource) throws DatabaseException {
 
 		if (envImpl.isReadOnly()) {
 			return;
 		}
 
+		/*
+		 * Checkpoints run one at a time. Register an explicit checkpoint
+		 * before waiting for its turn, so that a paced daemon checkpoint
+		 * holding the monitor finishes its flushes without pausing.
+		 */
+		boolean explicit = !DAEMON_SOURCE.equals(invokingSource);
+		if (explicit) {
+			synchronized (waitersMutex) {
+				nWaitingCheckpoints++;
+				waitersMutex.notifyAll();
+			}
+		}
+		synchronized (this) {
+			if (explicit) {
+				synchronized (waitersMutex) {
+					nWaitingCheckpoints--;
+				}
+			}
+			doCheckpointInternal(config, flushAll, invokingSource);
+		}
+	}
+
+	private void doCheckpointInternal(CheckpointConfig config,
+			boolean flushAll, String invokingSource) throws DatabaseException {
+
 		if (!isRunnable(config)) {
 			return;
 		}
@@ -247,7 +441,18 @@ public class Checkpointer {
 			flushExtraLevel = true;
 		}
 
-		lastCheckpointMillis = System.currentTimeMillis();
+		long startMillis = System.currentTimeMillis();
+		if (lastCheckpointMillis != 0) {
+			lastIntervalMillis = startMillis - lastCheckpointMillis;
+		}
+		lastCheckpointMillis = startMillis;
+
+		/*
+		 * Only the daemon's checkpoints are paced. Someone waiting on an
+		 * explicit checkpoint, or on close, wants it done now.
+		 */
+		paceFlushes = (maxFlushRate != 0 || flushSpreadPercent != 0)
+				&& DAEMON_SOURCE.equals(invokingSource);
 
 		/* Get the next checkpoint id. */
 		checkpointId++;
@@ -321,7 +526,7 @@ public class Checkpointer {
 		 * ensure that this checkpoint is not wasted if we crash.
 		 */
 		lastCheckpointEnd = logManager
-				.logForceFlush(endEntry/* FSync, true */); // fsync
+				.logForceFlush(endEntry, true); // fsync
 		// required
 		lastFirstActiveLsn = firstActiveLsn;
 		lastCheckpointStart = checkpointStart;
@@ -337,6 +542,17 @@ public class Checkpointer {
 		if (cleanerFiles != null) {
 			cleaner.updateFilesAtCheckpointEnd(cleanerFiles);
 		}
+
+		/*
+		 * Save the resident INs for the next open. Not during recovery, whose
+		 * checkpoint would replace the snapshot before it is loaded, nor at
+		 * close, which saves the snapshot itself.
+		 */
+		HotSetSnapshot hotSetSnapshot = envImpl.getHotSetSnapshot();
+		if (hotSetSnapshot != null && envImpl.isOpen()
+				&& !CLOSE_SOURCE.equals(invokingSource)) {
+			hotSetSnapshot.saveIfDue(false);
+		}
 	}
 
 	private CheckpointStartResult hook_checkpointStart(String invokingSource,
@@ -411,38 +627,177 @@ public class Checkpointer {
 	 * Note that all but the top level INs and the BINDeltas are logged
 	 * provisionally. That's because we don't need to process lower INs because
 	 * the higher INs will end up pointing at them.
+	 *
+	 * Each level is flushed in the order of the nodes' last logged LSNs. If
+	 * paceFlushes is set, the nodes are written in batches of flushBatchSize,
+	 * pausing between batches so that no more than maxFlushRate bytes are
+	 * written per second and the writes are spread over flushTargetMillis.
 	 */
 	private void flushDirtyNodes(SortedMap dirtyMap, boolean flushAll,
 			boolean allowDeltas, boolean flushExtraLevel, long checkpointStart)
 			throws DatabaseException {
 
-		while (dirtyMap.size() > 0) {
+		flushStartMillis = System.currentTimeMillis();
+		flushTargetMillis = paceFlushes ? getFlushTargetMillis() : 0;
+		dirtyBytesTotal = getDirtyBytes(dirtyMap);
+		dirtyBytesFlushed = 0;
+		bytesWritten = 0;
+		flushing = true;
+		try {
+			while (dirtyMap.size() > 0) {
+
+				/* Work on one level's worth of nodes in ascending level order. */
+				Integer currentLevel = (Integer) dirtyMap.firstKey();
 
-			/* Work on one level's worth of nodes in ascending level order. */
-			Integer currentLevel = (Integer) dirtyMap.firstKey();
+				Set nodeSet = (Set) dirtyMap.get(currentLevel);
+				CheckpointReference[] targets = (CheckpointReference[]) nodeSet
+						.toArray(new CheckpointReference[nodeSet.size()]);
+				Arrays.sort(targets, new LsnComparator());
 
-			Set nodeSet = (Set) dirtyMap.get(currentLevel);
-			Iterator iter = nodeSet.iterator();
+				/* Flush all those nodes */
+				for (int i = 0; i < targets.length; i += 1) {
+					CheckpointReference targetRef = targets[i];
 
-			/* Flush all those nodes */
-			while (iter.hasNext()) {
-				CheckpointReference targetRef = (CheckpointReference) iter
-						.next();
+					hook_checkDeleted(targetRef, dirtyMap, allowDeltas,
+							checkpointStart);
 
-				hook_checkDeleted(targetRef, dirtyMap, allowDeltas,
-						checkpointStart);
+					nodeSet.remove(targetRef);
+					dirtyBytesFlushed += targetRef.logSize;
 
-				iter.remove();
+					/* Pause at the end of each batch. */
+					if (paceFlushes
+							&& ((i + 1) % flushBatchSize == 0 || i + 1 == targets.length)) {
+						paceFlush();
+					}
+				}
+
+				/* We're done with this level. */
+				dirtyMap.remove(currentLevel);
+
+				/* We can stop at this point. */
+				if (currentLevel.intValue() == highestFlushLevel) {
+					break;
+				}
 			}
+		} finally {
+			flushEndMillis = System.currentTimeMillis();
+			flushing = false;
+		}
+	}
+
+	/**
+	 * The time a paced checkpoint spreads its flushes over: a percentage of
+	 * the wakeup interval or, if checkpoints are driven by log size, of the
+	 * time between the last two checkpoints. Returns 0 if not spreading.
+	 */
+	private long getFlushTargetMillis() {
+		long interval = (timeInterval != 0) ? timeInterval : lastIntervalMillis;
+		return (interval * flushSpreadPercent) / 100;
+	}
+
+	/**
+	 * Sleep until the flushes so far are within maxFlushRate and not ahead of
+	 * the spread schedule. Pacing stops as soon as shutdown is requested or an
+	 * explicit checkpoint is waiting, so that neither close nor the caller
+	 * waits on a slow checkpoint.
+	 */
+	private void paceFlush() {
 
-			/* We're done with this level. */
-			dirtyMap.remove(currentLevel);
+		if (isShutdownRequested()) {
+			return;
+		}
+		long dueMillis = 0;
+		if (maxFlushRate != 0) {
+			dueMillis = (bytesWritten / maxFlushRate) * 1000
+					+ ((bytesWritten % maxFlushRate) * 1000) / maxFlushRate;
+		}
+		if (flushTargetMillis != 0 && dirtyBytesTotal != 0) {
+			long spreadMillis = (long) (flushTargetMillis
+					* ((double) dirtyBytesFlushed / dirtyBytesTotal));
+			if (spreadMillis > dueMillis) {
+				dueMillis = spreadMillis;
+			}
+		}
+		long sleepMillis = dueMillis
+				- (System.currentTimeMillis() - flushStartMillis);
+		synchronized (waitersMutex) {
+			if (sleepMillis > 0 && nWaitingCheckpoints == 0) {
+				try {
+					waitersMutex.wait(sleepMillis);
+				} catch (InterruptedException e) {
+
+					/* Klockwork - ok Finish the checkpoint unpaced. */
+					paceFlushes = false;
+				}
+			}
+			if (nWaitingCheckpoints > 0) {
+				paceFlushes = false;
+			}
+		}
+	}
 
-			/* We can stop at this point. */
-			if (currentLevel.intValue() == highestFlushLevel) {
-				break;
+	/**
+	 * @return the estimated log size of the nodes in the dirty map.
+	 */
+	private long getDirtyBytes(SortedMap dirtyMap) {
+		long bytes = 0;
+		Iterator levels = dirtyMap.values().iterator();
+		while (levels.hasNext()) {
+			Iterator refs = ((Set) levels.next()).iterator();
+			while (refs.hasNext()) {
+				bytes += ((CheckpointReference) refs.next()).logSize;
 			}
 		}
+		return bytes;
+	}
+
+	/**
+	 * @return the rate, in bytes per second, at which the running checkpoint
+	 *         or else the last one wrote dirty nodes.
+	 */
+	public long getFlushRate() {
+		long endMillis = flushing ? System.currentTimeMillis()
+				: flushEndMillis;
+		long elapsed = endMillis - flushStartMillis;
+		if (elapsed <= 0) {
+			return 0;
+		}
+		return (bytesWritten * 1000) / elapsed;
+	}
+
+	/**
+	 * @return the estimated number of bytes the running checkpoint has yet to
+	 *         flush, or 0 if no checkpoint is running.
+	 */
+	public long getRemainingDirtyBytes() {
+		if (!flushing) {
+			return 0;
+		}
+		long remaining = dirtyBytesTotal - dirtyBytesFlushed;
+		return (remaining > 0) ? remaining : 0;
+	}
+
+	/**
+	 * @return the estimated time, in milliseconds since the epoch, at which
+	 *         the running checkpoint will finish flushing, or 0 if no
+	 *         checkpoint is running. The estimate extrapolates the progress so
+	 *         far; until there is some, it is the end of the spread schedule.
+	 */
+	public long getEstimatedCompletionTime() {
+		if (!flushing) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		long flushed = dirtyBytesFlushed;
+		long elapsed = now - flushStartMillis;
+		if (flushed > 0 && elapsed > 0) {
+			return now + (long) (getRemainingDirtyBytes()
+					* ((double) elapsed / flushed));
+		}
+		if (flushTargetMillis != 0) {
+			return flushStartMillis + flushTargetMillis;
+		}
+		return now;
 	}
 
 	private void hook_checkDeleted(CheckpointReference targetRef,
@@ -486,9 +841,7 @@ public class Checkpointer {
 					dirtySet = new HashSet();
 					newDirtyMap.put(level, dirtySet);
 				}
-				dirtySet.add(new CheckpointReference(in.getDatabase(), in
-						.getNodeId(), in.containsDuplicates(), in.isDbRoot(),
-						in.getMainTreeKey(), in.getDupTreeKey()));
+				dirtySet.add(makeReference(in));
 			}
 //			} finally {
 //			 in.releaseLatch();
@@ -542,6 +895,7 @@ public class Checkpointer {
 					targetRef.nodeId);
 			tree.withRoot(flusher);
 			boolean flushed = flusher.getFlushed();
+			bytesWritten += flusher.getBytesWritten();
 
 			/*
 			 * If this target isn't the root anymore, we'll have to handle it
@@ -740,6 +1094,7 @@ public class Checkpointer {
 			newLsn = target.log(logManager, allowDeltas, logProvisionally,
 					true, // proactiveMigration
 					parent);
+			bytesWritten += target.getLastLoggedSize();
 			if (allowDeltas && newLsn == DbLsn.NULL_LSN) {
 				hook_deltaINFlush();
 
@@ -788,6 +1143,8 @@ public class Checkpointer {
 
 		private boolean stillRoot;
 
+		private int bytesWritten;
+
 		private LogManager logManager;
 
 		private long targetNodeId;
@@ -822,6 +1179,7 @@ public class Checkpointer {
 					long newLsn = rootIN.log(logManager);
 					root.setLsn(newLsn);
 					flushed = true;
+					bytesWritten = rootIN.getLastLoggedSize();
 				}
 			}
 			// } finally {
@@ -837,6 +1195,10 @@ public class Checkpointer {
 		boolean stillRoot() {
 			return stillRoot;
 		}
+
+		int getBytesWritten() {
+			return bytesWritten;
+		}
 	}
 
 	/**
@@ -853,10 +1215,42 @@ public class Checkpointer {
 			dirtyMap.put(inLevel, inSet);
 		}
 
-		/* Add to the set. */
-		inSet.add(new CheckpointReference(in.getDatabase(), in.getNodeId(), in
-				.containsDuplicates(), in.isDbRoot(), in.getMainTreeKey(), in
-				.getDupTreeKey()));
+		/* Add to the set, counting the parent's bytes for the flush stats. */
+		CheckpointReference ref = makeReference(in);
+		if (inSet.add(ref)) {
+			dirtyBytesTotal += ref.logSize;
+		}
+	}
+
+	/**
+	 * Make a reference to a dirty IN, remembering where it was last logged
+	 * and how big it is for ordering and pacing the flushes.
+	 */
+	private CheckpointReference makeReference(IN in) {
+		CheckpointReference ref = new CheckpointReference(in.getDatabase(), in
+				.getNodeId(), in.containsDuplicates(), in.isDbRoot(), in
+				.getMainTreeKey(), in.getDupTreeKey());
+		ref.lastLsn = in.getLastFullVersion();
+		ref.logSize = in.getLogSize();
+		return ref;
+	}
+
+	/*
+	 * Orders CheckpointReferences by the LSN of the node's last full version.
+	 * Nodes that were never logged go last.
+	 */
+	private static class LsnComparator implements Comparator {
+
+		public int compare(Object o1, Object o2) {
+			long lsn1 = ((CheckpointReference) o1).lastLsn;
+			long lsn2 = ((CheckpointReference) o2).lastLsn;
+			if (lsn1 == DbLsn.NULL_LSN) {
+				return (lsn2 == DbLsn.NULL_LSN) ? 0 : 1;
+			} else if (lsn2 == DbLsn.NULL_LSN) {
+				return -1;
+			}
+			return DbLsn.compareTo(lsn1, lsn2);
+		}
 	}
 
 	/*
@@ -894,6 +1288,12 @@ public class Checkpointer {
 
 		byte[] dupTreeKey;
 
+		/* Where the node was last logged, for flushing in LSN order. */
+		long lastLsn = DbLsn.NULL_LSN;
+
+		/* Estimated log size, for the flush stats and pacing. */
+		int logSize;
+
 		public CheckpointReference(DatabaseImpl db, long nodeId,
 				boolean containsDuplicates, boolean isDbRoot,
 				byte[] mainTreeKey, byte[] dupTreeKey) {
@@ -0,0 +1,194 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.recovery;
+
+import java.util.LinkedList;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.dbi.DatabaseId;
+import com.sleepycat.je.recovery.RecoveryManager.LNReplay;
+import com.sleepycat.je.tree.TreeLocation;
+
+/**
+ * Replays the LNs of one recovery pass on a set of worker threads. The
+ * recovery thread reads the log and dispatches each LN to the worker that
+ * owns its database, so that the LNs of a database are replayed one at a time
+ * and in log order, while different databases are replayed in parallel.
+ *
+ * Each worker has its own TreeLocation and RecoveryInfo counters; the counters
+ * are added to the pass's RecoveryInfo by finish, which is the barrier at the
+ * end of the pass.
+ */
+class ParallelReplayer {
+
+	/* LNs queued per worker before the reading thread waits. */
+	private static final int MAX_QUEUED = 1000;
+
+	private RecoveryManager recoveryManager;
+
+	private boolean undo;
+
+	private Worker[] workers;
+
+	private long startMillis;
+
+	/**
+	 * Starts nThreads workers for an undo or a redo pass.
+	 */
+	ParallelReplayer(RecoveryManager recoveryManager, int nThreads,
+			boolean undo) {
+		this.recoveryManager = recoveryManager;
+		this.undo = undo;
+		startMillis = System.currentTimeMillis();
+		workers = new Worker[nThreads];
+		for (int i = 0; i < nThreads; i += 1) {
+			workers[i] = new Worker((undo ? "RecoveryUndo-" : "RecoveryRedo-")
+					+ (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Queue an LN for the worker that owns its database. Waits if that
+	 * worker is far behind.
+	 */
+	void dispatch(DatabaseId dbId, LNReplay replay) throws DatabaseException {
+		int i = (dbId.getId() & 0x7fffffff) % workers.length;
+		workers[i].add(replay);
+	}
+
+	/**
+	 * Wait until every dispatched LN has been replayed, stop the workers and
+	 * add their stats to info. Rethrows the first error a worker hit.
+	 */
+	void finish(RecoveryInfo info) throws DatabaseException {
+
+		shutdown(false);
+		long elapsed = System.currentTimeMillis() - startMillis;
+
+		Throwable error = null;
+		for (int i = 0; i < workers.length; i += 1) {
+			Worker worker = workers[i];
+			if (error == null) {
+				error = worker.error;
+			}
+			info.lnFound += worker.info.lnFound;
+			info.lnNotFound += worker.info.lnNotFound;
+			info.lnInserted += worker.info.lnInserted;
+			info.lnReplaced += worker.info.lnReplaced;
+			info.workerMillis += elapsed;
+			info.workerBusyMillis += Math.max(0, elapsed - worker.idleMillis);
+		}
+		if (error instanceof DatabaseException) {
+			throw (DatabaseException) error;
+		} else if (error != null) {
+			throw new DatabaseException(error);
+		}
+	}
+
+	/**
+	 * Stop the workers. If discard is true, LNs that haven't been replayed
+	 * are dropped, which is done when the pass failed.
+	 */
+	void shutdown(boolean discard) throws DatabaseException {
+		for (int i = 0; i < workers.length; i += 1) {
+			workers[i].finishQueue(discard);
+		}
+		for (int i = 0; i < workers.length; i += 1) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+				throw new DatabaseException(e);
+			}
+		}
+	}
+
+	private class Worker extends Thread {
+
+		private LinkedList queue;
+
+		private boolean queueFinished;
+
+		private TreeLocation location;
+
+		RecoveryInfo info;
+
+		/* Time spent waiting for LNs to replay. */
+		long idleMillis;
+
+		Throwable error;
+
+		Worker(String name) {
+			super(name);
+			queue = new LinkedList();
+			location = new TreeLocation();
+			info = new RecoveryInfo();
+		}
+
+		synchronized void add(LNReplay replay) throws DatabaseException {
+			while (queue.size() >= MAX_QUEUED && error == null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new DatabaseException(e);
+				}
+			}
+			if (error != null) {
+				throw new DatabaseException("Recovery worker " + getName()
+						+ " failed", error);
+			}
+			queue.addLast(replay);
+			notifyAll();
+		}
+
+		synchronized void finishQueue(boolean discard) {
+			if (discard) {
+				queue.clear();
+			}
+			queueFinished = true;
+			notifyAll();
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					LNReplay replay;
+					synchronized (this) {
+						if (queue.isEmpty() && !queueFinished) {
+							long waitStart = System.currentTimeMillis();
+							while (queue.isEmpty() && !queueFinished) {
+								wait();
+							}
+							idleMillis += System.currentTimeMillis()
+									- waitStart;
+						}
+						if (queue.isEmpty()) {
+							return;
+						}
+						replay = (LNReplay) queue.removeFirst();
+						notifyAll();
+					}
+					if (undo) {
+						recoveryManager.undoLN(replay, location, info);
+					} else {
+						recoveryManager.redoLN(replay, location, info);
+					}
+				}
+			} catch (Throwable e) {
+				synchronized (this) {
+					error = e;
+					queue.clear();
+					notifyAll();
+				}
+			}
+		}
+	}
+}
@@ -64,6 +64,44 @@ public class RecoveryInfo {
 
 	public int lnReplaced;
 
+	public int numUndoLNs;
+
+	public int numRedoLNs;
+
+	// time taken by each pass in millis, indexed by pass number (1 to 10)
+	public long[] passMillis = new long[11];
+
+	// parallel LN passes: time the workers existed, and were replaying
+	public long workerMillis;
+
+	public long workerBusyMillis;
+
+	/**
+	 * @return the number of INs and LNs replayed per second over all passes.
+	 */
+	public long getReplayRate() {
+		long millis = 0;
+		for (int i = 1; i < passMillis.length; i += 1) {
+			millis += passMillis[i];
+		}
+		if (millis == 0) {
+			return 0;
+		}
+		long nReplayed = (long) numMapINs + numOtherINs + numBinDeltas
+				+ numDuplicateINs + numUndoLNs + numRedoLNs;
+		return (nReplayed * 1000) / millis;
+	}
+
+	/**
+	 * @return the percentage of time the parallel LN pass workers spent
+	 *         replaying, or 0 if the LN passes ran serially.
+	 */
+	public int getWorkerUtilization() {
+		if (workerMillis == 0) {
+			return 0;
+		}
+		return (int) ((workerBusyMillis * 100) / workerMillis);
+	}
 
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
@@ -93,6 +131,14 @@ public class RecoveryInfo {
 		sb.append(" lnNotFound=").append(lnNotFound);
 		sb.append(" lnInserted=").append(lnInserted);
 		sb.append(" lnReplaced=").append(lnReplaced);
+		sb.append(" numUndoLNs=").append(numUndoLNs);
+		sb.append(" numRedoLNs=").append(numRedoLNs);
+		sb.append(" passMillis=");
+		for (int i = 1; i < passMillis.length; i += 1) {
+			sb.append((i == 1) ? "" : ",").append(passMillis[i]);
+		}
+		sb.append(" replayRate=").append(getReplayRate());
+		sb.append(" workerUtilization=").append(getWorkerUtilization());
 	}
 
 
@@ -77,6 +77,8 @@ public class RecoveryManager {
 
 	private int readBufferSize;
 
+	private int nRecoveryThreads; // workers for the LN undo and redo passes
+
 	private RecoveryInfo info; // stat info
 
 	private Set committedTxnIds; // committed txns
@@ -95,6 +97,14 @@ public class RecoveryManager {
 
 	private int inListClearCounter; // governs intermediate IN list clearing
 
+	/*
+	 * Utilization counting state of the current LN pass. Shared by the
+	 * replaying threads, see countUtilization.
+	 */
+	private Map countedFileSummaries; // TxnNodeId -> file number
+
+	private Set countedAbortLsnNodes; // set of TxnNodeId
+
 	/**
 	 * Make a recovery manager
 	 */
@@ -103,6 +113,7 @@ public class RecoveryManager {
 		this.env = env;
 		DbConfigManager cm = env.getConfigManager();
 		readBufferSize = cm.getInt(EnvironmentParams.LOG_ITERATOR_READ_SIZE);
+		nRecoveryThreads = cm.getInt(EnvironmentParams.ENV_RECOVERY_THREADS);
 		committedTxnIds = new HashSet();
 		abortedTxnIds = new HashSet();
 		preparedTxns = new HashMap();
@@ -407,6 +418,7 @@ public class RecoveryManager {
 		long start = System.currentTimeMillis();
 		readINsAndTrackIds(info.checkpointStartLsn);
 		long end = System.currentTimeMillis();
+		info.passMillis[1] = end - start;
 		// refined trace
 //		TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(1, start, end)
 //				+ info.toString());
@@ -422,6 +434,7 @@ public class RecoveryManager {
 				// tree only
 				LogEntryType.LOG_BIN_DELTA, null, null, true); // requireExactMatch
 		end = System.currentTimeMillis();
+		info.passMillis[2] = end - start;
 		// refined trace
 //		TODO	Tracer.trace(Level.CONFIG, env, passEndHeader(2, start, end)
 //				+ info.toString());
@@ -438,8 +451,9 @@ public class RecoveryManager {
 		mapLNSet.add(LogEntryType.LOG_TXN_COMMIT);
 		mapLNSet.add(LogEntryType.LOG_TXN_ABORT);
 		mapLNSet.add(LogEntryType.LOG_TXN_PREPARE);
-		undoLNs(info, mapLNSet);
+		undoLNs(info, mapLNSet, 1);
 		end = System.currentTimeMillis();
+		info.passMillis[3] = end - start;
 		// refined trace
 //		TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(3, start, end)
 //				+ info.toString());
@@ -452,8 +466,9 @@ public class RecoveryManager {
 //				TODO	Tracer.trace(Level.CONFIG, env, passStartHeader(4) + "redo map LNs");
 		start = System.currentTimeMillis();
 		mapLNSet.add(LogEntryType.LOG_MAPLN);
-		redoLNs(info, mapLNSet);
+		redoLNs(info, mapLNSet, 1);
 		end = System.currentTimeMillis();
+		info.passMillis[4] = end - start;
 		// refined trace
 //		TODO	Tracer.trace(Level.CONFIG, env, passEndHeader(4, start, end)
 //				+ info.toString());
@@ -469,6 +484,7 @@ public class RecoveryManager {
 				LogEntryType.LOG_IN, LogEntryType.LOG_BIN,
 				LogEntryType.LOG_IN_DELETE_INFO, false); // requireExactMatch
 		end = System.currentTimeMillis();
+		info.passMillis[5] = end - start;
 		// refined trace
 //		TODO	Tracer.trace(Level.CONFIG, env, passEndHeader(5, start, end)
 //				+ info.toString());
@@ -487,6 +503,7 @@ public class RecoveryManager {
 				// tree only
 				LogEntryType.LOG_BIN_DELTA, null, null, true); // requireExactMatch
 		end = System.currentTimeMillis();
+		info.passMillis[6] = end - start;
 		// refined trace
 //TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(6, start, end)
 //				+ info.toString());
@@ -503,6 +520,7 @@ public class RecoveryManager {
 				LogEntryType.LOG_DIN, LogEntryType.LOG_DBIN,
 				LogEntryType.LOG_IN_DUPDELETE_INFO, true); // requireExactMatch
 		end = System.currentTimeMillis();
+		info.passMillis[7] = end - start;
 		// refined trace
 //		TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(7, start, end)
 //				+ info.toString());
@@ -519,6 +537,7 @@ public class RecoveryManager {
 				// only
 				LogEntryType.LOG_DUP_BIN_DELTA, null, null, true); // requireExactMatch
 		end = System.currentTimeMillis();
+		info.passMillis[8] = end - start;
 		// refined trace
 //		TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(8, start, end)
 //				+ info.toString());
@@ -544,8 +563,9 @@ public class RecoveryManager {
 		lnSet.add(LogEntryType.LOG_DEL_DUPLN_TRANSACTIONAL);
 		lnSet.add(LogEntryType.LOG_DUPCOUNTLN_TRANSACTIONAL);
 
-		undoLNs(info, lnSet);
+		undoLNs(info, lnSet, nRecoveryThreads);
 		end = System.currentTimeMillis();
+		info.passMillis[9] = end - start;
 		// refined trace
 //		TODO	Tracer.trace(Level.CONFIG, env, passEndHeader(9, start, end)
 //				+ info.toString());
@@ -559,8 +579,9 @@ public class RecoveryManager {
 		lnSet.add(LogEntryType.LOG_DEL_DUPLN);
 		lnSet.add(LogEntryType.LOG_DUPCOUNTLN);
 		lnSet.add(LogEntryType.LOG_FILESUMMARYLN);
-		redoLNs(info, lnSet);
+		redoLNs(info, lnSet, nRecoveryThreads);
 		end = System.currentTimeMillis();
+		info.passMillis[10] = end - start;
 		// refined trace
 //		TODO		Tracer.trace(Level.CONFIG, env, passEndHeader(10, start, end)
 //				+ info.toString());
@@ -758,9 +779,13 @@ public class RecoveryManager {
 	 * Undo all aborted LNs. To do so, walk the log backwards, keeping a
 	 * collection of committed txns. If we see a log entry that doesn't have a
 	 * committed txn, undo it.
+	 * 
+	 * @param nThreads
+	 *            if greater than one, the LNs are undone by that many
+	 *            ParallelReplayer workers, partitioned by database.
 	 */
-	private void undoLNs(RecoveryInfo info, Set lnTypes) throws IOException,
-			DatabaseException {
+	private void undoLNs(RecoveryInfo info, Set lnTypes, int nThreads)
+			throws IOException, DatabaseException {
 
 		long firstActiveLsn = info.firstActiveLsn;
 		long lastUsedLsn = info.lastUsedLsn;
@@ -775,11 +800,15 @@ public class RecoveryManager {
 			reader.addTargetType(lnType);
 		}
 
-		Map countedFileSummaries = new HashMap(); // TxnNodeId -> file number
-		Set countedAbortLsnNodes = new HashSet(); // set of TxnNodeId
+		countedFileSummaries = new HashMap();
+		countedAbortLsnNodes = new HashSet();
 
 		DbTree dbMapTree = env.getDbMapTree();
 		TreeLocation location = new TreeLocation();
+		ParallelReplayer replayer = null;
+		if (nThreads > 1) {
+			replayer = new ParallelReplayer(this, nThreads, true); // undo
+		}
 		try {
 
 			/*
@@ -802,31 +831,24 @@ public class RecoveryManager {
 
 						LN ln = reader.getLN();
 						long logLsn = reader.getLastLsn();
-						long abortLsn = reader.getAbortLsn();
-						boolean abortKnownDeleted = reader
-								.getAbortKnownDeleted();
 						DatabaseId dbId = reader.getDatabaseId();
 						DatabaseImpl db = dbMapTree.getDb(dbId);
 
 						/* Database may be null if it's been deleted. */
 						if (db != null) {
 							ln.postFetchInit(db, logLsn);
-//							try {
-								undo(detailedTraceLevel, db, location, ln,
-										reader.getKey(),
-										reader.getDupTreeKey(), logLsn,
-										abortLsn, abortKnownDeleted, info, true);
-//							} finally {
-//								if (location.bin != null) {
-////									Lck location.bin.releaseLatchIfOwner();
-//								}
-//							}
-							/* Undo utilization info. */
-							TxnNodeId txnNodeId = new TxnNodeId(reader
-									.getNodeId(), txnId.longValue());
-							undoUtilizationInfo(ln, logLsn, abortLsn,
-									abortKnownDeleted, txnNodeId,
-									countedFileSummaries, countedAbortLsnNodes);
+							LNReplay replay = new LNReplay(db, ln, reader
+									.getKey(), reader.getDupTreeKey(), logLsn,
+									reader.getAbortLsn(), reader
+											.getAbortKnownDeleted(),
+									new TxnNodeId(reader.getNodeId(), txnId
+											.longValue()));
+							info.numUndoLNs++;
+							if (replayer != null) {
+								replayer.dispatch(dbId, replay);
+							} else {
+								undoLN(replay, location, info);
+							}
 
 							/*
 							 * Add any db that we encounter LN's for because
@@ -871,9 +893,73 @@ public class RecoveryManager {
 			hook_finishedReading(reader);
 		} catch (Exception e) {
 //		TODO	traceAndThrowException(reader.getLastLsn(), "undoLNs", e);
+		} catch (Error e) {
+			if (replayer != null) {
+				replayer.shutdown(true);
+			}
+			throw e;
+		}
+
+		/*
+		 * Wait for the workers outside the try, whose catch would drop the
+		 * error finish rethrows when a worker failed. A failed replay must
+		 * fail the open.
+		 */
+		if (replayer != null) {
+			replayer.finish(info);
 		}
 	}
 
+	/**
+	 * Undo one LN and its utilization info. Called by the recovery thread or
+	 * by a ParallelReplayer worker, with the caller's location and stats.
+	 */
+	void undoLN(LNReplay replay, TreeLocation location, RecoveryInfo info)
+			throws DatabaseException {
+
+		undo(detailedTraceLevel, replay.db, location, replay.ln, replay.key,
+				replay.dupKey, replay.logLsn, replay.abortLsn,
+				replay.abortKnownDeleted, info, true);
+
+		/* Undo utilization info. */
+		synchronized (countUtilizationMutex()) {
+			undoUtilizationInfo(replay.ln, replay.logLsn, replay.abortLsn,
+					replay.abortKnownDeleted, replay.txnNodeId,
+					countedFileSummaries, countedAbortLsnNodes);
+		}
+	}
+
+	/**
+	 * Redo one LN, if its database still exists, and its utilization info.
+	 * Called by the recovery thread or by a ParallelReplayer worker, with the
+	 * caller's location and stats.
+	 */
+	void redoLN(LNReplay replay, TreeLocation location, RecoveryInfo info)
+			throws DatabaseException {
+
+		long treeLsn = DbLsn.NULL_LSN;
+		if (replay.db != null) {
+			treeLsn = redo(replay.db, location, replay.ln, replay.key,
+					replay.dupKey, replay.logLsn, info);
+		}
+
+		/* Redo utilization info. */
+		synchronized (countUtilizationMutex()) {
+			redoUtilizationInfo(replay.logLsn, treeLsn, replay.abortLsn,
+					replay.abortKnownDeleted, replay.ln, replay.txnNodeId,
+					countedAbortLsnNodes);
+		}
+	}
+
+	/**
+	 * The UtilizationTracker is updated by the log manager under its own
+	 * monitor, so utilization counting during a parallel LN pass, when worker
+	 * splits log INs, synchronizes on the same object.
+	 */
+	private Object countUtilizationMutex() {
+		return env.getLogManager();
+	}
+
 	private void hook_invokeEvictor() throws DatabaseException {
 		// TODO Auto-generated method stub
 		
@@ -888,9 +974,12 @@ public class RecoveryManager {
 	 *            targetted LN
 	 * @param lnType2
 	 *            targetted LN
+	 * @param nThreads
+	 *            if greater than one, the LNs are redone by that many
+	 *            ParallelReplayer workers, partitioned by database.
 	 */
-	private void redoLNs(RecoveryInfo info, Set lnTypes) throws IOException,
-			DatabaseException {
+	private void redoLNs(RecoveryInfo info, Set lnTypes, int nThreads)
+			throws IOException, DatabaseException {
 
 		long endOfFileLsn = info.nextAvailableLsn;
 		long rollForwardLsn = info.checkpointStartLsn;
@@ -904,10 +993,14 @@ public class RecoveryManager {
 			reader.addTargetType(lnType);
 		}
 
-		Set countedAbortLsnNodes = new HashSet(); // set of TxnNodeId
+		countedAbortLsnNodes = new HashSet();
 
 		DbTree dbMapTree = env.getDbMapTree();
 		TreeLocation location = new TreeLocation();
+		ParallelReplayer replayer = null;
+		if (nThreads > 1) {
+			replayer = new ParallelReplayer(this, nThreads, false); // redo
+		}
 		try {
 
 			/* Iterate over the target LNs and construct in- memory tree. */
@@ -945,7 +1038,6 @@ public class RecoveryManager {
 						DatabaseId dbId = reader.getDatabaseId();
 						DatabaseImpl db = dbMapTree.getDb(dbId);
 						long logLsn = reader.getLastLsn();
-						long treeLsn = DbLsn.NULL_LSN;
 
 						/* Database may be null if it's been deleted. */
 						if (db != null) {
@@ -966,9 +1058,6 @@ public class RecoveryManager {
 								preparedTxn.setPrepared(true);
 							}
 
-							treeLsn = redo(db, location, ln, reader.getKey(),
-									reader.getDupTreeKey(), logLsn, info);
-
 							/*
 							 * Add any db that we encounter LN's for because
 							 * they'll be part of the in-memory tree and
@@ -978,21 +1067,46 @@ public class RecoveryManager {
 							inListRebuildDbIds.add(dbId);
 						}
 
-						/* Redo utilization info. */
+						/*
+						 * Redo the LN and its utilization info. The LN is
+						 * dispatched even if its database was deleted, so
+						 * that utilization is counted in log order.
+						 */
 						TxnNodeId txnNodeId = null;
 						if (txnId != null) {
 							txnNodeId = new TxnNodeId(reader.getNodeId(), txnId
 									.longValue());
 						}
-						redoUtilizationInfo(logLsn, treeLsn, reader
-								.getAbortLsn(), reader.getAbortKnownDeleted(),
-								ln, txnNodeId, countedAbortLsnNodes);
+						LNReplay replay = new LNReplay(db, ln, reader.getKey(),
+								reader.getDupTreeKey(), logLsn, reader
+										.getAbortLsn(), reader
+										.getAbortKnownDeleted(), txnNodeId);
+						info.numRedoLNs++;
+						if (replayer != null) {
+							replayer.dispatch(dbId, replay);
+						} else {
+							redoLN(replay, location, info);
+						}
 					}
 				}
 			}
 			hook_finishedReading(reader);
 		} catch (Exception e) {
 //		TODO	traceAndThrowException(reader.getLastLsn(), "redoLns", e);
+		} catch (Error e) {
+			if (replayer != null) {
+				replayer.shutdown(true);
+			}
+			throw e;
+		}
+
+		/*
+		 * Wait for the workers outside the try, whose catch would drop the
+		 * error finish rethrows when a worker failed. A failed replay must
+		 * fail the open.
+		 */
+		if (replayer != null) {
+			replayer.finish(info);
 		}
 	}
 
@@ -1019,6 +1133,42 @@ public class RecoveryManager {
 		}
 	}
 
+	/*
+	 * An LN read from the log, with what is needed to undo or redo it. Built
+	 * by the reading thread and replayed by it or by a ParallelReplayer
+	 * worker.
+	 */
+	static class LNReplay {
+		DatabaseImpl db; // null if the database was deleted
+
+		LN ln;
+
+		byte[] key;
+
+		byte[] dupKey;
+
+		long logLsn;
+
+		long abortLsn;
+
+		boolean abortKnownDeleted;
+
+		TxnNodeId txnNodeId; // null if non-transactional
+
+		LNReplay(DatabaseImpl db, LN ln, byte[] key, byte[] dupKey,
+				long logLsn, long abortLsn, boolean abortKnownDeleted,
+				TxnNodeId txnNodeId) {
+			this.db = db;
+			this.ln = ln;
+			this.key = key;
+			this.dupKey = dupKey;
+			this.logLsn = logLsn;
+			this.abortLsn = abortLsn;
+			this.abortKnownDeleted = abortKnownDeleted;
+			this.txnNodeId = txnNodeId;
+		}
+	}
+
 	/* Struct to hold a nodeId/txnId tuple */
 	private static class TxnNodeId {
 		long nodeId;
@@ -807,6 +807,7 @@ public class BIN extends IN implements LoggableObject {
 			 * are never provisional, they must be processed at recovery time.
 			 */
 			lastDeltaVersion = logManager.log(deltaInfo);
+			setLastLoggedSize(deltaInfo.getLogSize() + LogManager.HEADER_BYTES);
 			returnLsn = DbLsn.NULL_LSN;
 			numDeltasSinceLastFull++;
 		} else {
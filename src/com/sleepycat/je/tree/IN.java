@@ -116,6 +116,34 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 	private byte[][] entryKeyVals; // byte[][] instead of Key[] to save space
 
+	/*
+	 * The following entryKeyXXX fields are the compact key representation,
+	 * used instead of entryKeyVals when je.tree.compactKeys is set. All key
+	 * suffixes are packed into the single entryKeyBytes array, so a search
+	 * reads one array instead of one object per slot, and the GC traces one
+	 * object instead of nEntries. The suffix of slot i starts at
+	 * entryKeyOffsets[i] and is entryKeyLengths[i] bytes long; a length of -1
+	 * means the slot has no key. New suffixes are appended at
+	 * entryKeyBytesUsed, so moving a slot only moves its offset and length.
+	 * The space of replaced suffixes is reclaimed when the array is repacked.
+	 */
+	private byte[] entryKeyBytes;
+
+	private int[] entryKeyOffsets;
+
+	private int[] entryKeyLengths;
+
+	private int entryKeyBytesUsed;
+
+	/*
+	 * The leading bytes shared by all keys in this node, or null. When set,
+	 * the slots hold only the rest of each key, its suffix. Keys with long
+	 * common prefixes, such as composite keys, then don't repeat the prefix in
+	 * every slot. The prefix is computed when a node is split or read from
+	 * the log, and is shortened when a key that doesn't share it is stored.
+	 */
+	private byte[] keyPrefix;
+
 	/*
 	 * The following entryLsnXXX fields are used for storing LSNs. There are two
 	 * possible representations: a byte array based rep, and a long array based
@@ -149,10 +177,36 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 	private int level;
 
+	/* Slot index on the environment's INList, or -1 if not on the list. */
+	private int inListIndex = -1;
+
+	/*
+	 * Version word for optimistic tree descent, see Tree.searchSubTree. It is
+	 * odd while a writer changes the entries of this node, and every change
+	 * advances it. A reader that sees the same even version before and after
+	 * reading the node has seen a consistent node. Writers exclude each other
+	 * on the node's monitor; a thread may begin writing a node it is already
+	 * writing.
+	 */
+	private volatile int version;
+
+	private Thread writer;
+
+	private int writeDepth;
+
+	/*
+	 * How many times getVersion yields to a writer before it blocks until the
+	 * write ends. Most writes change a slot or two and end within a yield.
+	 */
+	private static final int VERSION_SPINS = 16;
+
 
 	// Location of last full version.
 	private long lastFullVersion = DbLsn.NULL_LSN;
 
+	/* Size, with header, of the last full version or delta this node logged. */
+	private int lastLoggedSize;
+
 	/*
 	 * A list of Long LSNs that cannot be counted as obsolete until an ancestor
 	 * IN is logged non-provisionally.
@@ -208,6 +262,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		entryStates = new byte[initialCapacity];
 		isRoot = false;
 		this.level = level;
+		initKeyRep();
 	}
 
 	/*
@@ -274,6 +329,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 		setDatabase(db);
 		setLastFullLsn(sourceLsn);
+		initKeyRep();
 		EnvironmentImpl env = db.getDbEnvironment();
 		env.getInMemoryINs().add(this);
 	}
@@ -284,6 +340,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	public void postRecoveryInit(DatabaseImpl db, long sourceLsn) {
 		setDatabase(db);
 		setLastFullLsn(sourceLsn);
+		initKeyRep();
 	}
 
 	/**
@@ -301,6 +358,22 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		return lastFullVersion;
 	}
 
+	/**
+	 * Sets the size of the last entry logged for this node.
+	 */
+	void setLastLoggedSize(int size) {
+		lastLoggedSize = size;
+	}
+
+	/**
+	 * Returns the size, including the entry header, of the last full version
+	 * or delta logged for this node, so the checkpointer can count what it
+	 * wrote itself.
+	 */
+	public int getLastLoggedSize() {
+		return lastLoggedSize;
+	}
+
 	public long getGeneration() {
 		return generation;
 	}
@@ -317,6 +390,111 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		return level;
 	}
 
+	/**
+	 * For use by the INList only.
+	 */
+	public int getInListIndex() {
+		return inListIndex;
+	}
+
+	/**
+	 * For use by the INList only.
+	 */
+	public void setInListIndex(int inListIndex) {
+		this.inListIndex = inListIndex;
+	}
+
+	/**
+	 * Return the version of this node, waiting until no other thread is
+	 * writing it. Pass the result to validateVersion after reading the node.
+	 * A short write is waited out by yielding; a longer one by blocking on
+	 * the node's monitor until endWrite.
+	 */
+	public int getVersion() {
+		int v = version;
+		if ((v & 1) == 0 || writer == Thread.currentThread()) {
+			return v;
+		}
+		for (int i = 0; i < VERSION_SPINS; i++) {
+			Thread.yield();
+			v = version;
+			if ((v & 1) == 0) {
+				return v;
+			}
+		}
+		synchronized (this) {
+			boolean interrupted = false;
+			v = version;
+			while ((v & 1) != 0 && writer != Thread.currentThread()) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+				v = version;
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return v;
+	}
+
+	/**
+	 * @return true if the node hasn't changed since getVersion returned v.
+	 */
+	public boolean validateVersion(int v) {
+		return version == v;
+	}
+
+	/**
+	 * Begin changing the entries of this node. Waits for any other writer and
+	 * makes concurrent optimistic readers of this node restart. Every call
+	 * must be paired with endWrite.
+	 */
+	public synchronized void beginWrite() {
+		Thread current = Thread.currentThread();
+		boolean interrupted = false;
+		while (writer != null && writer != current) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (writeDepth++ == 0) {
+			writer = current;
+			version++;
+		}
+		if (interrupted) {
+			current.interrupt();
+		}
+	}
+
+	/**
+	 * Begin writing only if the node hasn't changed since getVersion returned
+	 * v. Upgrades an optimistic read to a write.
+	 * 
+	 * @return true if writing began, false if the node has changed.
+	 */
+	public boolean beginWrite(int v) {
+		beginWrite();
+		if (writeDepth != 1 || version != v + 1) {
+			endWrite();
+			return false;
+		}
+		return true;
+	}
+
+	public synchronized void endWrite() {
+		assert writer == Thread.currentThread();
+		if (--writeDepth == 0) {
+			writer = null;
+			version++;
+			notifyAll();
+		}
+	}
+
 	protected int generateLevel(DatabaseId dbId, int newLevel) {
 		if (dbId.equals(DbTree.ID_DB_ID)) {
 			return newLevel | DBMAP_LEVEL;
@@ -426,7 +604,12 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 	private void setEntryInternal(int from, int to) {
 		entryTargets[to] = entryTargets[from];
-		entryKeyVals[to] = entryKeyVals[from];
+		if (entryKeyOffsets == null) {
+			entryKeyVals[to] = entryKeyVals[from];
+		} else {
+			entryKeyOffsets[to] = entryKeyOffsets[from];
+			entryKeyLengths[to] = entryKeyLengths[from];
+		}
 		entryStates[to] = entryStates[from];
 		/* Will implement this in the future. Note, don't adjust if mutating. */
 		// maybeAdjustCapacity(offset);
@@ -444,26 +627,412 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 	private void clearEntry(int idx) {
 		entryTargets[idx] = null;
-		entryKeyVals[idx] = null;
+		setKeySuffix(idx, null, 0, 0);
 		setLsnElement(idx, DbLsn.NULL_LSN);
 		entryStates[idx] = 0;
 	}
 
 	/**
-	 * Return the idx'th key.
+	 * Return the idx'th key. If the node has a key prefix, the key is a new
+	 * array made of the prefix and the idx'th suffix.
 	 */
 	public byte[] getKey(int idx) {
-		return entryKeyVals[idx];
+		if (entryKeyOffsets == null && keyPrefix == null) {
+			return entryKeyVals[idx];
+		}
+		int suffixLength = getKeySuffixLength(idx);
+		if (suffixLength < 0) {
+			return null;
+		}
+		int prefixLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		if (prefixLength + suffixLength == 0) {
+			return Key.EMPTY_KEY;
+		}
+		byte[] key = new byte[prefixLength + suffixLength];
+		if (prefixLength > 0) {
+			System.arraycopy(keyPrefix, 0, key, 0, prefixLength);
+		}
+		if (entryKeyOffsets == null) {
+			System.arraycopy(entryKeyVals[idx], 0, key, prefixLength,
+					suffixLength);
+		} else {
+			System.arraycopy(entryKeyBytes, entryKeyOffsets[idx], key,
+					prefixLength, suffixLength);
+		}
+		return key;
+	}
+
+	/**
+	 * @return the length of the idx'th key, prefix included, or -1 if the
+	 *         slot has no key.
+	 */
+	public int getKeyLength(int idx) {
+		int suffixLength = getKeySuffixLength(idx);
+		if (suffixLength < 0) {
+			return -1;
+		}
+		return ((keyPrefix == null) ? 0 : keyPrefix.length) + suffixLength;
+	}
+
+	/**
+	 * Copy length bytes of the idx'th key, starting at keyOffset, into dest.
+	 * Unlike getKey, the key is assembled from the prefix and the suffix
+	 * straight into the caller's array.
+	 */
+	public void copyKey(int idx, int keyOffset, byte[] dest, int destOffset,
+			int length) {
+		int prefixLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		if (keyOffset < prefixLength) {
+			int n = prefixLength - keyOffset;
+			if (n > length) {
+				n = length;
+			}
+			System.arraycopy(keyPrefix, keyOffset, dest, destOffset, n);
+			keyOffset += n;
+			destOffset += n;
+			length -= n;
+		}
+		if (length > 0) {
+			System.arraycopy(getKeySuffixBytes(idx), getKeySuffixOffset(idx)
+					+ keyOffset - prefixLength, dest, destOffset, length);
+		}
+	}
+
+	/**
+	 * @return the length of the idx'th key suffix, or -1 if the slot has no
+	 *         key.
+	 */
+	private int getKeySuffixLength(int idx) {
+		if (entryKeyOffsets == null) {
+			byte[] suffix = entryKeyVals[idx];
+			return (suffix == null) ? -1 : suffix.length;
+		} else {
+			return entryKeyLengths[idx];
+		}
+	}
+
+	/**
+	 * @return the array holding the idx'th key suffix, which starts at
+	 *         getKeySuffixOffset(idx).
+	 */
+	private byte[] getKeySuffixBytes(int idx) {
+		return (entryKeyOffsets == null) ? entryKeyVals[idx] : entryKeyBytes;
+	}
+
+	private int getKeySuffixOffset(int idx) {
+		return (entryKeyOffsets == null) ? 0 : entryKeyOffsets[idx];
+	}
+
+	/**
+	 * Store the given bytes as the idx'th key suffix, or clear the slot's key
+	 * if bytes is null.
+	 */
+	private void setKeySuffix(int idx, byte[] bytes, int offset, int length) {
+		if (entryKeyOffsets == null) {
+			byte[] suffix = bytes;
+			if (bytes != null && (offset != 0 || length != bytes.length)) {
+				suffix = (length == 0) ? Key.EMPTY_KEY : new byte[length];
+				System.arraycopy(bytes, offset, suffix, 0, length);
+			}
+			entryKeyVals[idx] = suffix;
+		} else if (bytes == null) {
+			entryKeyOffsets[idx] = 0;
+			entryKeyLengths[idx] = -1;
+		} else {
+			if (entryKeyBytesUsed + length > entryKeyBytes.length) {
+				repackKeyBytes(length);
+			}
+			System.arraycopy(bytes, offset, entryKeyBytes, entryKeyBytesUsed,
+					length);
+			entryKeyOffsets[idx] = entryKeyBytesUsed;
+			entryKeyLengths[idx] = length;
+			entryKeyBytesUsed += length;
+		}
+	}
+
+	/**
+	 * Copy the live key suffixes to a new array with room for at least
+	 * extraBytes more, dropping the space of replaced suffixes. The memory
+	 * budget recomputes the key overhead around this method.
+	 */
+	private void repackKeyBytes(int extraBytes) {
+		int liveBytes = 0;
+		for (int i = 0; i < entryKeyLengths.length; i++) {
+			if (entryKeyLengths[i] > 0) {
+				liveBytes += entryKeyLengths[i];
+			}
+		}
+		int needed = liveBytes + extraBytes;
+		byte[] newBytes = new byte[needed + (needed >> 3)];
+		int pos = 0;
+		for (int i = 0; i < entryKeyLengths.length; i++) {
+			int length = entryKeyLengths[i];
+			if (length >= 0) {
+				System.arraycopy(entryKeyBytes, entryKeyOffsets[i], newBytes,
+						pos, length);
+				entryKeyOffsets[i] = pos;
+				pos += length;
+			}
+		}
+		entryKeyBytes = newBytes;
+		entryKeyBytesUsed = pos;
+	}
+
+	/**
+	 * Switch to the compact key representation if the environment is
+	 * configured for it. Called before the node's memory size is initialized.
+	 */
+	private void initKeyRep() {
+		if (entryKeyOffsets != null || databaseImpl == null) {
+			return;
+		}
+		EnvironmentImpl env = databaseImpl.getDbEnvironment();
+		if (env == null || !env.getCompactKeys()) {
+			return;
+		}
+		int capacity = entryKeyVals.length;
+		int nBytes = 0;
+		for (int i = 0; i < capacity; i++) {
+			if (entryKeyVals[i] != null) {
+				nBytes += entryKeyVals[i].length;
+			}
+		}
+		entryKeyBytes = new byte[nBytes];
+		entryKeyOffsets = new int[capacity];
+		entryKeyLengths = new int[capacity];
+		entryKeyBytesUsed = 0;
+		byte[][] keyVals = entryKeyVals;
+		entryKeyVals = null;
+		for (int i = 0; i < capacity; i++) {
+			byte[] suffix = keyVals[i];
+			setKeySuffix(i, suffix, 0, (suffix == null) ? 0 : suffix.length);
+		}
+	}
+
+	/**
+	 * Return the key prefix shared by all keys in this node, or null.
+	 */
+	public byte[] getKeyPrefix() {
+		return keyPrefix;
 	}
 
 	/**
 	 * Set the idx'th key.
 	 */
 	private void setKey(int idx, byte[] keyVal) {
-		entryKeyVals[idx] = keyVal;
+		setKeyInternal(idx, keyVal);
 		entryStates[idx] |= DIRTY_BIT;
 	}
 
+	/**
+	 * Store the idx'th key in suffix form, replacing whatever key the slot
+	 * held. If the key doesn't start with the key prefix, the prefix is
+	 * shortened first.
+	 */
+	private void setKeyInternal(int idx, byte[] keyVal) {
+		setKeySuffix(idx, null, 0, 0);
+		if (keyVal == null) {
+			return;
+		}
+		fitKeyPrefix(keyVal);
+		int prefixLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		setKeySuffix(idx, keyVal, prefixLength, keyVal.length - prefixLength);
+	}
+
+	/**
+	 * Shorten the key prefix, if needed, so that keyVal starts with it.
+	 */
+	private void fitKeyPrefix(byte[] keyVal) {
+		if (keyPrefix == null) {
+			return;
+		}
+		int prefixLength = getCommonPrefixLength(keyPrefix, 0,
+				keyPrefix.length, keyVal, 0, keyVal.length);
+		if (prefixLength < keyPrefix.length) {
+			changeKeyPrefix(prefixLength);
+		}
+	}
+
+	/**
+	 * Shorten the key prefix to prefixLength bytes, moving the bytes removed
+	 * from the prefix to the front of every suffix. The memory budget
+	 * recomputes the node size around this method.
+	 */
+	private void changeKeyPrefix(int prefixLength) {
+		byte[] newPrefix = null;
+		if (prefixLength > 0) {
+			newPrefix = new byte[prefixLength];
+			System.arraycopy(keyPrefix, 0, newPrefix, 0, prefixLength);
+		}
+		setKeyPrefix(newPrefix);
+	}
+
+	/**
+	 * Recompute the key prefix as the longest prefix shared by all keys.
+	 */
+	private void recalcKeyPrefix() {
+		if (nEntries < 2) {
+			return;
+		}
+
+		/* All keys share the current prefix, so only suffixes are compared. */
+		int first = -1;
+		int suffixPrefixLength = 0;
+		for (int i = 0; i < nEntries; i++) {
+			int length = getKeySuffixLength(i);
+			if (length < 0) {
+				continue;
+			}
+			if (first < 0) {
+				first = i;
+				suffixPrefixLength = length;
+			} else {
+				suffixPrefixLength = getCommonPrefixLength(
+						getKeySuffixBytes(first), getKeySuffixOffset(first),
+						suffixPrefixLength, getKeySuffixBytes(i),
+						getKeySuffixOffset(i), length);
+			}
+			if (suffixPrefixLength == 0) {
+				return;
+			}
+		}
+		if (first < 0) {
+			return;
+		}
+		int oldLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		byte[] newPrefix = new byte[oldLength + suffixPrefixLength];
+		if (oldLength > 0) {
+			System.arraycopy(keyPrefix, 0, newPrefix, 0, oldLength);
+		}
+		System.arraycopy(getKeySuffixBytes(first), getKeySuffixOffset(first),
+				newPrefix, oldLength, suffixPrefixLength);
+		setKeyPrefix(newPrefix);
+	}
+
+	/**
+	 * Replace the key prefix and convert the suffixes of all slots. The new
+	 * prefix must be a prefix of every key in the node.
+	 */
+	private void setKeyPrefix(byte[] newPrefix) {
+		int oldLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		int newLength = (newPrefix == null) ? 0 : newPrefix.length;
+		if (oldLength == newLength) {
+			keyPrefix = newPrefix;
+			return;
+		}
+
+		/*
+		 * Build all new suffixes in one buffer; with the compact rep it
+		 * becomes the new entryKeyBytes.
+		 */
+		int nBytes = 0;
+		for (int i = 0; i < nEntries; i++) {
+			int length = getKeySuffixLength(i);
+			if (length >= 0) {
+				nBytes += oldLength + length - newLength;
+			}
+		}
+		byte[] newBytes = new byte[nBytes];
+		int[] newOffsets = new int[nEntries];
+		int pos = 0;
+		for (int i = 0; i < nEntries; i++) {
+			int length = getKeySuffixLength(i);
+			if (length < 0) {
+				continue;
+			}
+			newOffsets[i] = pos;
+			byte[] bytes = getKeySuffixBytes(i);
+			int offset = getKeySuffixOffset(i);
+			if (newLength < oldLength) {
+				System.arraycopy(keyPrefix, newLength, newBytes, pos, oldLength
+						- newLength);
+				pos += oldLength - newLength;
+				System.arraycopy(bytes, offset, newBytes, pos, length);
+				pos += length;
+			} else {
+				int newSuffixLength = length - (newLength - oldLength);
+				System.arraycopy(bytes, offset + newLength - oldLength,
+						newBytes, pos, newSuffixLength);
+				pos += newSuffixLength;
+			}
+		}
+		keyPrefix = newPrefix;
+		if (entryKeyOffsets != null) {
+			entryKeyBytes = newBytes;
+			entryKeyBytesUsed = pos;
+		}
+		for (int i = 0; i < nEntries; i++) {
+			int length = getKeySuffixLength(i);
+			if (length < 0) {
+				continue;
+			}
+			int newSuffixLength = oldLength + length - newLength;
+			if (entryKeyOffsets == null) {
+				setKeySuffix(i, newBytes, newOffsets[i], newSuffixLength);
+			} else {
+				entryKeyOffsets[i] = newOffsets[i];
+				entryKeyLengths[i] = newSuffixLength;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of equal leading bytes of the two ranges.
+	 */
+	private static int getCommonPrefixLength(byte[] key1, int off1, int len1,
+			byte[] key2, int off2, int len2) {
+		int max = Math.min(len1, len2);
+		for (int i = 0; i < max; i++) {
+			if (key1[off1 + i] != key2[off2 + i]) {
+				return i;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Compare key to the idx'th key of this node.
+	 * 
+	 * @param prefixCmp
+	 *            the result of comparePrefix(key).
+	 */
+	private int compareToEntry(byte[] key, int prefixCmp, int idx,
+			Comparator userCompareToFcn) {
+		if (userCompareToFcn != null) {
+			return Key.compareKeys(key, getKey(idx), userCompareToFcn);
+		}
+		if (prefixCmp != 0) {
+			return prefixCmp;
+		}
+		int prefixLength = (keyPrefix == null) ? 0 : keyPrefix.length;
+		return Key.compareUnsignedBytes(key, prefixLength, key.length
+				- prefixLength, getKeySuffixBytes(idx), getKeySuffixOffset(idx),
+				getKeySuffixLength(idx));
+	}
+
+	/**
+	 * Compare key to the key prefix, which every key of this node starts
+	 * with. Only meaningful for the default byte comparison.
+	 * 
+	 * @return 0 if key starts with the prefix, otherwise the result of
+	 *         comparing key to any key of this node.
+	 */
+	private int comparePrefix(byte[] key) {
+		if (keyPrefix == null) {
+			return 0;
+		}
+		int length = getCommonPrefixLength(keyPrefix, 0, keyPrefix.length,
+				key, 0, key.length);
+		if (length == keyPrefix.length) {
+			return 0;
+		}
+		if (length == key.length) {
+			/* key is a proper prefix of the prefix: it is lower. */
+			return -1;
+		}
+		return (key[length] & 0xff) - (keyPrefix[length] & 0xff);
+	}
+
 	/**
 	 * Get the idx'th migrate status.
 	 */
@@ -475,10 +1044,15 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Set the idx'th migrate status.
 	 */
 	public void setMigrate(int idx, boolean migrate) {
-		if (migrate) {
-			entryStates[idx] |= MIGRATE_BIT;
-		} else {
-			entryStates[idx] &= CLEAR_MIGRATE_BIT;
+		beginWrite();
+		try {
+			if (migrate) {
+				entryStates[idx] |= MIGRATE_BIT;
+			} else {
+				entryStates[idx] &= CLEAR_MIGRATE_BIT;
+			}
+		} finally {
+			endWrite();
 		}
 	}
 
@@ -503,7 +1077,12 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * </p>
 	 */
 	void setTarget(int idx, Node target) {
-		entryTargets[idx] = target;
+		beginWrite();
+		try {
+			entryTargets[idx] = target;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/**
@@ -528,12 +1107,19 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	}
 
 	/**
-	 * Sets the idx'th target LSN.
+	 * Sets the idx'th target LSN. Like every slot mutator it writes under the
+	 * node's version, since setLsnElement may replace the whole LSN array
+	 * and the cleaner's threads update slots of the same node concurrently.
 	 */
 	public void setLsn(int idx, long lsn) {
-		/* setLsnElement can mutate to an array of longs. */
-		setLsnElement(idx, lsn);
-		entryStates[idx] |= DIRTY_BIT;
+		beginWrite();
+		try {
+			/* setLsnElement can mutate to an array of longs. */
+			setLsnElement(idx, lsn);
+			entryStates[idx] |= DIRTY_BIT;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/* For unit tests. */
@@ -705,16 +1291,26 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Set pendingDeleted to true.
 	 */
 	public void setPendingDeleted(int idx) {
-		entryStates[idx] |= PENDING_DELETED_BIT;
-		entryStates[idx] |= DIRTY_BIT;
+		beginWrite();
+		try {
+			entryStates[idx] |= PENDING_DELETED_BIT;
+			entryStates[idx] |= DIRTY_BIT;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/**
 	 * Set pendingDeleted to false.
 	 */
 	public void clearPendingDeleted(int idx) {
-		entryStates[idx] &= CLEAR_PENDING_DELETED_BIT;
-		entryStates[idx] |= DIRTY_BIT;
+		beginWrite();
+		try {
+			entryStates[idx] &= CLEAR_PENDING_DELETED_BIT;
+			entryStates[idx] |= DIRTY_BIT;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/**
@@ -729,16 +1325,26 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Set knownDeleted to true.
 	 */
 	void setKnownDeleted(int idx) {
-		entryStates[idx] |= KNOWN_DELETED_BIT;
-		entryStates[idx] |= DIRTY_BIT;
+		beginWrite();
+		try {
+			entryStates[idx] |= KNOWN_DELETED_BIT;
+			entryStates[idx] |= DIRTY_BIT;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/**
 	 * Set knownDeleted to false.
 	 */
 	void clearKnownDeleted(int idx) {
-		entryStates[idx] &= CLEAR_KNOWN_DELETED_BIT;
-		entryStates[idx] |= DIRTY_BIT;
+		beginWrite();
+		try {
+			entryStates[idx] &= CLEAR_KNOWN_DELETED_BIT;
+			entryStates[idx] |= DIRTY_BIT;
+		} finally {
+			endWrite();
+		}
 	}
 
 	/**
@@ -811,9 +1417,18 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			} else {
 				try {
 					EnvironmentImpl env = databaseImpl.getDbEnvironment();
-					Node node = (Node) env.getLogManager().get(lsn);
+
+					/* An LN evicted from a BIN may still be off-heap. */
+					Node node = null;
+					OffHeapLNCache offHeapLNCache = env.getOffHeapLNCache();
+					if (offHeapLNCache != null && this instanceof BIN) {
+						node = offHeapLNCache.get(lsn);
+					}
+					if (node == null) {
+						node = (Node) env.getLogManager().get(lsn);
+					}
 					node.postFetchInit(databaseImpl, lsn);
-					entryTargets[idx] = node;
+					setTarget(idx, node);
 				} catch (LogFileNotFoundException LNFE) {
 					if (!isEntryKnownDeleted(idx)
 							&& !isEntryPendingDeleted(idx)) {
@@ -868,19 +1483,24 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	public void setEntry(int idx, Node target, byte[] keyVal, long lsn,
 			byte state) {
 
-		int newNEntries = idx + 1;
-		if (newNEntries > nEntries) {
+		beginWrite();
+		try {
+			int newNEntries = idx + 1;
+			if (newNEntries > nEntries) {
 
-			/*
-			 * If the new entry is going to bump nEntries, then we don't need
-			 * the size and LSN accounting included in oldSize.
-			 */
-			nEntries = newNEntries;
+				/*
+				 * If the new entry is going to bump nEntries, then we don't
+				 * need the size and LSN accounting included in oldSize.
+				 */
+				nEntries = newNEntries;
+			}
+			setKeyInternal(idx, keyVal);
+			entryTargets[idx] = target;
+			setLsnElement(idx, lsn);
+			entryStates[idx] = state;
+		} finally {
+			endWrite();
 		}
-		entryTargets[idx] = target;
-		entryKeyVals[idx] = keyVal;
-		setLsnElement(idx, lsn);
-		entryStates[idx] = state;
 		setDirty(true);
 	}
 
@@ -897,8 +1517,13 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Update the idx'th entry of this node.
 	 */
 	public void updateEntry(int idx, Node node, long lsn) {
-		setLsn(idx, lsn);
-		setTarget(idx, node);
+		beginWrite();
+		try {
+			setLsn(idx, lsn);
+			setTarget(idx, node);
+		} finally {
+			endWrite();
+		}
 		setDirty(true);
 	}
 
@@ -906,9 +1531,14 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Update the idx'th entry of this node.
 	 */
 	public void updateEntry(int idx, Node node, long lsn, byte[] key) {
-		setLsn(idx, lsn);
-		setTarget(idx, node);
-		setKey(idx, key);
+		beginWrite();
+		try {
+			setLsn(idx, lsn);
+			setTarget(idx, node);
+			setKey(idx, key);
+		} finally {
+			endWrite();
+		}
 		setDirty(true);
 	}
 
@@ -924,8 +1554,13 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * Update the idx'th entry of this node.
 	 */
 	public void updateEntry(int idx, long lsn, byte state) {
-		setLsn(idx, lsn);
-		entryStates[idx] = state;
+		beginWrite();
+		try {
+			setLsn(idx, lsn);
+			entryStates[idx] = state;
+		} finally {
+			endWrite();
+		}
 		setDirty(true);
 	}
 
@@ -948,12 +1583,17 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 * is less than the existing key.
 	 */
 	private void updateEntryCompareKey(int idx, Node node, long lsn, byte[] key) {
-		setLsn(idx, lsn);
-		setTarget(idx, node);
-		byte[] existingKey = getKey(idx);
-		int s = Key.compareKeys(key, existingKey, getKeyComparator());
-		if (s < 0) {
-			setKey(idx, key);
+		beginWrite();
+		try {
+			setLsn(idx, lsn);
+			setTarget(idx, node);
+			byte[] existingKey = getKey(idx);
+			int s = Key.compareKeys(key, existingKey, getKeyComparator());
+			if (s < 0) {
+				setKey(idx, key);
+			}
+		} finally {
+			endWrite();
 		}
 		setDirty(true);
 	}
@@ -975,19 +1615,17 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		}
 
 		Comparator userCompareToFcn = getKeyComparator();
+		int prefixCmp = comparePrefix(keyVal);
 		int cmp;
-		byte[] myKey;
 
 		/* Compare key given to my first key. */
-		myKey = entryKeyVals[0];
-		cmp = Key.compareKeys(keyVal, myKey, userCompareToFcn);
+		cmp = compareToEntry(keyVal, prefixCmp, 0, userCompareToFcn);
 		if (cmp < 0) {
 			return false;
 		}
 
 		/* Compare key given to my last key. */
-		myKey = entryKeyVals[nEntries - 1];
-		cmp = Key.compareKeys(keyVal, myKey, userCompareToFcn);
+		cmp = compareToEntry(keyVal, prefixCmp, nEntries - 1, userCompareToFcn);
 		if (cmp > 0) {
 			return false;
 		}
@@ -1035,17 +1673,21 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		boolean entryZeroSpecialCompare = entryZeroKeyComparesLow() && !exact
 				&& !indicateIfDuplicate;
 
+		/*
+		 * Match the key prefix once, then compare suffixes only. If the key
+		 * doesn't start with the prefix, it compares the same to every entry.
+		 */
+		int prefixCmp = (userCompareToFcn == null) ? comparePrefix(key) : 0;
+
 		assert nEntries >= 0;
 
 		while (low <= high) {
 			middle = (high + low) / 2;
 			int s;
-			byte[] middleKey = null;
 			if (middle == 0 && entryZeroSpecialCompare) {
 				s = 1;
 			} else {
-				middleKey = entryKeyVals[middle];
-				s = Key.compareKeys(key, middleKey, userCompareToFcn);
+				s = compareToEntry(key, prefixCmp, middle, userCompareToFcn);
 			}
 			if (s < 0) {
 				high = middle - 1;
@@ -1124,49 +1766,61 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	 */
 	public int insertEntry1(ChildReference entry) throws DatabaseException {
 
-		if (nEntries >= entryTargets.length) {
-			compress(null, true);
-		}
-
-		if (nEntries < entryTargets.length) {
-			byte[] key = entry.getKey();
-
-			/*
-			 * Search without requiring an exact match, but do let us know the
-			 * index of the match if there is one.
-			 */
-			int index = findEntry(key, true, false);
+		beginWrite();
+		try {
+			if (nEntries >= entryTargets.length) {
+				compress(null, true);
+			}
 
-			if (index >= 0 && (index & EXACT_MATCH) != 0) {
+			if (nEntries < entryTargets.length) {
+				byte[] key = entry.getKey();
 
 				/*
-				 * There is an exact match. Don't insert; let the caller decide
-				 * what to do with this duplicate.
+				 * Search without requiring an exact match, but do let us know
+				 * the index of the match if there is one.
 				 */
-				return index;
-			} else {
+				int index = findEntry(key, true, false);
+
+				if (index >= 0 && (index & EXACT_MATCH) != 0) {
+
+					/*
+					 * There is an exact match. Don't insert; let the caller
+					 * decide what to do with this duplicate.
+					 */
+					return index;
+				} else {
+
+					/*
+					 * There was no key match, so insert to the right of this
+					 * entry.
+					 */
+					index++;
+				}
 
 				/*
-				 * There was no key match, so insert to the right of this entry.
+				 * Fit the prefix to the new key while the existing entries are
+				 * still in slots 0 to nEntries - 1.
 				 */
-				index++;
-			}
+				fitKeyPrefix(key);
 
-			/* We found a spot for insert, shift entries as needed. */
-			if (index < nEntries) {
-				shiftEntriesRight(index);
+				/* We found a spot for insert, shift entries as needed. */
+				if (index < nEntries) {
+					shiftEntriesRight(index);
+				}
+				setKeyInternal(index, key);
+				entryTargets[index] = entry.getTarget();
+				setLsnElement(index, entry.getLsn());
+				entryStates[index] = entry.getState();
+				nEntries++;
+				adjustCursorsForInsert(index);
+				setDirty(true);
+				return (index | INSERT_SUCCESS);
+			} else {
+				throw new InconsistentNodeException("Node " + getNodeId()
+						+ " should have been split before calling insertEntry");
 			}
-			entryTargets[index] = entry.getTarget();
-			entryKeyVals[index] = entry.getKey();
-			setLsnElement(index, entry.getLsn());
-			entryStates[index] = entry.getState();
-			nEntries++;
-			adjustCursorsForInsert(index);
-			setDirty(true);
-			return (index | INSERT_SUCCESS);
-		} else {
-			throw new InconsistentNodeException("Node " + getNodeId()
-					+ " should have been split before calling insertEntry");
+		} finally {
+			endWrite();
 		}
 	}
 
@@ -1226,8 +1880,13 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		assert maybeValidate ? validateSubtreeBeforeDelete(index) : true;
 
 		if (index < nEntries) {
-			hookr_deleteEntryInternal(index);
-			nEntries--;
+			beginWrite();
+			try {
+				hookr_deleteEntryInternal(index);
+				nEntries--;
+			} finally {
+				endWrite();
+			}
 			setDirty(true);
 			setProhibitNextDelta();
 
@@ -1367,7 +2026,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			high = splitIndex;
 		}
 
-		byte[] newIdKey = entryKeyVals[low];
+		byte[] newIdKey = getKey(low);
 		long parentLsn = DbLsn.NULL_LSN;
 
 		newSibling = createNewInstance(newIdKey, maxEntries, level);
@@ -1380,8 +2039,20 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			int childIndex, int maxEntries, int splitIndex, int high, int low,
 			byte[] newIdKey, long parentLsn) throws DatabaseException {
 
-		hookr_splitInternal_work2(newSibling, parent, childIndex, maxEntries,
-				splitIndex, high, low, newIdKey, parentLsn);
+		/*
+		 * Write the parent for the whole split, so that an optimistic reader
+		 * can't pass through it while entries are between this node and the
+		 * new sibling.
+		 */
+		parent.beginWrite();
+		beginWrite();
+		try {
+			hookr_splitInternal_work2(newSibling, parent, childIndex,
+					maxEntries, splitIndex, high, low, newIdKey, parentLsn);
+		} finally {
+			endWrite();
+			parent.endWrite();
+		}
 
 		EnvironmentImpl env = databaseImpl.getDbEnvironment();
 		INList inMemoryINs = env.getInMemoryINs();
@@ -1400,7 +2071,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		boolean deletedEntrySeen = false;
 		BINReference binRef = null;
 		for (int i = low; i < high; i++) {
-			byte[] thisKey = entryKeyVals[i];
+			byte[] thisKey = getKey(i);
 			if (isEntryPendingDeleted(i)) {
 				if (!deletedEntrySeen) {
 					deletedEntrySeen = true;
@@ -1432,6 +2103,10 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		nEntries -= newSiblingNEntries;
 		setDirty(true);
 
+		/* Each half may share a longer prefix than the whole did. */
+		newSibling.recalcKeyPrefix();
+		recalcKeyPrefix();
+
 		adjustCursors(newSibling, low, high);
 
 		/*
@@ -1477,7 +2152,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			}
 
 			boolean insertOk = parent.insertEntry(new ChildReference(this,
-					entryKeyVals[0], myNewLsn));
+					getKey(0), myNewLsn));
 			assert insertOk;
 		} else {
 
@@ -1492,7 +2167,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 				 * update parent's entry 0 with the key for 'this'.
 				 */
 				parent.updateEntryCompareKey(childIndex, this, myNewLsn,
-						entryKeyVals[0]);
+						getKey(0));
 			} else {
 				parent.updateEntry(childIndex, this, myNewLsn);
 			}
@@ -1872,6 +2547,9 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 	protected boolean isSoughtNode(long nid, boolean updateGeneration)
 			throws DatabaseException {
 
+		if (updateGeneration) {
+			setGeneration();
+		}
 		if (getNodeId() == nid) {
 			return true;
 		} else {
@@ -1979,8 +2657,10 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		 * until an ancestor is logged non-provisionally, so propagate obsolete
 		 * lsns upwards.
 		 */
-		long lsn = logManager.log(new INLogEntry(this), isProvisional,
+		INLogEntry entry = new INLogEntry(this);
+		long lsn = logManager.log(entry, isProvisional,
 				isProvisional ? DbLsn.NULL_LSN : lastFullVersion);
+		lastLoggedSize = entry.getLogSize() + LogManager.HEADER_BYTES;
 
 		if (isProvisional) {
 			if (parent != null) {
@@ -2069,9 +2749,10 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 		if (compactLsnsRep) {
 			size += LogUtils.INT_BYTES; // baseFileNumber
 		}
+		size += LogUtils.getByteArrayLogSize(getLogKeyPrefix()); // key prefix
 
 		for (int i = 0; i < nEntries; i++) { // entries
-			size += LogUtils.getByteArrayLogSize(entryKeyVals[i]) + // key
+			size += LogUtils.INT_BYTES + getKeySuffixLength(i) + // suffix
 					(compactLsnsRep ? LogUtils.INT_BYTES : LogUtils
 							.getLongLogSize()) + // LSN
 					1; // state
@@ -2109,9 +2790,16 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			LogUtils.writeInt(logBuffer, (int) baseFileNumber);
 		}
 
+		// key prefix, empty if none
+		LogUtils.writeByteArray(logBuffer, getLogKeyPrefix());
+
 		// entries
 		for (int i = 0; i < nEntries; i++) {
-			LogUtils.writeByteArray(logBuffer, entryKeyVals[i]); // key
+			// key suffix, in the same format as LogUtils.writeByteArray
+			int suffixLength = getKeySuffixLength(i);
+			LogUtils.writeInt(logBuffer, suffixLength);
+			logBuffer.put(getKeySuffixBytes(i), getKeySuffixOffset(i),
+					suffixLength);
 
 			/*
 			 * A NULL_LSN may be stored when an incomplete insertion occurs, but
@@ -2161,6 +2849,9 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 		entryTargets = new Node[length];
 		entryKeyVals = new byte[length][];
+		entryKeyBytes = null;
+		entryKeyOffsets = null;
+		entryKeyLengths = null;
 		baseFileNumber = -1;
 		long storedBaseFileNumber = -1;
 		entryLsnByteArray = new byte[length << 2];
@@ -2174,6 +2865,14 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 				storedBaseFileNumber = baseFileNumber;
 			}
 		}
+		keyPrefix = null;
+		boolean hasKeyPrefix = (entryTypeVersion > 2);
+		if (hasKeyPrefix) {
+			byte[] prefix = LogUtils.readByteArray(itemBuffer);
+			if (prefix.length > 0) {
+				keyPrefix = prefix;
+			}
+		}
 		for (int i = 0; i < nEntries; i++) {
 			entryKeyVals[i] = LogUtils.readByteArray(itemBuffer); // key
 			long lsn;
@@ -2213,6 +2912,17 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 			entryStates[i] = entryState;
 		}
 
+		/* Older versions logged full keys; compress them now. */
+		if (!hasKeyPrefix) {
+			recalcKeyPrefix();
+		}
+	}
+
+	/**
+	 * The key prefix as logged: an empty array stands for no prefix.
+	 */
+	private byte[] getLogKeyPrefix() {
+		return (keyPrefix == null) ? Key.EMPTY_KEY : keyPrefix;
 	}
 
 	/**
@@ -2253,7 +2963,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 				sb.append("\" pendingDeleted=\"").append(
 						isEntryPendingDeleted(i));
 				sb.append("\">");
-				sb.append(Key.dumpString(entryKeyVals[i], 0));
+				sb.append(Key.dumpString(getKey(i), 0));
 				sb.append(DbLsn.toString(getLsn(i)));
 				sb.append("</ref>");
 			}
@@ -2298,7 +3008,7 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 
 	void dumpKeys() throws DatabaseException {
 		for (int i = 0; i < nEntries; i++) {
-			System.out.println(Key.dumpString(entryKeyVals[i], 0));
+			System.out.println(Key.dumpString(getKey(i), 0));
 		}
 	}
 
@@ -2355,11 +3065,11 @@ public class IN extends Node implements Comparable, LoggableObject, LogReadable
 				sb.append(DbLsn.dumpString(getLsn(i), nSpaces + 6));
 			}
 			sb.append('\n');
-			if (entryKeyVals[i] == null) {
+			if (getKeySuffixLength(i) < 0) {
 				sb.append(TreeUtils.indent(nSpaces + 6));
 				sb.append("<key/>");
 			} else {
-				sb.append(Key.dumpString(entryKeyVals[i], (nSpaces + 6)));
+				sb.append(Key.dumpString(getKey(i), (nSpaces + 6)));
 			}
 			sb.append('\n');
 			if (entryTargets[i] == null) {
@@ -9,6 +9,7 @@
 
 package com.sleepycat.je.tree;
 
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 
 import com.sleepycat.bind.tuple.IntegerBinding;
@@ -115,14 +116,44 @@ public final class Key implements Comparable {
 	 * Compare using a default unsigned byte comparison.
 	 */
 	private static int compareUnsignedBytes(byte[] key1, byte[] key2) {
-		int a1Len = key1.length;
-		int a2Len = key2.length;
+		return compareUnsignedBytes(key1, 0, key1.length, key2, 0, key2.length);
+	}
+
+	/**
+	 * Compare two byte ranges using a default unsigned byte comparison. Used
+	 * by IN to compare key suffixes without building full keys. Only the sign
+	 * of the result is meaningful.
+	 */
+	public static int compareUnsignedBytes(byte[] key1, int off1, int a1Len,
+			byte[] key2, int off2, int a2Len) {
 
 		int limit = Math.min(a1Len, a2Len);
+		int i = 0;
+
+		/*
+		 * Compare eight bytes at a time as big-endian longs; a wrapped array
+		 * is big-endian, and the JIT reads each word with a single load.
+		 * Flipping the sign bit makes the signed long compare an unsigned
+		 * one, which orders the words as the byte loop orders their bytes.
+		 * The tail is compared byte by byte below.
+		 */
+		int wordLimit = limit - 7;
+		if (wordLimit > 0) {
+			ByteBuffer buf1 = ByteBuffer.wrap(key1);
+			ByteBuffer buf2 = ByteBuffer.wrap(key2);
+			for (; i < wordLimit; i += 8) {
+				long w1 = buf1.getLong(off1 + i);
+				long w2 = buf2.getLong(off2 + i);
+				if (w1 != w2) {
+					return ((w1 ^ Long.MIN_VALUE) < (w2 ^ Long.MIN_VALUE)) ? -1
+							: 1;
+				}
+			}
+		}
 
-		for (int i = 0; i < limit; i++) {
-			byte b1 = key1[i];
-			byte b2 = key2[i];
+		for (; i < limit; i++) {
+			byte b1 = key1[off1 + i];
+			byte b2 = key2[off2 + i];
 			if (b1 == b2) {
 				continue;
 			} else {
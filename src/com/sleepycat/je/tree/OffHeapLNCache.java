@@ -0,0 +1,211 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.nio.ByteBuffer;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.log.LogException;
+import com.sleepycat.je.utilint.DbLsn;
+import com.sleepycat.je.utilint.LongHashMap;
+
+/**
+ * A second level cache for LNs that the evictor strips from BINs. The LN is
+ * serialized into direct ByteBuffer slabs outside the Java heap, so the cache
+ * is limited by je.offHeapCacheSize rather than by the heap and the memory
+ * budget, and adds nothing for the garbage collector to scan. A BIN that
+ * fetches an evicted LN finds it here before reading the log.
+ * <p>
+ * Entries are keyed by LSN. The log entry at an LSN never changes, so an entry
+ * never becomes wrong, only unused; unused entries age out. Slabs are filled
+ * in turn, and when all are full the oldest slab is emptied and reused, which
+ * drops all of its entries.
+ * <p>
+ * Only plain LNs are cached. Other LN classes are rare in BINs or have their
+ * own caching.
+ * <p>
+ * The slabs are outside the heap, but the LSN index and the per-slab LSN
+ * arrays are not; they are counted in the memory budget.
+ */
+public class OffHeapLNCache {
+
+	/* The largest slab; smaller caches use a single slab. */
+	private static final int MAX_SLAB_SIZE = 1 << 20;
+
+	/* Initial length of a slab's LSN array, which doubles as needed. */
+	private static final int INITIAL_SLAB_LSNS = 16;
+
+	private EnvironmentImpl envImpl;
+
+	private ByteBuffer[] slabs;
+
+	/*
+	 * The LSNs stored in each slab, to drop them when the slab is reused. The
+	 * arrays are kept at their largest size, since a reused slab fills with
+	 * about as many LNs again.
+	 */
+	private long[][] slabLsns;
+
+	private int[] slabNLsns;
+
+	/* The slab being filled. */
+	private int currentSlab;
+
+	/* LSN -> Entry */
+	private LongHashMap entries;
+
+	/* Stats */
+	private long nHits;
+
+	private long nMisses;
+
+	private long nPuts;
+
+	public OffHeapLNCache(EnvironmentImpl envImpl, long cacheSize) {
+		this.envImpl = envImpl;
+		int slabSize = (int) Math.min(cacheSize, MAX_SLAB_SIZE);
+		int nSlabs = (int) Math.max(1, cacheSize / slabSize);
+		slabs = new ByteBuffer[nSlabs];
+		slabLsns = new long[nSlabs][];
+		slabNLsns = new int[nSlabs];
+		for (int i = 0; i < nSlabs; i++) {
+			slabs[i] = ByteBuffer.allocateDirect(slabSize);
+			slabLsns[i] = new long[INITIAL_SLAB_LSNS];
+		}
+		currentSlab = 0;
+		entries = new LongHashMap();
+	}
+
+	/**
+	 * Cache an LN that is being evicted from its BIN slot.
+	 * 
+	 * @param lsn
+	 *            is the LSN in the slot, whose log entry the LN was read from
+	 *            or written to.
+	 */
+	public synchronized void put(long lsn, LN ln) {
+		if (lsn == DbLsn.NULL_LSN || ln.getClass() != LN.class) {
+			return;
+		}
+		if (entries.containsKey(lsn)) {
+			return;
+		}
+		int size = ln.getLogSize();
+		if (size > slabs[currentSlab].capacity()) {
+			return;
+		}
+		if (size > slabs[currentSlab].remaining()) {
+			currentSlab = (currentSlab + 1) % slabs.length;
+			clearSlab(currentSlab);
+		}
+
+		ByteBuffer slab = slabs[currentSlab];
+		int offset = slab.position();
+		ln.writeToLog(slab);
+		entries.put(lsn, new Entry(currentSlab, offset, size));
+		if (slabNLsns[currentSlab] == slabLsns[currentSlab].length) {
+			growSlabLsns(currentSlab);
+		}
+		slabLsns[currentSlab][slabNLsns[currentSlab]++] = lsn;
+		nPuts++;
+	}
+
+	/**
+	 * @return a new LN read from the cache, or null if the LN at this LSN is
+	 *         not cached.
+	 */
+	public synchronized LN get(long lsn) throws DatabaseException {
+		Entry entry = (Entry) entries.get(lsn);
+		if (entry == null) {
+			nMisses++;
+			return null;
+		}
+		ByteBuffer buffer = slabs[entry.slab].duplicate();
+		buffer.limit(entry.offset + entry.size);
+		buffer.position(entry.offset);
+		LN ln = new LN();
+		try {
+
+			/* LN.readFromLog doesn't depend on the entry type version. */
+			ln.readFromLog(buffer, (byte) 0);
+		} catch (LogException e) {
+			throw new DatabaseException(e);
+		}
+		nHits++;
+		return ln;
+	}
+
+	/**
+	 * Drop the entries of a slab and make it empty.
+	 */
+	private void clearSlab(int slab) {
+		long[] lsns = slabLsns[slab];
+		for (int i = 0; i < slabNLsns[slab]; i++) {
+			entries.remove(lsns[i]);
+		}
+		slabNLsns[slab] = 0;
+		slabs[slab].clear();
+	}
+
+	/**
+	 * Double the length of a slab's LSN array.
+	 */
+	private void growSlabLsns(int slab) {
+		long[] lsns = new long[slabLsns[slab].length * 2];
+		System.arraycopy(slabLsns[slab], 0, lsns, 0, slabNLsns[slab]);
+		slabLsns[slab] = lsns;
+	}
+
+	/**
+	 * @return the number of fetches of an evicted LN served by the cache.
+	 */
+	public synchronized long getNHits() {
+		return nHits;
+	}
+
+	/**
+	 * @return the number of fetches of an LN that had to read the log.
+	 */
+	public synchronized long getNMisses() {
+		return nMisses;
+	}
+
+	/**
+	 * @return the number of LNs added to the cache.
+	 */
+	public synchronized long getNPuts() {
+		return nPuts;
+	}
+
+	/**
+	 * @return the number of LNs in the cache.
+	 */
+	public synchronized int getNEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * The location of a cached LN.
+	 */
+	private static class Entry {
+		int slab;
+
+		int offset;
+
+		int size;
+
+		Entry(int slab, int offset, int size) {
+			this.slab = slab;
+			this.offset = offset;
+			this.size = size;
+		}
+	}
+}
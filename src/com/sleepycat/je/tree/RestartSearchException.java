@@ -0,0 +1,19 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+/**
+ * Indicates that an optimistic tree descent saw a node change under it and
+ * must start over from the top of the tree.
+ */
+class RestartSearchException extends Exception {
+	public RestartSearchException() {
+	}
+}
@@ -93,6 +93,11 @@ public final class Tree implements LogWritable, LogReadable {
 	 */
 	private static SplitRequiredException splitRequiredException = new SplitRequiredException();
 
+	private static RestartSearchException restartSearchException = new RestartSearchException();
+
+	/* Stats, updated by concurrent searches under the Tree's monitor. */
+	private long nSearchRestarts;
+
 	/**
 	 * Embodies an enum for the type of search being performed. NORMAL means do
 	 * a regular search down the tree. LEFT/RIGHT means search down the
@@ -178,6 +183,17 @@ public final class Tree implements LogWritable, LogReadable {
 		return new RootChildReference(target, key, lsn);
 	}
 
+	/**
+	 * Make a logged root IN the root of this empty tree. Used to install a
+	 * tree built by TreeBuilder; the caller then updates the MapLN.
+	 */
+	void installRoot(IN rootIN, long rootLsn) throws DatabaseException {
+
+		assert root == null;
+		root = makeRootChildReference(rootIN, new byte[0], rootLsn);
+		database.getDbEnvironment().getInMemoryINs().add(rootIN);
+	}
+
 	private ChildReference makeRootChildReference() {
 		return new RootChildReference();
 	}
@@ -820,17 +836,37 @@ public final class Tree implements LogWritable, LogReadable {
 			boolean findDeletedEntries, boolean searchDupTree,
 			boolean updateGeneration) throws DatabaseException {
 
+		/*
+		 * If caller wants us to consider knownDeleted entries then do an
+		 * inexact search in findEntry since that will find knownDeleted
+		 * entries. If caller doesn't want us to consider knownDeleted entries
+		 * then do an exact search in findEntry since that will not return
+		 * knownDeleted entries.
+		 */
+		boolean exactSearch = false;
+		boolean indicateIfExact = true;
+		if (!findDeletedEntries) {
+			exactSearch = true;
+			indicateIfExact = false;
+		}
+
 		/*
 		 * Find the BIN that either points to this LN or could be its ancestor.
+		 * Without splits the slot is looked up by searchEntry, validated
+		 * against the BIN's version.
 		 */
 		IN searchResult = null;
+		SearchResult entry = null;
 		try {
 			if (splitsAllowed) {
 				searchResult = searchSplitsAllowed(mainKey, -1,
 						updateGeneration);
 			} else {
-				searchResult = search(mainKey, SearchType.NORMAL, -1, null,
-						updateGeneration);
+				entry = searchEntry(mainKey, indicateIfExact, exactSearch,
+						null, updateGeneration);
+				if (entry != null) {
+					searchResult = entry.parent;
+				}
 			}
 			location.bin = (BIN) searchResult;
 		} catch (Exception e) {
@@ -849,21 +885,12 @@ public final class Tree implements LogWritable, LogReadable {
 			return false;
 		}
 
-		/*
-		 * If caller wants us to consider knownDeleted entries then do an
-		 * inexact search in findEntry since that will find knownDeleted
-		 * entries. If caller doesn't want us to consider knownDeleted entries
-		 * then do an exact search in findEntry since that will not return
-		 * knownDeleted entries.
-		 */
-		boolean exactSearch = false;
-		boolean indicateIfExact = true;
-		if (!findDeletedEntries) {
-			exactSearch = true;
-			indicateIfExact = false;
+		if (entry != null) {
+			location.index = entry.index;
+		} else {
+			location.index = location.bin.findEntry(mainKey, indicateIfExact,
+					exactSearch);
 		}
-		location.index = location.bin.findEntry(mainKey, indicateIfExact,
-				exactSearch);
 
 		boolean match = false;
 		if (findDeletedEntries) {
@@ -1041,14 +1068,20 @@ public final class Tree implements LogWritable, LogReadable {
 				 */
 				throw new DatabaseException(e);
 			}
+
+			/* Search for LN w/exact key. */
+			location.index = location.bin.findEntry(location.lnKey,
+					indicateIfExact, exactSearch);
 		} else {
-			location.bin = (BIN) searchSubTree(dupRoot, location.lnKey,
-					SearchType.NORMAL, ln.getNodeId(), null, updateGeneration);
+
+			/* Search for LN w/exact key, validated against the DBIN. */
+			SearchResult entry = searchSubTreeEntry(dupRoot, location.lnKey,
+					ln.getNodeId(), indicateIfExact, exactSearch,
+					updateGeneration);
+			location.bin = (entry != null) ? (BIN) entry.parent : null;
+			location.index = (entry != null) ? entry.index : -1;
 		}
 
-		/* Search for LN w/exact key. */
-		location.index = location.bin.findEntry(location.lnKey,
-				indicateIfExact, exactSearch);
 		boolean match;
 		if (findDeletedEntries) {
 			match = (location.index >= 0 && (location.index & IN.EXACT_MATCH) != 0);
@@ -1379,13 +1412,203 @@ public final class Tree implements LogWritable, LogReadable {
 			BINBoundary binBoundary, boolean updateGeneration)
 			throws DatabaseException {
 
-		IN rootIN = getRootIN(true /* updateGeneration */);
+		checkSearchArgs(key, searchType);
+		while (true) {
+			IN rootIN = getRootIN(true /* updateGeneration */);
+			if (rootIN == null) {
+				return null;
+			}
+			try {
+				return searchSubTreeOptimistic(rootIN, key, searchType, nid,
+						binBoundary, updateGeneration, null, false, false);
+			} catch (RestartSearchException e) {
 
-		if (rootIN != null) {
-			return searchSubTree(rootIN, key, searchType, nid, binBoundary,
-					updateGeneration);
-		} else {
-			return null;
+				/* The root may have split; start over from the new root. */
+				noteSearchRestart();
+			}
+		}
+	}
+
+	/**
+	 * Search for the BIN that holds key and find key's slot in it, as search
+	 * followed by BIN.findEntry would. The slot lookup is validated against
+	 * the BIN's version taken during the descent. If the BIN changed in
+	 * between, e.g. it split and may no longer cover key, the search is
+	 * restarted instead of returning a slot of the wrong BIN.
+	 * 
+	 * @return the BIN in SearchResult.parent and the findEntry result in
+	 *         SearchResult.index, or null if the tree has no BIN.
+	 */
+	public SearchResult searchEntry(byte[] key, boolean indicateIfExact,
+			boolean exactSearch, BINBoundary binBoundary,
+			boolean updateGeneration) throws DatabaseException {
+
+		while (true) {
+			IN rootIN = getRootIN(true /* updateGeneration */);
+			if (rootIN == null) {
+				return null;
+			}
+			SearchResult entry = new SearchResult();
+			try {
+				searchSubTreeOptimistic(rootIN, key, SearchType.NORMAL, -1,
+						binBoundary, updateGeneration, entry, indicateIfExact,
+						exactSearch);
+				return (entry.parent != null) ? entry : null;
+			} catch (RestartSearchException e) {
+				noteSearchRestart();
+			}
+		}
+	}
+
+	/**
+	 * Search for the slot that refers to the BIN for key, without fetching the
+	 * BIN itself. INs above the BIN are fetched as in a normal search. This
+	 * lets a caller collect the LSNs of many non-resident BINs and fetch them
+	 * in LSN order.
+	 * 
+	 * @return the parent of the BIN and the index of the BIN's slot, with
+	 *         childNotResident set if the BIN is not in memory; or null if the
+	 *         tree is empty or consists of a single BIN.
+	 */
+	public SearchResult searchBINParent(byte[] key, boolean updateGeneration)
+			throws DatabaseException {
+
+		return searchParent(key, IN.BIN_LEVEL, updateGeneration);
+	}
+
+	/**
+	 * Search for the slot that refers to the IN at childLevel on the path to
+	 * key, without fetching that IN. See searchBINParent.
+	 * 
+	 * @return the parent of the IN and the index of its slot, with
+	 *         childNotResident set if the IN is not in memory; or null if the
+	 *         tree is empty or has no INs above childLevel.
+	 */
+	public SearchResult searchParent(byte[] key, int childLevel,
+			boolean updateGeneration) throws DatabaseException {
+
+		while (true) {
+			IN rootIN = getRootIN(updateGeneration);
+			if (rootIN == null) {
+				return null;
+			}
+			try {
+				return searchParentOptimistic(rootIN, key,
+						childLevel & IN.LEVEL_MASK, updateGeneration);
+			} catch (RestartSearchException e) {
+				noteSearchRestart();
+			}
+		}
+	}
+
+	/**
+	 * One optimistic descent for searchParent.
+	 * 
+	 * @throws RestartSearchException
+	 *             if a node on the path changed during the descent.
+	 */
+	private SearchResult searchParentOptimistic(IN parent, byte[] key,
+			int childLevel, boolean updateGeneration)
+			throws DatabaseException, RestartSearchException {
+
+		int parentVersion = parent.getVersion();
+		while (true) {
+			int level = parent.getLevel() & IN.LEVEL_MASK;
+			if (parent instanceof BIN || level <= childLevel
+					|| parent.getNEntries() == 0) {
+				return null;
+			}
+			int index = parent.findEntry(key, false, false);
+			Node target = parent.getTarget(index);
+
+			if (level == childLevel + 1) {
+				if (!parent.validateVersion(parentVersion)) {
+					throw restartSearchException;
+				}
+				SearchResult result = new SearchResult();
+				result.parent = parent;
+				result.index = index;
+				result.childNotResident = (target == null);
+				return result;
+			}
+
+			IN child;
+			int childVersion;
+			if (target != null) {
+				child = (IN) target;
+				childVersion = child.getVersion();
+				if (!parent.validateVersion(parentVersion)) {
+					throw restartSearchException;
+				}
+			} else {
+				child = fetchChildOptimistic(parent, parentVersion, index);
+				if (child == null) {
+					return null;
+				}
+				childVersion = child.getVersion();
+			}
+			if (updateGeneration) {
+				child.setGeneration();
+			}
+			parent = child;
+			parentVersion = childVersion;
+		}
+	}
+
+	/**
+	 * @return the number of times an optimistic descent saw a node on its
+	 *         path change and started over.
+	 */
+	public synchronized long getNSearchRestarts() {
+		return nSearchRestarts;
+	}
+
+	private synchronized void noteSearchRestart() {
+		nSearchRestarts++;
+	}
+
+	/**
+	 * Fault in the index'th child of parent during an optimistic descent. The
+	 * child is read from the log without writing the parent, so that other
+	 * readers of the parent don't wait for the read. It is then installed as
+	 * the writer of the unchanged parent, as PreloadLSNTreeWalker.fetchLSN
+	 * does. If the read fails, fetchTarget repeats it under the write and
+	 * reports the error with the slot's state.
+	 * 
+	 * @return the child, or null if a deleted slot has no child.
+	 * @throws RestartSearchException
+	 *             if the parent changed, including when another thread
+	 *             installed the child first.
+	 */
+	private IN fetchChildOptimistic(IN parent, int parentVersion, int index)
+			throws DatabaseException, RestartSearchException {
+
+		long lsn = parent.getLsn(index);
+		if (!parent.validateVersion(parentVersion)) {
+			throw restartSearchException;
+		}
+		Node node = null;
+		if (lsn != DbLsn.NULL_LSN) {
+			try {
+				node = (Node) database.getDbEnvironment().getLogManager()
+						.get(lsn);
+			} catch (Exception e) {
+				node = null;
+			}
+		}
+
+		if (!parent.beginWrite(parentVersion)) {
+			throw restartSearchException;
+		}
+		try {
+			if (node == null) {
+				return (IN) parent.fetchTarget(index);
+			}
+			node.postFetchInit(database, lsn);
+			parent.updateEntry(index, node);
+			return (IN) node;
+		} finally {
+			parent.endWrite();
 		}
 	}
 
@@ -1475,6 +1698,11 @@ public final class Tree implements LogWritable, LogReadable {
 	 * Enters with parent latched, assuming it's not null. Exits with the return
 	 * value latched, assuming it's not null.
 	 * <p>
+	 * The descent is optimistic: no node on the path is written. Each step
+	 * reads the child reference from the parent and then checks that the
+	 * parent's version hasn't changed, see IN.getVersion. If a split or
+	 * eviction changed a node on the path, the search starts over at parent.
+	 * <p>
 	 * 
 	 * @param parent -
 	 *            the root of the subtree to start the search at. This node
@@ -1508,6 +1736,47 @@ public final class Tree implements LogWritable, LogReadable {
 			return null;
 		}
 
+		checkSearchArgs(key, searchType);
+		while (true) {
+			try {
+				return searchSubTreeOptimistic(parent, key, searchType, nid,
+						binBoundary, updateGeneration, null, false, false);
+			} catch (RestartSearchException e) {
+				noteSearchRestart();
+			}
+		}
+	}
+
+	/**
+	 * Search a subtree for the BIN that holds key and find key's slot in it.
+	 * See searchEntry.
+	 * 
+	 * @return the BIN in SearchResult.parent and the findEntry result in
+	 *         SearchResult.index, or null if parent is null or the search by
+	 *         nid stopped above the BIN level.
+	 */
+	public SearchResult searchSubTreeEntry(IN parent, byte[] key, long nid,
+			boolean indicateIfExact, boolean exactSearch,
+			boolean updateGeneration) throws DatabaseException {
+
+		if (parent == null) {
+			return null;
+		}
+
+		while (true) {
+			SearchResult entry = new SearchResult();
+			try {
+				IN in = searchSubTreeOptimistic(parent, key,
+						SearchType.NORMAL, nid, null, updateGeneration, entry,
+						indicateIfExact, exactSearch);
+				return (in == entry.parent) ? entry : null;
+			} catch (RestartSearchException e) {
+				noteSearchRestart();
+			}
+		}
+	}
+
+	private void checkSearchArgs(byte[] key, SearchType searchType) {
 		if ((searchType == SearchType.LEFT || searchType == SearchType.RIGHT)
 				&& key != null) {
 
@@ -1518,9 +1787,29 @@ public final class Tree implements LogWritable, LogReadable {
 			throw new IllegalArgumentException(
 					"searchSubTree passed key and left/right search");
 		}
+	}
+
+	/**
+	 * One optimistic descent for searchSubTree.
+	 * 
+	 * @param entry
+	 *            if non-null, key's slot in the BIN found is looked up with
+	 *            findEntry(key, indicateIfExact, exactSearch) and returned
+	 *            here, validated against the BIN's version.
+	 * 
+	 * @throws RestartSearchException
+	 *             if a node on the path changed during the descent.
+	 */
+	private IN searchSubTreeOptimistic(IN parent, byte[] key,
+			SearchType searchType, long nid, BINBoundary binBoundary,
+			boolean updateGeneration, SearchResult entry,
+			boolean indicateIfExact, boolean exactSearch)
+			throws DatabaseException, RestartSearchException {
 
 		// Lck assert parent.isLatchOwner();
 
+		int parentVersion = parent.getVersion();
+
 		if (parent.getNodeId() == nid) {
 			// Lck parent.releaseLatch();
 			return null;
@@ -1541,6 +1830,13 @@ public final class Tree implements LogWritable, LogReadable {
 
 				if (parent.getNEntries() == 0) {
 					/* No more children, can't descend anymore. */
+					if (entry != null && parent instanceof BIN) {
+						findLeafEntry(parent, key, indicateIfExact,
+								exactSearch, entry);
+					}
+					if (!parent.validateVersion(parentVersion)) {
+						throw restartSearchException;
+					}
 					return parent;
 				} else if (searchType == SearchType.NORMAL) {
 					/* Look for the entry matching key in the current node. */
@@ -1568,8 +1864,29 @@ public final class Tree implements LogWritable, LogReadable {
 				}
 
 				/* Get the child node that matches. */
-				child = (IN) parent.fetchTarget(index);
+				int childVersion;
+				if (parent.getTarget(index) != null) {
+					child = (IN) parent.getTarget(index);
+					childVersion = child.getVersion();
+
+					/* The parent must not have changed while we read it. */
+					if (!parent.validateVersion(parentVersion)) {
+						throw restartSearchException;
+					}
+				} else {
+
+					/*
+					 * Faulting the child in writes the parent's slot. The read
+					 * is done first, then the child is installed as the writer
+					 * of an unchanged parent.
+					 */
+					child = fetchChildOptimistic(parent, parentVersion, index);
+					childVersion = child.getVersion();
+				}
 				// Lck child.latch(updateGeneration);
+				if (updateGeneration) {
+					child.setGeneration();
+				}
 
 				
 
@@ -1586,15 +1903,37 @@ public final class Tree implements LogWritable, LogReadable {
 
 				/* Continue down a level */
 				parent = child;
+				parentVersion = childVersion;
 			} while (!(parent instanceof BIN));
 
+			/*
+			 * The caller's slot lookup must see the BIN the descent reached
+			 * for key, so it is done here, before the BIN's version check.
+			 */
+			if (entry != null) {
+				findLeafEntry(child, key, indicateIfExact, exactSearch, entry);
+				if (!child.validateVersion(parentVersion)) {
+					throw restartSearchException;
+				}
+			}
 			return child;
+		} catch (RestartSearchException e) {
+			throw e;
 		} catch (Throwable t) {
 			// Lck if (child != null) {
 			// child.releaseLatchIfOwner();
 			// }
 			// parent.releaseLatchIfOwner();
 
+			/*
+			 * A node changed in the middle of being read can make the read
+			 * fail in odd ways. That is a reason to restart, not an error.
+			 */
+			if (t instanceof RuntimeException
+					&& !parent.validateVersion(parentVersion)) {
+				throw restartSearchException;
+			}
+
 			if (t instanceof DatabaseException) {
 				/* don't re-wrap a DatabaseException; we may need its type. */
 				throw (DatabaseException) t;
@@ -1604,6 +1943,12 @@ public final class Tree implements LogWritable, LogReadable {
 		}
 	}
 
+	private void findLeafEntry(IN bin, byte[] key, boolean indicateIfExact,
+			boolean exactSearch, SearchResult entry) {
+		entry.parent = bin;
+		entry.index = bin.findEntry(key, indicateIfExact, exactSearch);
+	}
+
 	private void hook_beforeLoopChildren(IN parent) {
 		// TODO Auto-generated method stub
 		
@@ -1791,6 +2136,9 @@ deletable subtree is a branch where each IN has one child, and the
 			/* Get the child node that matches. */
 			child = (IN) parent.fetchTarget(index);
 			// Lck child.latch(updateGeneration);
+			if (updateGeneration) {
+				child.setGeneration();
+			}
 
 			/* Throw if we need to split. */
 			if (child.needsSplitting()) {
@@ -2015,6 +2363,9 @@ deletable subtree is a branch where each IN has one child, and the
 		if (root != null) {
 			rootIN = (IN) root.fetchTarget(database, null);
 			// Lck rootIN.latch(updateGeneration);
+			if (updateGeneration) {
+				rootIN.setGeneration();
+			}
 		}
 		return rootIN;
 		// Lck } finally {
@@ -3012,7 +3363,7 @@ deletable subtree is a branch where each IN has one child, and the
 		}
 		if (parent != null) {
 			INList inList = database.getDbEnvironment().getInMemoryINs();
-			if (!inList.getINs().contains(parent)) {
+			if (!inList.contains(parent)) {
 				throw new DatabaseException("IN " + parent.getNodeId()
 						+ " missing from INList");
 			}
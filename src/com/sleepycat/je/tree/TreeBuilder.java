@@ -0,0 +1,186 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.dbi.DatabaseImpl;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+import com.sleepycat.je.log.LogManager;
+import com.sleepycat.je.txn.BasicLocker;
+import com.sleepycat.je.txn.Locker;
+import com.sleepycat.je.utilint.DbLsn;
+
+/**
+ * Builds the btree of an empty database bottom-up from records added in key
+ * order, without going through Tree.insert.
+ *
+ * Each LN is logged as it is added and its BIN slot refers to it by LSN only.
+ * BINs, and above them INs, are filled completely and logged provisionally
+ * when they are full, after which only the parent's slot refers to them. So
+ * the log is written sequentially, children before parents, and only the
+ * rightmost node of each level is in memory while building. finish() logs
+ * the root non-provisionally and installs it in the tree, and then in the
+ * mapping tree with DbTree.modifyDbRoot.
+ *
+ * The database must not be written by anyone else until finish() returns.
+ * If the load is abandoned before finish(), the logged nodes are unreachable
+ * and the database stays empty.
+ */
+public class TreeBuilder {
+
+	private DatabaseImpl database;
+
+	private EnvironmentImpl env;
+
+	private LogManager logManager;
+
+	private Locker locker;
+
+	private Comparator comparator;
+
+	private int maxEntries;
+
+	/* The open node of each level, BINs first. */
+	private ArrayList openNodes;
+
+	private byte[] lastKey;
+
+	private long nRecords;
+
+	public TreeBuilder(DatabaseImpl database) throws DatabaseException {
+
+		if (database.getSortedDuplicates()) {
+			throw new IllegalArgumentException(
+					"Bulk loading not supported in databases configured for "
+							+ "duplicates");
+		}
+		checkEmpty(database);
+
+		this.database = database;
+		env = database.getDbEnvironment();
+		logManager = env.getLogManager();
+		locker = new BasicLocker(env);
+		comparator = database.getBtreeComparator();
+		maxEntries = database.getNodeMaxEntries();
+		openNodes = new ArrayList();
+	}
+
+	private static void checkEmpty(DatabaseImpl database) {
+		if (database.getTree().getRootLsn() != DbLsn.NULL_LSN) {
+			throw new IllegalArgumentException(
+					"Bulk loading requires an empty database");
+		}
+	}
+
+	/**
+	 * Add a record. Keys must be unique and added in ascending order.
+	 */
+	public void add(byte[] key, byte[] data) throws DatabaseException {
+
+		if (lastKey != null && Key.compareKeys(lastKey, key, comparator) >= 0) {
+			throw new IllegalArgumentException(
+					"Bulk loaded keys must be unique and in ascending order");
+		}
+
+		LN ln = new LN(data);
+		long lsn = ln.log(env, database.getId(), key, DbLsn.NULL_LSN, locker);
+		addEntry(0, new ChildReference(null, key, lsn));
+		lastKey = key;
+		nRecords++;
+	}
+
+	/**
+	 * @return the number of records added so far.
+	 */
+	public long getNRecords() {
+		return nRecords;
+	}
+
+	/**
+	 * Add a slot to the open node of the given level, closing it and starting
+	 * a new one first if it is full.
+	 */
+	private void addEntry(int level, ChildReference entry)
+			throws DatabaseException {
+
+		IN node = (level < openNodes.size()) ? (IN) openNodes.get(level)
+				: null;
+		if (node != null && node.getNEntries() >= maxEntries) {
+			closeNode(level);
+			node = null;
+		}
+		if (node == null) {
+			if (level == 0) {
+				node = new BIN(database, entry.getKey(), maxEntries, 1);
+			} else {
+				node = new IN(database, entry.getKey(), maxEntries, level + 1);
+			}
+			if (level < openNodes.size()) {
+				openNodes.set(level, node);
+			} else {
+				openNodes.add(node);
+			}
+		}
+		boolean insertOk = node.insertEntry(entry);
+		assert insertOk;
+	}
+
+	/**
+	 * Log the open node of the given level provisionally and add it to its
+	 * parent, creating the parent level if needed.
+	 */
+	private void closeNode(int level) throws DatabaseException {
+
+		IN node = (IN) openNodes.get(level);
+		openNodes.set(level, null);
+
+		/* A new node has no earlier version to count obsolete. */
+		long lsn = node.logProvisional(logManager, null);
+		addEntry(level + 1, new ChildReference(null, node.getIdentifierKey(),
+				lsn));
+	}
+
+	/**
+	 * Close the open nodes bottom-up and install the topmost one as the root.
+	 * If no records were added, the database is left empty.
+	 */
+	public void finish() throws DatabaseException {
+
+		try {
+			if (openNodes.isEmpty()) {
+				return;
+			}
+
+			/*
+			 * A node that is the only one at its level is the topmost node, but
+			 * the root must be an IN, so the first BIN always gets a parent.
+			 */
+			int level = 0;
+			while (level == 0 || level < openNodes.size() - 1) {
+				closeNode(level);
+				level++;
+			}
+			IN rootIN = (IN) openNodes.get(level);
+			openNodes.clear();
+
+			Tree tree = database.getTree();
+			checkEmpty(database);
+			rootIN.setIsRoot(true);
+			long rootLsn = rootIN.log(logManager);
+			tree.installRoot(rootIN, rootLsn);
+			env.getDbMapTree().modifyDbRoot(database);
+		} finally {
+			locker.operationEnd();
+		}
+	}
+}
@@ -9,10 +9,8 @@
 
 package com.sleepycat.je.txn;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 
 import com.sleepycat.je.DatabaseException;
@@ -24,10 +22,15 @@ import com.sleepycat.je.dbi.DbConfigManager;
 import com.sleepycat.je.dbi.EnvConfigObserver;
 import com.sleepycat.je.dbi.EnvironmentImpl;
 import com.sleepycat.je.dbi.RangeRestartException;
+import com.sleepycat.je.utilint.LongHashMap;
 
 /**
  * LockManager manages locks.
  * 
+ * Locks are kept in nLockTables stripes, chosen by node id. Each stripe is a
+ * LockTable, keyed by primitive node id, with its own monitor and its own
+ * request statistics, so that threads locking different nodes rarely contend.
+ * 
  * Note that locks are counted as taking up part of the JE cache;
  */
 public abstract class LockManager implements EnvConfigObserver {
@@ -46,10 +49,6 @@ public abstract class LockManager implements EnvConfigObserver {
 
 	// private Level traceLevel;
 
-	private long nRequests; // stats: number of time a request was made
-
-	private long nWaits; // stats: number of time a request blocked
-
 	private static RangeRestartException rangeRestartException = new RangeRestartException();
 
 	private static boolean lockTableDump = false;
@@ -63,8 +62,6 @@ public abstract class LockManager implements EnvConfigObserver {
 			lockTables[i] = new LockTable(i);
 		}
 		this.envImpl = envImpl;
-		nRequests = 0;
-		nWaits = 0;
 		/*
 		 * traceLevel = Tracer.parseLevel (env,
 		 * EnvironmentParams.JE_LOGGING_LEVEL_LOCKMGR);
@@ -94,11 +91,15 @@ public abstract class LockManager implements EnvConfigObserver {
 	}
 
 	protected int getLockTableIndex(Long nodeId) {
-		return ((int) nodeId.longValue()) % nLockTables;
+		return getLockTableIndex(nodeId.longValue());
 	}
 
+	/*
+	 * Mask off the sign bit, a plain (int) cast yields a negative index for
+	 * node ids beyond the int range.
+	 */
 	protected int getLockTableIndex(long nodeId) {
-		return ((int) nodeId) % nLockTables;
+		return (int) ((nodeId & Long.MAX_VALUE) % nLockTables);
 	}
 
 	/**
@@ -149,17 +150,38 @@ public abstract class LockManager implements EnvConfigObserver {
 		assert timeout >= 0;
 
 		/*
-		 * Lock on locker before latching the lockTable to avoid having another
-		 * notifier perform the notify before the waiter is actually waiting.
+		 * The attempt only takes the lock table stripe. In the common,
+		 * uncontended case the lock is granted (or denied) right here and the
+		 * locker is never synchronized on while the stripe is held.
 		 */
-		synchronized (locker) {
-			Long nid = new Long(nodeId);
-			LockAttemptResult result = attemptLock(nid, locker, type,
-					nonBlockingRequest);
-			/* Got the lock, return. */
-			if (result.success || result.lockGrant == LockGrantType.DENIED) {
-				return result.lockGrant;
+		Long nid = new Long(nodeId);
+		LockAttemptResult result = attemptLock(nid, locker, type,
+				nonBlockingRequest);
+		/* Got the lock, return. */
+		if (result.success || result.lockGrant == LockGrantType.DENIED) {
+
+			/*
+			 * Record a new grant in the locker only now that the stripe is
+			 * released. Releasers hold the locker monitor and then take the
+			 * stripe, so taking them in the other order could deadlock. A
+			 * grant without a Lock comes from the DummyLockManager and is not
+			 * recorded.
+			 */
+			if (result.useLock != null
+					&& ((result.lockGrant == LockGrantType.NEW)
+							|| (result.lockGrant == LockGrantType.PROMOTION))) {
+				locker.addLock(nid, result.useLock, type, result.lockGrant);
 			}
+			return result.lockGrant;
+		}
+
+		/*
+		 * We've been queued as a waiter. Releasers notify a new owner while
+		 * synchronized on it, and the waiter loop below only waits while it is
+		 * still queued, checking under the locker monitor; so a notify that
+		 * comes before we wait is not lost.
+		 */
+		synchronized (locker) {
 
 //			Lck assert checkNoLatchesHeld(nonBlockingRequest) : LatchSupport
 //					.countLatchesHeld()
@@ -198,7 +220,14 @@ public abstract class LockManager implements EnvConfigObserver {
 				while (doWait) {
 					locker.setWaitingFor(result.useLock);
 					try {
-						locker.wait(timeout);
+
+						/*
+						 * If we're no longer queued, we were granted the lock
+						 * or woken for a restart before we got here.
+						 */
+						if (isWaiter(nid, locker)) {
+							locker.wait(timeout);
+						}
 					} catch (InterruptedException IE) {
 						throw new RunRecoveryException(envImpl, IE);
 					}
@@ -264,14 +293,14 @@ public abstract class LockManager implements EnvConfigObserver {
 			LockType type, boolean nonBlockingRequest, int lockTableIndex)
 			throws DatabaseException {
 
-		nRequests++;
+		LockTable lockTable = lockTables[lockTableIndex];
+		lockTable.nRequests++;
 
 		/* Get the target lock. */
-		Map lockTable = lockTables[lockTableIndex];
-		Lock useLock = (Lock) lockTable.get(nodeId);
+		Lock useLock = (Lock) lockTable.get(nodeId.longValue());
 		if (useLock == null) {
 			useLock = new Lock(nodeId);
-			lockTable.put(nodeId, useLock);
+			lockTable.put(nodeId.longValue(), useLock);
 		}
 
 		/*
@@ -284,15 +313,15 @@ public abstract class LockManager implements EnvConfigObserver {
 
 		/* Was the attempt successful? */
 		if ((lockGrant == LockGrantType.NEW)
-				|| (lockGrant == LockGrantType.PROMOTION)) {
-			locker.addLock(nodeId, useLock, type, lockGrant);
-			success = true;
-		} else if (lockGrant == LockGrantType.EXISTING) {
+				|| (lockGrant == LockGrantType.PROMOTION)
+				|| (lockGrant == LockGrantType.EXISTING)) {
+
+			/* The caller adds a new grant to the locker. */
 			success = true;
 		} else if (lockGrant == LockGrantType.DENIED) {
 			/* Locker.lock will throw LockNotGrantedException. */
 		} else {
-			nWaits++;
+			lockTable.nWaits++;
 		}
 		return new LockAttemptResult(useLock, lockGrant, success);
 	}
@@ -459,9 +488,9 @@ public abstract class LockManager implements EnvConfigObserver {
 
 		Lock useLock = lock;
 
-		Map lockTable = lockTables[lockTableIndex];
+		LockTable lockTable = lockTables[lockTableIndex];
 		if (useLock == null) {
-			useLock = (Lock) lockTable.get(new Long(nodeId));
+			useLock = (Lock) lockTable.get(nodeId);
 		}
 
 		if (useLock == null) {
@@ -488,7 +517,7 @@ public abstract class LockManager implements EnvConfigObserver {
 
 		/* If it's not in use at all, remove it from the lock table. */
 		if ((useLock.nWaiters() == 0) && (useLock.nOwners() == 0)) {
-			lockTables[lockTableIndex].remove(useLock.getNodeId());
+			lockTable.remove(useLock.getNodeId().longValue());
 		}
 
 		return lockersToNotify;
@@ -510,8 +539,8 @@ public abstract class LockManager implements EnvConfigObserver {
 			Locker destLocker, boolean demoteToRead, int lockTableIndex)
 			throws DatabaseException {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock useLock = (Lock) lockTable.get(new Long(nodeId));
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock useLock = (Lock) lockTable.get(nodeId);
 
 		assert useLock != null : "Transfer, lock " + nodeId + " was null";
 		if (demoteToRead) {
@@ -540,8 +569,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	protected void transferMultipleInternal(long nodeId, Locker owningLocker,
 			Locker[] destLockers, int lockTableIndex) throws DatabaseException {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock useLock = (Lock) lockTable.get(new Long(nodeId));
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock useLock = (Lock) lockTable.get(nodeId);
 
 		assert useLock != null : "Transfer, lock " + nodeId + " was null";
 		useLock.demote(owningLocker);
@@ -567,8 +596,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	protected void demoteInternal(long nodeId, Locker locker, int lockTableIndex)
 			throws DatabaseException {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock useLock = (Lock) lockTable.get(new Long(nodeId));
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock useLock = (Lock) lockTable.get(nodeId);
 		useLock.demote(locker);
 		locker.moveWriteToReadLock(nodeId, useLock);
 	}
@@ -593,8 +622,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	 */
 	protected boolean isLockedInternal(Long nodeId, int lockTableIndex) {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock entry = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock entry = (Lock) lockTable.get(nodeId.longValue());
 		if (entry == null) {
 			return false;
 		}
@@ -617,8 +646,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	protected boolean isOwnerInternal(Long nodeId, Locker locker,
 			LockType type, int lockTableIndex) {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock entry = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock entry = (Lock) lockTable.get(nodeId.longValue());
 		if (entry == null) {
 			return false;
 		}
@@ -628,8 +657,6 @@ public abstract class LockManager implements EnvConfigObserver {
 
 	/**
 	 * Return true if this locker is waiting on this lock.
-	 * 
-	 * This method is only used by unit tests.
 	 */
 	//Lck made protected 
 	protected abstract boolean isWaiter(Long nodeId, Locker locker)
@@ -641,8 +668,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	protected boolean isWaiterInternal(Long nodeId, Locker locker,
 			int lockTableIndex) {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock entry = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock entry = (Lock) lockTable.get(nodeId.longValue());
 		if (entry == null) {
 			return false;
 		}
@@ -661,8 +688,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	 */
 	protected int nWaitersInternal(Long nodeId, int lockTableIndex) {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock entry = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock entry = (Lock) lockTable.get(nodeId.longValue());
 		if (entry == null) {
 			return -1;
 		}
@@ -681,8 +708,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	 */
 	protected int nOwnersInternal(Long nodeId, int lockTableIndex) {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock entry = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock entry = (Lock) lockTable.get(nodeId.longValue());
 		if (entry == null) {
 			return -1;
 		}
@@ -701,8 +728,8 @@ public abstract class LockManager implements EnvConfigObserver {
 	protected Locker getWriteOwnerLockerInternal(Long nodeId, int lockTableIndex)
 			throws DatabaseException {
 
-		Map lockTable = lockTables[lockTableIndex];
-		Lock lock = (Lock) lockTable.get(nodeId);
+		LockTable lockTable = lockTables[lockTableIndex];
+		Lock lock = (Lock) lockTable.get(nodeId.longValue());
 		if (lock == null) {
 			return null;
 		} else if (lock.nOwners() > 1) {
@@ -737,7 +764,8 @@ public abstract class LockManager implements EnvConfigObserver {
 		}
 
 		if (flushFromWaiters) {
-			Lock entry = (Lock) lockTables[lockTableIndex].get(nodeId);
+			Lock entry = (Lock) lockTables[lockTableIndex].get(nodeId
+					.longValue());
 			if (entry != null) {
 				entry.flushWaiter(locker, /*//M.B mb,*/ lockTableIndex);
 			}
@@ -747,6 +775,29 @@ public abstract class LockManager implements EnvConfigObserver {
 
 	
 
+	/**
+	 * @return the number of lock requests, summed over all lock tables.
+	 */
+	public long getNRequests() {
+		long total = 0;
+		for (int i = 0; i < nLockTables; i++) {
+			total += lockTables[i].nRequests;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of lock requests that had to wait, summed over all
+	 *         lock tables.
+	 */
+	public long getNWaits() {
+		long total = 0;
+		for (int i = 0; i < nLockTables; i++) {
+			total += lockTables[i].nWaits;
+		}
+		return total;
+	}
+
 	/**
 	 * Debugging
 	 */
@@ -769,13 +820,12 @@ public abstract class LockManager implements EnvConfigObserver {
 	}
 
 	private void dumpToStringNoLatch(StringBuffer sb, int whichTable) {
-		Map lockTable = lockTables[whichTable];
-		Iterator entries = lockTable.entrySet().iterator();
+		LockTable lockTable = lockTables[whichTable];
+		LongHashMap.Iter entries = lockTable.iterator();
 
 		while (entries.hasNext()) {
-			Map.Entry entry = (Map.Entry) entries.next();
-			Long nid = (Long) entry.getKey();
-			Lock lock = (Lock) entry.getValue();
+			long nid = entries.next();
+			Lock lock = (Lock) entries.getValue();
 			sb.append("---- Node Id: ").append(nid).append("----\n");
 			sb.append(lock);
 			sb.append('\n');
@@ -862,16 +912,20 @@ public abstract class LockManager implements EnvConfigObserver {
 		}
 	}
 	
-	public static class LockTable extends HashMap {
+	/**
+	 * One stripe of the lock table: node id -> Lock. Guarded by its own
+	 * monitor, see SyncedLockManager.
+	 */
+	public static class LockTable extends LongHashMap {
 		int lockTableIndex;
 
+		long nRequests; // stats: number of time a request was made
+
+		long nWaits; // stats: number of time a request blocked
+
 		LockTable(int lockTableIdx) {
 			super();
 			this.lockTableIndex=lockTableIdx;
 		}
-//		public Object put(Object key, Object value) {
-//			// TODO Auto-generated method stub
-//			return super.put(key, value);
-//		}
 	}
 }
@@ -11,7 +11,6 @@ package com.sleepycat.je.txn;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +37,8 @@ import com.sleepycat.je.recovery.RecoveryManager;
 import com.sleepycat.je.tree.LN;
 import com.sleepycat.je.tree.TreeLocation;
 import com.sleepycat.je.utilint.DbLsn;
+import com.sleepycat.je.utilint.LongHashMap;
+import com.sleepycat.je.utilint.LongHashSet;
 
 /**
  * A Txn is one that's created by a call to Environment.txnBegin. This class
@@ -79,12 +80,12 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 	 * A Txn can be used by multiple threads. Modification to the read and write
 	 * lock collections is done by synchronizing on the txn.
 	 */
-	private ReadLocksSet readLocks;
+	private ReadLocksMap readLocks; // key=nodeid, data = Lock
 	
-	static class ReadLocksSet extends HashSet {}
+	static class ReadLocksMap extends LongHashMap {}
 
 	private WriteInfoMap writeInfo; // key=nodeid, data = WriteLockInfo
-	static class WriteInfoMap extends HashMap{}
+	static class WriteInfoMap extends LongHashMap {}
 
 
 
@@ -253,7 +254,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		if (writeInfo != null) {
 			if (grant != LockGrantType.DENIED && lockType.isWriteLock()) {
 				synchronized (this) {
-					info = (WriteLockInfo) writeInfo.get(new Long(nodeId));
+					info = (WriteLockInfo) writeInfo.get(nodeId);
 					/* Save the latest version of this database for undoing. */
 					undoDatabases.put(database.getId(), database);
 				}
@@ -282,7 +283,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 																 * required.
 																 */
 			LogManager logManager = envImpl.getLogManager();
-			logManager.logForceFlush(prepareRecord/*FSync, true*/); // sync required
+			logManager.logForceFlush(prepareRecord, true); // sync required
 		}
 		setPrepared(true);
 		return XAResource.XA_OK;
@@ -359,10 +360,10 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 					if (flushSyncBehavior == TXN_SYNC) {
 						/* Flush and sync required. */
 						commitLsn = logManager
-								.logForceFlush(commitRecord/*FSync, true*/);
+								.logForceFlush(commitRecord, true);
 					} else if (flushSyncBehavior == TXN_WRITE_NOSYNC) {
 						/* Flush but no sync required. */
-						commitLsn = logManager.logForceFlush(commitRecord/*, false*/);
+						commitLsn = logManager.logForceFlush(commitRecord, false);
 					} else {
 						/* No flush, no sync required. */
 						commitLsn = logManager.log(commitRecord);
@@ -376,12 +377,13 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 					 * nodes with the same abortLSN occur when a deleted slot is
 					 * reused in the same txn.
 					 */
-					Set alreadyCountedLsnSet = new HashSet();
+					LongHashSet alreadyCountedLsnSet = new LongHashSet();
 
 					/* Release all write locks, clear lock collection. */
-					Iterator iter = writeInfo.values().iterator();
+					LongHashMap.Iter iter = writeInfo.iterator();
 					while (iter.hasNext()) {
-						WriteLockInfo info = (WriteLockInfo) iter.next();
+						iter.next();
+						WriteLockInfo info = (WriteLockInfo) iter.getValue();
 						lockManager.release(info.lock, this);
 
 						/*
@@ -391,11 +393,9 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 						 */
 						if (info.abortLsn != DbLsn.NULL_LSN
 								&& !info.abortKnownDeleted) {
-							Long longLsn = new Long(info.abortLsn);
-							if (!alreadyCountedLsnSet.contains(longLsn)) {
+							if (alreadyCountedLsnSet.add(info.abortLsn)) {
 								logManager.countObsoleteNode(info.abortLsn,
 										null);
-								alreadyCountedLsnSet.add(longLsn);
 							}
 						}
 					}
@@ -514,7 +514,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 					if (writeAbortRecord) {
 						if (forceFlush) {
 							abortLsn = envImpl.getLogManager().logForceFlush(
-									abortRecord/*FSync, true*/);
+									abortRecord, true);
 						} else {
 							abortLsn = envImpl.getLogManager().log(abortRecord);
 						}
@@ -595,27 +595,27 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 	 */
 	private void undo() throws DatabaseException {
 
-		Long nodeId = null;
+		/* Id of the node being undone, -1 before the first entry is read. */
+		long nodeId = -1;
 		long undoLsn = lastLoggedLsn;
 		LogManager logManager = envImpl.getLogManager();
 
 		try {
-			Set alreadyUndone = new HashSet();
+			LongHashSet alreadyUndone = new LongHashSet();
 			TreeLocation location = new TreeLocation();
 			while (undoLsn != DbLsn.NULL_LSN) {
 
 				LNLogEntry undoEntry = (LNLogEntry) logManager
 						.getLogEntry(undoLsn);
 				LN undoLN = undoEntry.getLN();
-				nodeId = new Long(undoLN.getNodeId());
+				nodeId = undoLN.getNodeId();
 
 				/*
 				 * Only process this if this is the first time we've seen this
 				 * node. All log entries for a given node have the same
 				 * abortLsn, so we don't need to undo it multiple times.
 				 */
-				if (!alreadyUndone.contains(nodeId)) {
-					alreadyUndone.add(nodeId);
+				if (alreadyUndone.add(nodeId)) {
 					DatabaseId dbId = undoEntry.getDbId();
 					DatabaseImpl db = (DatabaseImpl) undoDatabases.get(dbId);
 					undoLN.postFetchInit(db, undoLsn);
@@ -650,7 +650,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		}
 	}
 
-	private void hook_traceUndo(DatabaseException e, Long nodeId, long undoLsn) {
+	private void hook_traceUndo(DatabaseException e, long nodeId, long undoLsn) {
 		// TODO Auto-generated method stub
 		
 	}
@@ -659,9 +659,10 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 
 		int numWriteLocks = writeInfo.size();
 		/* Release all write locks, clear lock collection. */
-		Iterator iter = writeInfo.values().iterator();
+		LongHashMap.Iter iter = writeInfo.iterator();
 		while (iter.hasNext()) {
-			WriteLockInfo info = (WriteLockInfo) iter.next();
+			iter.next();
+			WriteLockInfo info = (WriteLockInfo) iter.getValue();
 			lockManager.release(info.lock, this);
 		}
 		writeInfo = null;
@@ -673,9 +674,10 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		int numReadLocks = 0;
 		if (readLocks != null) {
 			numReadLocks = readLocks.size();
-			Iterator iter = readLocks.iterator();
+			LongHashMap.Iter iter = readLocks.iterator();
 			while (iter.hasNext()) {
-				Lock rLock = (Lock) iter.next();
+				iter.next();
+				Lock rLock = (Lock) iter.getValue();
 				lockManager.release(rLock, this);
 			}
 			readLocks = null;
@@ -736,24 +738,24 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 					undoDatabases = new HashMap();
 				}
 
-				writeInfo.put(nodeId, new WriteLockInfo(lock));
+				writeInfo.put(nodeId.longValue(), new WriteLockInfo(lock));
 
 				if ((grantStatus == LockGrantType.PROMOTION)
 						|| (grantStatus == LockGrantType.WAIT_PROMOTION)) {
-					readLocks.remove(lock);
+					readLocks.remove(nodeId.longValue());
 				}
 			} else {
-				addReadLock(lock);
+				addReadLock(nodeId.longValue(), lock);
 			}
 		}
 	}
 
-	private void addReadLock(Lock lock) {
+	private void addReadLock(long nodeId, Lock lock) {
 		if (readLocks == null) {
-			readLocks = new ReadLocksSet();
+			readLocks = new ReadLocksMap();
 		}
 
-		readLocks.add(lock);
+		readLocks.put(nodeId, lock);
 	}
 
 	/**
@@ -773,9 +775,9 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		 * transaction end.
 		 */
 		synchronized (this) {
-			if ((readLocks != null) && readLocks.remove(lock)) {
+			if ((readLocks != null) && (readLocks.remove(nodeId) != null)) {
 			} else if ((writeInfo != null)
-					&& (writeInfo.remove(new Long(nodeId)) != null)) {
+					&& (writeInfo.remove(nodeId) != null)) {
 			}
 		}
 	}
@@ -789,13 +791,13 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		boolean found = false;
 		synchronized (this) {
 			if ((writeInfo != null)
-					&& (writeInfo.remove(new Long(nodeId)) != null)) {
+					&& (writeInfo.remove(nodeId) != null)) {
 				found = true;
 			}
 
 			assert found : "Couldn't find lock for Node " + nodeId
 					+ " in writeInfo Map.";
-			addReadLock(lock);
+			addReadLock(nodeId, lock);
 		}
 	}
 
@@ -810,8 +812,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		boolean created = false;
 		synchronized (this) {
 			if (writeInfo != null) {
-				WriteLockInfo info = (WriteLockInfo) writeInfo.get(new Long(
-						nodeId));
+				WriteLockInfo info = (WriteLockInfo) writeInfo.get(nodeId);
 				if (info != null) {
 					created = info.createdThisTxn;
 				}
@@ -828,7 +829,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		WriteLockInfo info = null;
 		synchronized (this) {
 			if (writeInfo != null) {
-				info = (WriteLockInfo) writeInfo.get(new Long(nodeId));
+				info = (WriteLockInfo) writeInfo.get(nodeId);
 			}
 		}
 
@@ -847,7 +848,7 @@ public class Txn extends Locker implements LogWritable, LogReadable {
 		WriteLockInfo info = WriteLockInfo.basicWriteLockInfo;
 		synchronized (this) {
 			if (writeInfo != null) {
-				info = (WriteLockInfo) writeInfo.get(new Long(nodeId));
+				info = (WriteLockInfo) writeInfo.get(nodeId);
 			}
 		}
 
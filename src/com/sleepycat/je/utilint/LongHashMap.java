@@ -0,0 +1,227 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.utilint;
+
+import java.util.NoSuchElementException;
+
+/**
+ * LongHashMap is a hash map from primitive long keys to non-null Object
+ * values. It is used instead of a HashMap keyed by Long where there are many
+ * entries or much churn: keys are not boxed, and there is no Entry object per
+ * mapping. Keys and values are held in two parallel arrays and collisions are
+ * resolved by linear probing; a slot is free when its value is null.
+ * 
+ * LongHashMap is not synchronized. Its Iter must not be used across a put or
+ * remove on the same map.
+ */
+public class LongHashMap {
+
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+
+	private Object[] values;
+
+	private int size;
+
+	/* Grow when size reaches this many entries, 2/3 of the capacity. */
+	private int threshold;
+
+	public LongHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the map can hold before it grows.
+	 */
+	public LongHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 2 / 3 < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		threshold = capacity * 2 / 3;
+	}
+
+	/*
+	 * Spread the key bits, node ids and LSNs are mostly sequential.
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @return the slot holding key, or the free slot where it would go.
+	 */
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the number of slots, for memory accounting.
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	public Object get(long key) {
+		return values[findSlot(key)];
+	}
+
+	public boolean containsKey(long key) {
+		return values[findSlot(key)] != null;
+	}
+
+	/**
+	 * @return the previous value for key, or null.
+	 */
+	public Object put(long key, Object value) {
+		if (value == null) {
+			throw new IllegalArgumentException("null value");
+		}
+		int i = findSlot(key);
+		Object oldValue = values[i];
+		if (oldValue == null) {
+			keys[i] = key;
+			size++;
+			if (size > threshold) {
+				values[i] = value;
+				rehash(keys.length << 1);
+				return null;
+			}
+		}
+		values[i] = value;
+		return oldValue;
+	}
+
+	/**
+	 * @return the value that was removed, or null if key wasn't mapped.
+	 */
+	public Object remove(long key) {
+		int i = findSlot(key);
+		Object oldValue = values[i];
+		if (oldValue == null) {
+			return null;
+		}
+		values[i] = null;
+		size--;
+
+		/*
+		 * Move later entries of the same probe run back into the hole, so
+		 * that lookups never need to skip deleted slots.
+		 */
+		int mask = keys.length - 1;
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (values[j] != null) {
+			int home = hash(keys[j]) & mask;
+			boolean canMove = (hole <= j) ? (home <= hole || home > j)
+					: (home <= hole && home > j);
+			if (canMove) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				values[j] = null;
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		return oldValue;
+	}
+
+	public void clear() {
+		if (size > 0) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = null;
+			}
+			size = 0;
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(newCapacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = findSlot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	public Iter iterator() {
+		return new Iter();
+	}
+
+	/**
+	 * Iterates over the entries without allocating per entry. next advances
+	 * to the next entry, whose key and value are then returned by getKey and
+	 * getValue.
+	 */
+	public class Iter {
+
+		private int index = -1;
+
+		private int nextIndex = -1;
+
+		Iter() {
+			advance();
+		}
+
+		private void advance() {
+			nextIndex++;
+			while (nextIndex < values.length && values[nextIndex] == null) {
+				nextIndex++;
+			}
+		}
+
+		public boolean hasNext() {
+			return nextIndex < values.length;
+		}
+
+		public long next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			index = nextIndex;
+			advance();
+			return keys[index];
+		}
+
+		public long getKey() {
+			return keys[index];
+		}
+
+		public Object getValue() {
+			return values[index];
+		}
+	}
+}
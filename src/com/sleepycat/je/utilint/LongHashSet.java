@@ -0,0 +1,150 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.utilint;
+
+/**
+ * LongHashSet is a hash set of primitive longs, such as node ids or LSNs. It
+ * is the set counterpart of LongHashMap: values are not boxed and there is no
+ * Entry object per element. Collisions are resolved by linear probing, and a
+ * slot holding 0 is free; the value 0 itself is tracked by a separate flag.
+ * 
+ * LongHashSet is not synchronized.
+ */
+public class LongHashSet {
+
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] slots;
+
+	/* Number of non-zero values in slots. */
+	private int nSlotsUsed;
+
+	private boolean containsZero;
+
+	/* Grow when nSlotsUsed reaches this many values, 2/3 of the capacity. */
+	private int threshold;
+
+	public LongHashSet() {
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		slots = new long[capacity];
+		threshold = capacity * 2 / 3;
+	}
+
+	private static int hash(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @return the slot holding value, or the free slot where it would go.
+	 *         value must not be 0.
+	 */
+	private int findSlot(long value) {
+		int mask = slots.length - 1;
+		int i = hash(value) & mask;
+		while (slots[i] != 0 && slots[i] != value) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	public int size() {
+		return nSlotsUsed + (containsZero ? 1 : 0);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public boolean contains(long value) {
+		if (value == 0) {
+			return containsZero;
+		}
+		return slots[findSlot(value)] != 0;
+	}
+
+	/**
+	 * @return true if the value was added, false if it was already present.
+	 */
+	public boolean add(long value) {
+		if (value == 0) {
+			boolean added = !containsZero;
+			containsZero = true;
+			return added;
+		}
+		int i = findSlot(value);
+		if (slots[i] != 0) {
+			return false;
+		}
+		slots[i] = value;
+		nSlotsUsed++;
+		if (nSlotsUsed > threshold) {
+			rehash(slots.length << 1);
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the value was present.
+	 */
+	public boolean remove(long value) {
+		if (value == 0) {
+			boolean removed = containsZero;
+			containsZero = false;
+			return removed;
+		}
+		int i = findSlot(value);
+		if (slots[i] == 0) {
+			return false;
+		}
+		slots[i] = 0;
+		nSlotsUsed--;
+
+		/* Close the hole, see LongHashMap.remove. */
+		int mask = slots.length - 1;
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (slots[j] != 0) {
+			int home = hash(slots[j]) & mask;
+			boolean canMove = (hole <= j) ? (home <= hole || home > j)
+					: (home <= hole && home > j);
+			if (canMove) {
+				slots[hole] = slots[j];
+				slots[j] = 0;
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		return true;
+	}
+
+	public void clear() {
+		if (nSlotsUsed > 0) {
+			for (int i = 0; i < slots.length; i++) {
+				slots[i] = 0;
+			}
+			nSlotsUsed = 0;
+		}
+		containsZero = false;
+	}
+
+	private void rehash(int newCapacity) {
+		long[] oldSlots = slots;
+		allocate(newCapacity);
+		for (int i = 0; i < oldSlots.length; i++) {
+			if (oldSlots[i] != 0) {
+				slots[findSlot(oldSlots[i])] = oldSlots[i];
+			}
+		}
+	}
+}
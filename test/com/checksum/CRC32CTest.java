@@ -0,0 +1,67 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.checksum;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks CRC32C against the published check value and checks that the
+ * 8-byte-at-a-time path agrees with the byte-at-a-time path.
+ */
+public class CRC32CTest extends TestCase {
+
+	public void testCheckValue() {
+		CRC32C crc = new CRC32C();
+		byte[] data = "123456789".getBytes();
+		crc.update(data, 0, data.length);
+		assertEquals(0xE3069283L, crc.getValue());
+
+		crc.reset();
+		for (int i = 0; i < data.length; i++) {
+			crc.update(data[i]);
+		}
+		assertEquals(0xE3069283L, crc.getValue());
+	}
+
+	public void testEmpty() {
+		CRC32C crc = new CRC32C();
+		assertEquals(0, crc.getValue());
+		crc.update(new byte[10], 5, 0);
+		assertEquals(0, crc.getValue());
+	}
+
+	/**
+	 * Every length and alignment around the 8-byte steps must give the same
+	 * value as one byte at a time, also when split across several updates.
+	 */
+	public void testBulkMatchesBytewise() {
+		Random rnd = new Random(42);
+		byte[] data = new byte[100];
+		rnd.nextBytes(data);
+		CRC32C bulk = new CRC32C();
+		CRC32C single = new CRC32C();
+		for (int off = 0; off < 9; off++) {
+			for (int len = 0; off + len <= data.length; len++) {
+				bulk.reset();
+				single.reset();
+				int half = len / 3;
+				bulk.update(data, off, half);
+				bulk.update(data, off + half, len - half);
+				for (int i = off; i < off + len; i++) {
+					single.update(data[i]);
+				}
+				assertEquals("off=" + off + " len=" + len, single.getValue(),
+						bulk.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.evictor;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.dbi.DatabaseImpl;
+import com.sleepycat.je.tree.IN;
+
+/**
+ * Drives the clock policy's selection directly, without an environment or an
+ * Evictor.
+ */
+public class ClockPolicyTest extends TestCase {
+
+	private DatabaseImpl db;
+
+	private ClockPolicy policy;
+
+	public void setUp() throws Exception {
+		db = new DatabaseImpl();
+		policy = new ClockPolicy();
+	}
+
+	private IN newIN(byte state) {
+		IN in = new IN(db, new byte[0], 4, 1);
+		in.evictionState = state;
+		return in;
+	}
+
+	private IN newHotIN() {
+		return newIN((byte) (ClockPolicy.HOT | ClockPolicy.REFERENCED));
+	}
+
+	public void testColdUnreferencedIsVictim() {
+		IN hot = newHotIN();
+		IN cold = newIN((byte) 0);
+		policy.startSelection();
+		assertFalse(policy.consider(hot, IN.MAY_EVICT_NODE));
+		assertTrue(policy.consider(cold, IN.MAY_EVICT_NODE));
+		assertSame(cold, policy.getSelection());
+	}
+
+	/**
+	 * A scan that finds only referenced hot INs selects nothing.
+	 */
+	public void testOnlyHot() {
+		IN[] ins = new IN[8];
+		policy.startSelection();
+		for (int i = 0; i < ins.length; i++) {
+			ins[i] = newHotIN();
+			assertFalse(policy.consider(ins[i], IN.MAY_EVICT_NODE));
+		}
+		assertNull(policy.getSelection());
+		for (int i = 0; i < ins.length; i++) {
+			assertEquals(ClockPolicy.HOT, ins[i].evictionState);
+		}
+	}
+
+	/**
+	 * INs referenced again during their test period become hot and are not
+	 * the fallback either.
+	 */
+	public void testPromotedIsNotFallback() {
+		IN promoted = newIN((byte) (ClockPolicy.TEST | ClockPolicy.REFERENCED));
+		policy.startSelection();
+		assertFalse(policy.consider(promoted, IN.MAY_EVICT_NODE));
+		assertEquals(ClockPolicy.HOT, promoted.evictionState);
+		assertNull(policy.getSelection());
+		assertEquals(1, policy.getNPromoted());
+	}
+
+	/**
+	 * When no IN is unreferenced and cold, the first cold IN passed over is
+	 * selected, not the hot INs before it.
+	 */
+	public void testFallbackIsCold() {
+		IN hot = newHotIN();
+		IN secondChance = newIN(ClockPolicy.REFERENCED);
+		IN demoted = newIN(ClockPolicy.HOT);
+		policy.startSelection();
+		assertFalse(policy.consider(hot, IN.MAY_EVICT_NODE));
+		assertFalse(policy.consider(secondChance, IN.MAY_EVICT_NODE));
+		assertFalse(policy.consider(demoted, IN.MAY_EVICT_NODE));
+		assertSame(secondChance, policy.getSelection());
+		assertEquals(ClockPolicy.TEST, secondChance.evictionState);
+
+		assertEquals(0, demoted.evictionState);
+
+		IN demoted2 = newIN(ClockPolicy.HOT);
+		policy.startSelection();
+		assertFalse(policy.consider(newHotIN(), IN.MAY_EVICT_NODE));
+		assertFalse(policy.consider(demoted2, IN.MAY_EVICT_NODE));
+		assertSame(demoted2, policy.getSelection());
+		assertEquals(2, policy.getNDemoted());
+	}
+}
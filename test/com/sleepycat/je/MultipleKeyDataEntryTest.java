@@ -0,0 +1,101 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.dbi.DatabaseImpl;
+import com.sleepycat.je.tree.ChildReference;
+import com.sleepycat.je.tree.IN;
+import com.sleepycat.je.utilint.DbLsn;
+
+/**
+ * Checks the packing and unpacking of bulk read buffers.
+ */
+public class MultipleKeyDataEntryTest extends TestCase {
+
+	public void testAppendAndNext() {
+		MultipleKeyDataEntry buffer = new MultipleKeyDataEntry(new byte[100]);
+		assertEquals(100, buffer.getCapacity());
+		assertTrue(buffer.append("k1".getBytes(), "data1".getBytes()));
+		assertTrue(buffer.append(new byte[0], new byte[0]));
+		assertTrue(buffer.append("k3".getBytes(), "d".getBytes()));
+		assertEquals(3, buffer.getRecordCount());
+		assertEquals((8 + 2 + 5) + 8 + (8 + 2 + 1), buffer.getSize());
+
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		for (int pass = 0; pass < 2; pass++) {
+			assertTrue(buffer.next(key, data));
+			assertEquals("k1", toString(key));
+			assertEquals("data1", toString(data));
+			assertSame(buffer.getData(), key.getData());
+			assertTrue(buffer.next(key, data));
+			assertEquals(0, key.getSize());
+			assertEquals(0, data.getSize());
+			assertTrue(buffer.next(key, data));
+			assertEquals("k3", toString(key));
+			assertEquals("d", toString(data));
+			assertFalse(buffer.next(key, data));
+			buffer.reset();
+		}
+
+		buffer.clear();
+		assertEquals(0, buffer.getRecordCount());
+		assertEquals(0, buffer.getSize());
+		assertFalse(buffer.next(key, data));
+	}
+
+	/**
+	 * A record that doesn't fit leaves the buffer unchanged, and one that
+	 * fills it exactly is accepted.
+	 */
+	public void testFull() {
+		MultipleKeyDataEntry buffer = new MultipleKeyDataEntry(new byte[30]);
+		assertTrue(buffer.append(new byte[5], new byte[5]));
+		assertFalse(buffer.append(new byte[1], new byte[4]));
+		assertEquals(1, buffer.getRecordCount());
+		assertEquals(18, buffer.getSize());
+		assertTrue(buffer.append(new byte[1], new byte[3]));
+		assertEquals(30, buffer.getSize());
+		assertFalse(buffer.append(new byte[0], new byte[0]));
+	}
+
+	/**
+	 * Keys appended from a node must unpack like keys appended as arrays.
+	 */
+	public void testAppendFromNode() throws DatabaseException {
+		IN in = new IN(new DatabaseImpl(), new byte[0], 4, 1);
+		in.insertEntry(new ChildReference(null, "apple".getBytes(), DbLsn
+				.makeLsn(0, 10)));
+		in.insertEntry(new ChildReference(null, "apricot".getBytes(), DbLsn
+				.makeLsn(0, 20)));
+
+		MultipleKeyDataEntry buffer = new MultipleKeyDataEntry(new byte[40]);
+		assertTrue(buffer.append(in, 0, "x".getBytes()));
+		assertTrue(buffer.append(in, 1, new byte[0]));
+		assertFalse(buffer.append(in, 1, new byte[10]));
+		assertEquals(2, buffer.getRecordCount());
+
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		assertTrue(buffer.next(key, data));
+		assertEquals("apple", toString(key));
+		assertEquals("x", toString(data));
+		assertTrue(buffer.next(key, data));
+		assertEquals("apricot", toString(key));
+		assertEquals(0, data.getSize());
+		assertFalse(buffer.next(key, data));
+	}
+
+	private static String toString(DatabaseEntry entry) {
+		return new String(entry.getData(), entry.getOffset(), entry.getSize());
+	}
+}
@@ -0,0 +1,105 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.dbi;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.memorybudget.MemoryBudget;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.DbInternal;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+
+/**
+ * Saves a hot set snapshot with a large cache and loads it with a small one.
+ */
+public class HotSetSnapshotTest extends TestCase {
+
+	private static final int N_RECORDS = 50000;
+
+	private File envHome;
+
+	private Environment env;
+
+	public void setUp() throws Exception {
+		envHome = new File(System.getProperty("testdestdir", System
+				.getProperty("java.io.tmpdir")), "HotSetSnapshotTest");
+		envHome.mkdirs();
+		cleanEnvHome();
+	}
+
+	public void tearDown() throws Exception {
+		if (env != null) {
+			env.close();
+			env = null;
+		}
+		cleanEnvHome();
+	}
+
+	private void cleanEnvHome() {
+		File[] files = envHome.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	private void openEnv(long cacheSize) throws DatabaseException {
+		EnvironmentConfig envConfig = new EnvironmentConfig();
+		envConfig.setAllowCreate(true);
+		envConfig.setConfigParam("je.env.hotSetSnapshot", "true");
+		envConfig.setConfigParam("je.maxMemory", String.valueOf(cacheSize));
+		env = new Environment(envHome, envConfig);
+	}
+
+	private void closeEnv() throws DatabaseException {
+		env.close();
+		env = null;
+	}
+
+	/**
+	 * A snapshot saved with a cache that holds every IN is loaded into a
+	 * cache that can't; loading stops at the cache budget.
+	 */
+	public void testLoadStopsWhenCacheFull() throws DatabaseException {
+		openEnv(64 << 20);
+		DatabaseConfig dbConfig = new DatabaseConfig();
+		dbConfig.setAllowCreate(true);
+		dbConfig.setNodeMaxEntries(16);
+		Database db = env.openDatabase(null, "foo", dbConfig);
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry(new byte[100]);
+		for (int i = 0; i < N_RECORDS; i++) {
+			key.setData(String.valueOf(1000000 + i).getBytes());
+			db.put(null, key, data);
+		}
+		db.close();
+		HotSetSnapshot snapshot = DbInternal.envGetEnvironmentImpl(env)
+				.getHotSetSnapshot();
+		closeEnv();
+		int nSaved = snapshot.getNSaved();
+		assertTrue(nSaved > 0);
+
+		openEnv(1 << 20);
+		EnvironmentImpl envImpl = DbInternal.envGetEnvironmentImpl(env);
+		snapshot = envImpl.getHotSetSnapshot();
+		MemoryBudget mb = envImpl.getMemoryBudget();
+		assertTrue(snapshot.getNLoaded() > 0);
+		assertTrue(snapshot.getNLoaded() < nSaved);
+
+		/* The check is made before each fetch, so allow for one IN more. */
+		assertTrue(mb.getCacheMemoryUsage() < mb.getCacheBudget()
+				+ mb.getCacheBudget() / 10);
+	}
+}
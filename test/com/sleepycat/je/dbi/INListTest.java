@@ -0,0 +1,153 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.dbi;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.tree.IN;
+
+/**
+ * Exercises the INList slot array directly, without an environment.
+ */
+public class INListTest extends TestCase {
+
+	private DatabaseImpl db;
+
+	private INList inList;
+
+	public void setUp() throws Exception {
+		db = new DatabaseImpl();
+		inList = new INList(null);
+	}
+
+	private IN newIN() {
+		return new IN(db, new byte[0], 4, 1);
+	}
+
+	public void testAddRemove() throws Exception {
+		IN in1 = newIN();
+		IN in2 = newIN();
+		assertFalse(inList.contains(in1));
+		inList.add(in1);
+		inList.add(in2);
+		assertEquals(2, inList.getSize());
+		assertTrue(inList.contains(in1));
+		assertTrue(inList.contains(in2));
+
+		inList.remove(in1);
+		assertEquals(1, inList.getSize());
+		assertFalse(inList.contains(in1));
+		assertEquals(-1, in1.getInListIndex());
+		assertTrue(inList.contains(in2));
+	}
+
+	/**
+	 * A removed IN's slot is reused by the next add, so the array doesn't
+	 * grow with churn.
+	 */
+	public void testSlotReuse() throws Exception {
+		IN in1 = newIN();
+		IN in2 = newIN();
+		inList.add(in1);
+		inList.add(in2);
+		int slot = in1.getInListIndex();
+		inList.remove(in1);
+		IN in3 = newIN();
+		inList.add(in3);
+		assertEquals(slot, in3.getInListIndex());
+
+		/* An IN on another list, or none, isn't mistaken for a member. */
+		assertFalse(inList.contains(in1));
+		in1.setInListIndex(slot);
+		assertFalse(inList.contains(in1));
+		in1.setInListIndex(-1);
+	}
+
+	/**
+	 * Grow the array past its initial capacity, then iterate, removing every
+	 * other IN through the iterator.
+	 */
+	public void testGrowAndIterate() throws Exception {
+		Set all = new HashSet();
+		for (int i = 0; i < 1000; i++) {
+			IN in = newIN();
+			inList.add(in);
+			all.add(in);
+		}
+		assertEquals(1000, inList.getSize());
+
+		Set removed = new HashSet();
+		boolean remove = false;
+		Iterator iter = inList.iterator();
+		while (iter.hasNext()) {
+			IN in = (IN) iter.next();
+			assertTrue(all.contains(in));
+			if (remove) {
+				iter.remove();
+				removed.add(in);
+			}
+			remove = !remove;
+		}
+		assertEquals(500, removed.size());
+		assertEquals(500, inList.getSize());
+
+		int count = 0;
+		iter = inList.iterator();
+		while (iter.hasNext()) {
+			IN in = (IN) iter.next();
+			assertFalse(removed.contains(in));
+			count++;
+		}
+		assertEquals(500, count);
+	}
+
+	/**
+	 * The scan cursor skips free slots, stops at the end and wraps around on
+	 * rewind.
+	 */
+	public void testScanCursor() throws Exception {
+		IN[] ins = new IN[10];
+		for (int i = 0; i < ins.length; i++) {
+			ins[i] = newIN();
+			inList.add(ins[i]);
+		}
+		inList.remove(ins[3]);
+		inList.remove(ins[4]);
+
+		INList.ScanCursor cursor = inList.scanCursor(2);
+		assertSame(ins[2], cursor.next());
+		assertSame(ins[5], cursor.next());
+		assertEquals(6, cursor.getPosition());
+		for (int i = 6; i < ins.length; i++) {
+			assertSame(ins[i], cursor.next());
+		}
+		assertNull(cursor.next());
+
+		cursor.rewind();
+		assertSame(ins[0], cursor.next());
+
+		assertNull(inList.scanCursor(1000).next());
+	}
+
+	public void testClear() throws Exception {
+		IN in = newIN();
+		inList.add(in);
+		inList.clear();
+		assertEquals(0, inList.getSize());
+		assertEquals(-1, in.getInListIndex());
+		assertFalse(inList.iterator().hasNext());
+		inList.add(in);
+		assertTrue(inList.contains(in));
+	}
+}
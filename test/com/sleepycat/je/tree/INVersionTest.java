@@ -0,0 +1,84 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.dbi.DatabaseImpl;
+
+/**
+ * Exercises the version an IN's optimistic readers validate against, without
+ * an environment.
+ */
+public class INVersionTest extends TestCase {
+
+	private IN in;
+
+	public void setUp() throws Exception {
+		in = new IN(new DatabaseImpl(), new byte[0], 4, 1);
+	}
+
+	public void testWriteAdvancesVersion() {
+		int v = in.getVersion();
+		assertEquals(0, v & 1);
+		assertTrue(in.validateVersion(v));
+		in.beginWrite();
+		assertFalse(in.validateVersion(v));
+
+		/* The writer itself reads its node without waiting. */
+		assertEquals(1, in.getVersion() & 1);
+		in.endWrite();
+		int v2 = in.getVersion();
+		assertEquals(0, v2 & 1);
+		assertTrue(v2 != v);
+		assertFalse(in.validateVersion(v));
+	}
+
+	public void testNestedWrite() {
+		int v = in.getVersion();
+		in.beginWrite();
+		in.beginWrite();
+		in.endWrite();
+		assertEquals(1, in.getVersion() & 1);
+		in.endWrite();
+		assertEquals(v + 2, in.getVersion());
+	}
+
+	public void testUpgrade() {
+		int v = in.getVersion();
+		assertTrue(in.beginWrite(v));
+		in.endWrite();
+		assertFalse(in.beginWrite(v));
+		assertTrue(in.beginWrite(in.getVersion()));
+		in.endWrite();
+	}
+
+	/**
+	 * A reader that finds a long write in progress blocks until it ends, and
+	 * then sees the new version.
+	 */
+	public void testReaderWaitsForWriter() throws Exception {
+		final int[] readVersion = new int[1];
+		int v = in.getVersion();
+		in.beginWrite();
+		Thread reader = new Thread() {
+			public void run() {
+				readVersion[0] = in.getVersion();
+			}
+		};
+		reader.start();
+		reader.join(500);
+		assertTrue(reader.isAlive());
+		in.endWrite();
+		reader.join(10000);
+		assertFalse(reader.isAlive());
+		assertEquals(v + 2, readVersion[0]);
+	}
+}
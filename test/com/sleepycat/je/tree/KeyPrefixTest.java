@@ -0,0 +1,223 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.DbInternal;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * Checks that keys stored as a node prefix plus per-slot suffixes read back
+ * unchanged, through the IN accessors and through a cursor.
+ */
+public class KeyPrefixTest extends TestCase {
+
+	private static final String PREFIX = "common-prefix-";
+
+	private static final int N_KEYS = 500;
+
+	private File envHome;
+
+	private Environment env;
+
+	private Database db;
+
+	public void setUp() throws Exception {
+		envHome = new File(System.getProperty("testdestdir", System
+				.getProperty("java.io.tmpdir")), "KeyPrefixTest");
+		envHome.mkdirs();
+		cleanEnvHome();
+	}
+
+	public void tearDown() throws Exception {
+		if (db != null) {
+			db.close();
+			db = null;
+		}
+		if (env != null) {
+			env.close();
+			env = null;
+		}
+		cleanEnvHome();
+	}
+
+	private void cleanEnvHome() {
+		File[] files = envHome.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	/**
+	 * Open the database with small nodes, so that a few hundred keys split
+	 * many times and each split recomputes the prefixes.
+	 */
+	private void open(boolean compactKeys) throws DatabaseException {
+		EnvironmentConfig envConfig = new EnvironmentConfig();
+		envConfig.setAllowCreate(true);
+		envConfig.setConfigParam("je.tree.compactKeys", String
+				.valueOf(compactKeys));
+		env = new Environment(envHome, envConfig);
+		DatabaseConfig dbConfig = new DatabaseConfig();
+		dbConfig.setAllowCreate(true);
+		dbConfig.setNodeMaxEntries(8);
+		db = env.openDatabase(null, "foo", dbConfig);
+	}
+
+	private static byte[] makeKey(int i) {
+		String s = String.valueOf(100000 + i);
+		return (PREFIX + s).getBytes();
+	}
+
+	private void insert(int i) throws DatabaseException {
+		assertEquals(OperationStatus.SUCCESS, db.put(null, new DatabaseEntry(
+				makeKey(i)), new DatabaseEntry(new byte[] { (byte) i })));
+	}
+
+	public void testPrefix() throws DatabaseException {
+		open(false);
+		checkPrefix();
+	}
+
+	public void testCompactPrefix() throws DatabaseException {
+		open(true);
+		checkPrefix();
+	}
+
+	/**
+	 * With compact keys, replaced suffixes leave dead bytes in the node's
+	 * key array until it is repacked. Alternate between the even and the odd
+	 * keys so that the BINs keep inserting into arrays full of dead bytes.
+	 */
+	public void testCompactRepack() throws DatabaseException {
+		open(true);
+		for (int round = 0; round < 4; round++) {
+			int first = round % 2;
+			for (int i = first; i < N_KEYS; i += 2) {
+				insert(i);
+			}
+			checkRecords(first, N_KEYS + first, 2);
+			for (int i = first; i < N_KEYS; i += 2) {
+				assertEquals(OperationStatus.SUCCESS, db.delete(null,
+						new DatabaseEntry(makeKey(i))));
+			}
+		}
+		for (int i = 0; i < N_KEYS; i++) {
+			insert(i);
+		}
+		checkRecords(0, N_KEYS, 1);
+	}
+
+	/**
+	 * Insert keys in a scattered order, then check every BIN and read all
+	 * records back.
+	 */
+	void checkPrefix() throws DatabaseException {
+		for (int i = 0; i < N_KEYS; i++) {
+			insert((i * 7) % N_KEYS);
+		}
+
+		int nBINs = 0;
+		int nPrefixed = 0;
+		Tree tree = DbInternal.dbGetDatabaseImpl(db).getTree();
+		BIN bin = (BIN) tree.getFirstNode();
+		while (bin != null) {
+			nBINs++;
+			byte[] prefix = bin.getKeyPrefix();
+			if (prefix != null) {
+				nPrefixed++;
+				assertTrue(new String(prefix).startsWith(PREFIX));
+			}
+			for (int i = 0; i < bin.getNEntries(); i++) {
+				checkSlot(bin, i);
+			}
+			bin = tree.getNextBin(bin, false);
+		}
+		assertTrue(nBINs > 1);
+		assertTrue(nPrefixed > 0);
+
+		checkRecords(0, N_KEYS, 1);
+	}
+
+	/**
+	 * getKey, getKeyLength and copyKey must agree, also when copyKey starts
+	 * inside the prefix and ends inside the suffix.
+	 */
+	private void checkSlot(IN in, int idx) {
+		byte[] key = in.getKey(idx);
+		assertTrue(new String(key).startsWith(PREFIX));
+		assertEquals(key.length, in.getKeyLength(idx));
+		byte[] copy = new byte[key.length + 2];
+		in.copyKey(idx, 0, copy, 2, key.length);
+		for (int i = 0; i < key.length; i++) {
+			assertEquals(key[i], copy[i + 2]);
+		}
+		int offset = PREFIX.length() - 3;
+		byte[] part = new byte[5];
+		in.copyKey(idx, offset, part, 0, part.length);
+		for (int i = 0; i < part.length; i++) {
+			assertEquals(key[offset + i], part[i]);
+		}
+	}
+
+	/**
+	 * Read the records with a cursor and check that they are the keys from
+	 * first up to end, stepping by step, in order.
+	 */
+	void checkRecords(int first, int end, int step) throws DatabaseException {
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		Cursor cursor = db.openCursor(null, null);
+		try {
+			int i = first;
+			while (cursor.getNext(key, data, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+				assertEquals(new String(makeKey(i)), new String(key.getData(),
+						key.getOffset(), key.getSize()));
+				assertEquals((byte) i, data.getData()[data.getOffset()]);
+				i += step;
+			}
+			assertEquals(end, i);
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * A key that doesn't share a node's prefix shortens the prefix of the BIN
+	 * it lands in, without changing the keys already there.
+	 */
+	public void testShortenPrefix() throws DatabaseException {
+		open(false);
+		for (int i = 0; i < N_KEYS; i++) {
+			insert(i);
+		}
+		byte[] other = "common-X".getBytes();
+		assertEquals(OperationStatus.SUCCESS, db.put(null, new DatabaseEntry(
+				other), new DatabaseEntry(new byte[1])));
+
+		DatabaseEntry data = new DatabaseEntry();
+		assertEquals(OperationStatus.SUCCESS, db.get(null, new DatabaseEntry(
+				other), data, LockMode.DEFAULT));
+		assertEquals(OperationStatus.SUCCESS, db.delete(null,
+				new DatabaseEntry(other)));
+		checkRecords(0, N_KEYS, 1);
+	}
+}
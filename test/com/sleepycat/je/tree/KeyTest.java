@@ -0,0 +1,122 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the word-at-a-time unsigned compare against a plain byte loop.
+ */
+public class KeyTest extends TestCase {
+
+	private static int compareReference(byte[] key1, int off1, int len1,
+			byte[] key2, int off2, int len2) {
+		int limit = Math.min(len1, len2);
+		for (int i = 0; i < limit; i++) {
+			int b1 = key1[off1 + i] & 0xff;
+			int b2 = key2[off2 + i] & 0xff;
+			if (b1 != b2) {
+				return b1 - b2;
+			}
+		}
+		return len1 - len2;
+	}
+
+	private static int signum(int i) {
+		return (i < 0) ? -1 : ((i > 0) ? 1 : 0);
+	}
+
+	private void check(byte[] key1, int off1, int len1, byte[] key2,
+			int off2, int len2) {
+		int expected = signum(compareReference(key1, off1, len1, key2, off2,
+				len2));
+		assertEquals(expected, signum(Key.compareUnsignedBytes(key1, off1,
+				len1, key2, off2, len2)));
+		assertEquals(-expected, signum(Key.compareUnsignedBytes(key2, off2,
+				len2, key1, off1, len1)));
+	}
+
+	private void check(byte[] key1, byte[] key2) {
+		check(key1, 0, key1.length, key2, 0, key2.length);
+	}
+
+	/**
+	 * Two keys equal except for one byte, at every position of every length
+	 * up to three words, with each pair of interesting byte values.
+	 */
+	public void testOneByteDiffers() {
+		byte[] values = { 0, 1, 0x7f, (byte) 0x80, (byte) 0xfe, (byte) 0xff };
+		for (int len = 1; len <= 24; len++) {
+			for (int pos = 0; pos < len; pos++) {
+				for (int v1 = 0; v1 < values.length; v1++) {
+					for (int v2 = 0; v2 < values.length; v2++) {
+						byte[] key1 = new byte[len];
+						byte[] key2 = new byte[len];
+						key1[pos] = values[v1];
+						key2[pos] = values[v2];
+						check(key1, key2);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keys where one is a prefix of the other, including prefixes that end
+	 * inside, at, and past a word boundary.
+	 */
+	public void testPrefixes() {
+		byte[] full = new byte[40];
+		for (int i = 0; i < full.length; i++) {
+			full[i] = (byte) (0xf0 + i);
+		}
+		for (int len1 = 0; len1 <= full.length; len1++) {
+			for (int len2 = 0; len2 <= full.length; len2++) {
+				check(full, 0, len1, full, 0, len2);
+			}
+		}
+		check(new byte[0], new byte[0]);
+		check(new byte[0], new byte[] { (byte) 0xff });
+	}
+
+	/**
+	 * Random keys and offsets, with shared prefixes so that words often
+	 * match, and bytes that often differ only in the high bit.
+	 */
+	public void testRandom() {
+		Random random = new Random(42);
+		byte[] key1 = new byte[64];
+		byte[] key2 = new byte[64];
+		for (int iter = 0; iter < 200000; iter++) {
+			random.nextBytes(key1);
+			System.arraycopy(key1, 0, key2, 0, key2.length);
+			int off1 = random.nextInt(8);
+			int off2 = random.nextInt(8);
+			int len1 = random.nextInt(key1.length - off1 + 1);
+			int len2 = random.nextInt(key2.length - off2 + 1);
+			if (off1 != off2) {
+				System.arraycopy(key1, off1, key2, off2, Math.min(
+						key1.length - off1, key2.length - off2));
+			}
+			int nChanges = random.nextInt(3);
+			for (int i = 0; i < nChanges; i++) {
+				int pos = random.nextInt(key2.length);
+				if (random.nextBoolean()) {
+					key2[pos] ^= 0x80;
+				} else {
+					key2[pos] = (byte) random.nextInt();
+				}
+			}
+			check(key1, off1, len1, key2, off2, len2);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.utilint.DbLsn;
+
+public class OffHeapLNCacheTest extends TestCase {
+
+	/* Two slabs of the largest size. */
+	private static final long CACHE_SIZE = 2 << 20;
+
+	private static final int DATA_SIZE = 10000;
+
+	private OffHeapLNCache cache;
+
+	public void setUp() {
+
+		/* Without an environment the cache's index is not budgeted. */
+		cache = new OffHeapLNCache(null, CACHE_SIZE);
+	}
+
+	private static long makeLsn(int i) {
+		return DbLsn.makeLsn(1, i * 100);
+	}
+
+	private static byte[] makeData(int i) {
+		byte[] data = new byte[DATA_SIZE];
+		Arrays.fill(data, (byte) i);
+		return data;
+	}
+
+	public void testPutGet() throws DatabaseException {
+		for (int i = 0; i < 100; i++) {
+			cache.put(makeLsn(i), new LN(makeData(i)));
+		}
+		assertEquals(100, cache.getNPuts());
+		assertEquals(100, cache.getNEntries());
+		for (int i = 0; i < 100; i++) {
+			LN ln = cache.get(makeLsn(i));
+			assertNotNull(ln);
+			assertTrue(Arrays.equals(makeData(i), ln.getData()));
+		}
+		assertNull(cache.get(makeLsn(100)));
+		assertEquals(100, cache.getNHits());
+		assertEquals(1, cache.getNMisses());
+	}
+
+	/**
+	 * Filling both slabs empties the first one for reuse, which drops the
+	 * oldest LNs and keeps the newest.
+	 */
+	public void testSlabReuse() throws DatabaseException {
+		int n = (int) (CACHE_SIZE / DATA_SIZE) + 50;
+		for (int i = 0; i < n; i++) {
+			cache.put(makeLsn(i), new LN(makeData(i)));
+		}
+		assertEquals(n, cache.getNPuts());
+		assertTrue(cache.getNEntries() < n);
+		assertNull(cache.get(makeLsn(0)));
+		for (int i = n - 50; i < n; i++) {
+			LN ln = cache.get(makeLsn(i));
+			assertNotNull(ln);
+			assertTrue(Arrays.equals(makeData(i), ln.getData()));
+		}
+
+		/* Entries still cached are all readable. */
+		int nCached = 0;
+		for (int i = 0; i < n; i++) {
+			LN ln = cache.get(makeLsn(i));
+			if (ln != null) {
+				assertTrue(Arrays.equals(makeData(i), ln.getData()));
+				nCached++;
+			}
+		}
+		assertEquals(cache.getNEntries(), nCached);
+
+		/* Another round reuses the slabs again without losing new entries. */
+		for (int i = n; i < 2 * n; i++) {
+			cache.put(makeLsn(i), new LN(makeData(i)));
+		}
+		assertNull(cache.get(makeLsn(n - 1)));
+		assertNotNull(cache.get(makeLsn(2 * n - 1)));
+	}
+
+	public void testIgnored() throws DatabaseException {
+		cache.put(DbLsn.NULL_LSN, new LN(makeData(0)));
+		cache.put(makeLsn(1), new DupCountLN(0));
+		assertEquals(0, cache.getNPuts());
+		assertEquals(0, cache.getNEntries());
+
+		/* A second put of the same LSN keeps the first. */
+		cache.put(makeLsn(2), new LN(makeData(2)));
+		cache.put(makeLsn(2), new LN(makeData(3)));
+		assertEquals(1, cache.getNPuts());
+		assertTrue(Arrays.equals(makeData(2), cache.get(makeLsn(2)).getData()));
+	}
+}
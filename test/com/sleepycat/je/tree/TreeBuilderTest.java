@@ -0,0 +1,196 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.tree;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.DbInternal;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.dbi.DatabaseImpl;
+
+/**
+ * Checks the shape of trees built bottom-up: full nodes at every level but
+ * the rightmost, and a root one level above the last full level.
+ */
+public class TreeBuilderTest extends TestCase {
+
+	private static final int MAX_ENTRIES = 4;
+
+	private File envHome;
+
+	private Environment env;
+
+	private Database db;
+
+	public void setUp() throws Exception {
+		envHome = new File(System.getProperty("testdestdir", System
+				.getProperty("java.io.tmpdir")), "TreeBuilderTest");
+		envHome.mkdirs();
+		cleanEnvHome();
+		EnvironmentConfig envConfig = new EnvironmentConfig();
+		envConfig.setAllowCreate(true);
+		env = new Environment(envHome, envConfig);
+		DatabaseConfig dbConfig = new DatabaseConfig();
+		dbConfig.setAllowCreate(true);
+		dbConfig.setNodeMaxEntries(MAX_ENTRIES);
+		db = env.openDatabase(null, "foo", dbConfig);
+	}
+
+	public void tearDown() throws Exception {
+		if (db != null) {
+			db.close();
+			db = null;
+		}
+		if (env != null) {
+			env.close();
+			env = null;
+		}
+		cleanEnvHome();
+	}
+
+	private void cleanEnvHome() {
+		File[] files = envHome.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	private static byte[] makeKey(int i) {
+		return String.valueOf(100000 + i).getBytes();
+	}
+
+	private void build(int nRecords) throws DatabaseException {
+		TreeBuilder builder = new TreeBuilder(DbInternal.dbGetDatabaseImpl(db));
+		for (int i = 0; i < nRecords; i++) {
+			builder.add(makeKey(i), new byte[] { (byte) i });
+		}
+		assertEquals(nRecords, builder.getNRecords());
+		builder.finish();
+	}
+
+	/**
+	 * 4 * 4 * 4 records fill 16 BINs and 4 level 2 INs exactly, whose parent
+	 * is the root.
+	 */
+	public void testFullLevels() throws DatabaseException {
+		build(64);
+		checkRoot(3, 4);
+		checkBINs(64);
+		checkRecords(64);
+	}
+
+	/**
+	 * One more record needs a 17th BIN and a 5th level 2 IN, so the tree
+	 * grows a level.
+	 */
+	public void testOneMore() throws DatabaseException {
+		build(65);
+		checkRoot(4, 2);
+		checkBINs(65);
+		checkRecords(65);
+	}
+
+	/**
+	 * A single record still gets a root IN above its BIN.
+	 */
+	public void testOneRecord() throws DatabaseException {
+		build(1);
+		checkRoot(2, 1);
+		checkBINs(1);
+		checkRecords(1);
+	}
+
+	public void testEmpty() throws DatabaseException {
+		build(0);
+		assertNull(DbInternal.dbGetDatabaseImpl(db).getTree().getRootIN(false));
+		checkRecords(0);
+	}
+
+	public void testUnsortedKeys() throws DatabaseException {
+		TreeBuilder builder = new TreeBuilder(DbInternal.dbGetDatabaseImpl(db));
+		builder.add(makeKey(2), new byte[0]);
+		try {
+			builder.add(makeKey(1), new byte[0]);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			builder.add(makeKey(2), new byte[0]);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		builder.finish();
+		checkRecords(2, 3);
+	}
+
+	private void checkRoot(int level, int nEntries) throws DatabaseException {
+		IN root = DbInternal.dbGetDatabaseImpl(db).getTree().getRootIN(false);
+		assertTrue(root.isRoot());
+		assertEquals(IN.MAIN_LEVEL | level, root.getLevel());
+		assertEquals(nEntries, root.getNEntries());
+	}
+
+	/**
+	 * Every BIN but the last is full.
+	 */
+	private void checkBINs(int nRecords) throws DatabaseException {
+		DatabaseImpl dbImpl = DbInternal.dbGetDatabaseImpl(db);
+		Tree tree = dbImpl.getTree();
+		BIN bin = (BIN) tree.getFirstNode();
+		int nBINs = 0;
+		int total = 0;
+		while (bin != null) {
+			BIN next = tree.getNextBin(bin, false);
+			if (next != null) {
+				assertEquals(MAX_ENTRIES, bin.getNEntries());
+			}
+			nBINs++;
+			total += bin.getNEntries();
+			bin = next;
+		}
+		assertEquals(nRecords, total);
+		assertEquals((nRecords + MAX_ENTRIES - 1) / MAX_ENTRIES, nBINs);
+	}
+
+	private void checkRecords(int nRecords) throws DatabaseException {
+		checkRecords(0, nRecords);
+	}
+
+	/**
+	 * Read the records with a cursor and check that they are the keys from
+	 * first to end, in order.
+	 */
+	private void checkRecords(int first, int end) throws DatabaseException {
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		Cursor cursor = db.openCursor(null, null);
+		try {
+			int i = first;
+			while (cursor.getNext(key, data, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+				assertEquals(new String(makeKey(i)), new String(key.getData(),
+						key.getOffset(), key.getSize()));
+				i++;
+			}
+			assertEquals(end, i);
+		} finally {
+			cursor.close();
+		}
+	}
+}
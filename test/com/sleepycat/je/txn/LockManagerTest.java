@@ -0,0 +1,98 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.txn;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.sleepycat.je.DbInternal;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.TransactionConfig;
+import com.sleepycat.je.dbi.EnvironmentImpl;
+
+public class LockManagerTest extends TestCase {
+
+	private static final int N_ITERS = 100000;
+
+	private File envHome;
+
+	private Environment env;
+
+	private EnvironmentImpl envImpl;
+
+	public void setUp() throws Exception {
+		envHome = new File(System.getProperty("testdestdir", System
+				.getProperty("java.io.tmpdir")), "LockManagerTest");
+		envHome.mkdirs();
+		cleanEnvHome();
+		EnvironmentConfig envConfig = new EnvironmentConfig();
+		envConfig.setAllowCreate(true);
+		env = new Environment(envHome, envConfig);
+		envImpl = DbInternal.envGetEnvironmentImpl(env);
+	}
+
+	public void tearDown() throws Exception {
+		if (env != null) {
+			env.close();
+			env = null;
+		}
+		cleanEnvHome();
+	}
+
+	private void cleanEnvHome() {
+		File[] files = envHome.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	/**
+	 * Two threads lock and release different nodes in the same lock table for
+	 * one txn. A release holds the txn monitor and then takes the lock table,
+	 * so a lock that recorded its grant in the txn while still holding the
+	 * lock table would deadlock with it.
+	 */
+	public void testLockReleaseSameTxn() throws Throwable {
+		final LockManager lockManager = envImpl.getTxnManager()
+				.getLockManager();
+		final Txn txn = new Txn(envImpl, new TransactionConfig());
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < threads.length; i++) {
+			final long nodeId = 1000 + i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < N_ITERS; j++) {
+							assertEquals(LockGrantType.NEW, lockManager.lock(
+									nodeId, txn, LockType.WRITE, 0, true, null));
+							assertTrue(lockManager.release(nodeId, txn));
+						}
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join(60000);
+			assertFalse("lock and release deadlocked", threads[i].isAlive());
+		}
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		txn.abort(false);
+	}
+}
@@ -0,0 +1,112 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.utilint;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class LongHashMapTest extends TestCase {
+
+	public void testPutGetRemove() {
+		LongHashMap map = new LongHashMap();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(0, "zero"));
+		assertNull(map.put(-1, "minus one"));
+		assertNull(map.put(Long.MAX_VALUE, "max"));
+		assertEquals(3, map.size());
+		assertEquals("zero", map.get(0));
+		assertEquals("minus one", map.get(-1));
+		assertEquals("max", map.get(Long.MAX_VALUE));
+		assertNull(map.get(1));
+
+		assertEquals("zero", map.put(0, "0"));
+		assertEquals(3, map.size());
+		assertEquals("0", map.get(0));
+
+		assertEquals("0", map.remove(0));
+		assertNull(map.remove(0));
+		assertFalse(map.containsKey(0));
+		assertEquals(2, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(-1));
+	}
+
+	public void testNullValue() {
+		LongHashMap map = new LongHashMap();
+		try {
+			map.put(1, null);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	/**
+	 * Sequential keys, as node ids and LSNs are, grow the map through several
+	 * rehashes.
+	 */
+	public void testGrow() {
+		LongHashMap map = new LongHashMap();
+		for (long i = 0; i < 10000; i++) {
+			map.put(i, new Long(i));
+		}
+		assertEquals(10000, map.size());
+		assertTrue(map.getCapacity() * 2 / 3 >= map.size());
+		for (long i = 0; i < 10000; i++) {
+			assertEquals(new Long(i), map.get(i));
+		}
+	}
+
+	/**
+	 * Removes shift later entries of a probe run back into the hole, so a
+	 * small, nearly full map exercises runs that wrap around the end of the
+	 * arrays. Compare against a HashMap after every operation.
+	 */
+	public void testRemoveKeepsProbeRuns() {
+		Random rnd = new Random(7);
+		LongHashMap map = new LongHashMap();
+		Map check = new HashMap();
+		for (int i = 0; i < 20000; i++) {
+			long key = rnd.nextInt(24);
+			if (rnd.nextBoolean()) {
+				Object value = new Integer(i);
+				assertEquals(check.put(new Long(key), value), map.put(key,
+						value));
+			} else {
+				assertEquals(check.remove(new Long(key)), map.remove(key));
+			}
+			assertEquals(check.size(), map.size());
+			for (long k = 0; k < 24; k++) {
+				assertEquals(check.get(new Long(k)), map.get(k));
+			}
+		}
+	}
+
+	public void testIterator() {
+		LongHashMap map = new LongHashMap();
+		Map check = new HashMap();
+		for (long i = 0; i < 100; i += 3) {
+			map.put(i, new Long(i * 2));
+			check.put(new Long(i), new Long(i * 2));
+		}
+		LongHashMap.Iter iter = map.iterator();
+		while (iter.hasNext()) {
+			long key = iter.next();
+			assertEquals(key, iter.getKey());
+			assertEquals(check.remove(new Long(key)), iter.getValue());
+		}
+		assertTrue(check.isEmpty());
+		assertFalse(new LongHashMap().iterator().hasNext());
+	}
+}
@@ -0,0 +1,93 @@
+/*-
+ * See the file LICENSE for redistribution information.
+ *
+ * Copyright (c) 2002-2006
+ *      Sleepycat Software.  All rights reserved.
+ *
+ * $Id$
+ */
+
+package com.sleepycat.je.utilint;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class LongHashSetTest extends TestCase {
+
+	public void testAddContainsRemove() {
+		LongHashSet set = new LongHashSet();
+		assertTrue(set.isEmpty());
+		assertTrue(set.add(5));
+		assertFalse(set.add(5));
+		assertTrue(set.add(-5));
+		assertEquals(2, set.size());
+		assertTrue(set.contains(5));
+		assertTrue(set.contains(-5));
+		assertFalse(set.contains(6));
+
+		assertTrue(set.remove(5));
+		assertFalse(set.remove(5));
+		assertFalse(set.contains(5));
+		assertEquals(1, set.size());
+
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertFalse(set.contains(-5));
+	}
+
+	/**
+	 * Zero marks a free slot, so it is kept in a flag of its own.
+	 */
+	public void testZero() {
+		LongHashSet set = new LongHashSet();
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.contains(0));
+		assertEquals(1, set.size());
+		assertTrue(set.remove(0));
+		assertFalse(set.remove(0));
+		assertTrue(set.isEmpty());
+
+		set.add(0);
+		set.clear();
+		assertFalse(set.contains(0));
+	}
+
+	public void testGrow() {
+		LongHashSet set = new LongHashSet();
+		for (long i = 1; i <= 10000; i++) {
+			assertTrue(set.add(i));
+		}
+		assertEquals(10000, set.size());
+		for (long i = 1; i <= 10000; i++) {
+			assertTrue(set.contains(i));
+		}
+		assertFalse(set.contains(10001));
+	}
+
+	/**
+	 * As in LongHashMapTest, a small, nearly full set checks that removes
+	 * keep the probe runs intact, including runs that wrap around.
+	 */
+	public void testRemoveKeepsProbeRuns() {
+		Random rnd = new Random(7);
+		LongHashSet set = new LongHashSet();
+		Set check = new HashSet();
+		for (int i = 0; i < 20000; i++) {
+			long value = rnd.nextInt(24);
+			if (rnd.nextBoolean()) {
+				assertEquals(check.add(new Long(value)), set.add(value));
+			} else {
+				assertEquals(check.remove(new Long(value)), set.remove(value));
+			}
+			assertEquals(check.size(), set.size());
+			for (long v = 0; v < 24; v++) {
+				assertEquals(check.contains(new Long(v)), set.contains(v));
+			}
+		}
+	}
+}